@@ -0,0 +1,167 @@
+package org.newnop.benchmark;
+
+import org.newnop.Main;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.search.BookSearchIndex;
+import org.newnop.service.BookServiceInterface;
+import org.newnop.service.RentalServiceInterface;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Starts the application without the web layer against an in-memory H2 database seeded with `rows` books.
+// Every hundredth book slot is used for a seeded rental of RENTAL_SIZE books, so rental reads have data too.
+// The seeded rentals are shared round-robin by CUSTOMERS customers with IDs 1 to CUSTOMERS.
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    static final int RENTAL_SIZE = 3;
+    static final int CUSTOMERS = 4;
+    private static final int INSERT_CHUNK_SIZE = 10_000;
+
+    private static final String[] WORDS = {
+            "java", "history", "garden", "ocean", "night", "empire", "silent", "river", "code", "winter",
+            "dragon", "kitchen", "quantum", "shadow", "mountain", "letters", "city", "machine", "forest", "storm"
+    };
+    private static final String[] SURNAMES = {
+            "smith", "tolkien", "bloch", "austen", "orwell", "atwood", "king", "christie", "pratchett", "herbert"
+    };
+    private static final String[] GENRES = {
+            "fiction", "fantasy", "programming", "history", "science", "poetry", "travel", "cooking"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    BookServiceInterface bookService;
+    RentalServiceInterface rentalService;
+    private ConfigurableApplicationContext context;
+    private int seededRentals;
+
+    @Setup(Level.Trial)
+    public void start() {
+        start(WebApplicationType.NONE);
+    }
+
+    // Extra arguments are Spring Boot command-line properties such as --server.port=0
+    void start(WebApplicationType webApplicationType, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.flyway.enabled=false",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                // All load-test clients share one address, so the per-client rate limiter would answer them with 429
+                "--rate-limiter.enabled=false"));
+        args.addAll(List.of(extraArgs));
+        context = new SpringApplicationBuilder(Main.class)
+                .web(webApplicationType)
+                .run(args.toArray(String[]::new));
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        seedBooks(jdbcTemplate);
+        seedRentals(jdbcTemplate);
+
+        // The indexes were built on the empty database when the context started
+        context.getBean(BookSearchIndex.class).rebuild();
+        context.getBean(BookAvailabilityIndex.class).rebuild();
+
+        bookService = context.getBean(BookServiceInterface.class);
+        rentalService = context.getBean(RentalServiceInterface.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    // Book IDs start at 1 and the seeded rentals hold the lowest ones; the free books are split in two halves
+    // so that the checkout and return benchmarks never compete for a book
+    BookRange checkoutBooks() {
+        return new BookRange(firstFreeBookId(), firstFreeBookId() + (rows - firstFreeBookId()) / 2);
+    }
+
+    BookRange returnBooks() {
+        return new BookRange(checkoutBooks().last() + 1, rows);
+    }
+
+    record BookRange(long first, long last) {
+    }
+
+    int port() {
+        return Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    WebServer webServer() {
+        return ((WebServerApplicationContext) context).getWebServer();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // Private helper methods
+    private void seedBooks(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(42);
+        List<Object[]> chunk = new ArrayList<>(INSERT_CHUNK_SIZE);
+        for (int i = 1; i <= rows; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String author = "author" + random.nextInt(1000) + " " + SURNAMES[random.nextInt(SURNAMES.length)];
+            chunk.add(new Object[]{title, author, GENRES[random.nextInt(GENRES.length)], true});
+            if (chunk.size() == INSERT_CHUNK_SIZE || i == rows) {
+                jdbcTemplate.batchUpdate("INSERT INTO books (title, author, genre, available, total_copies, available_copies)"
+                        + " VALUES (?, ?, ?, ?, 1, 1)", chunk);
+                chunk.clear();
+            }
+        }
+    }
+
+    private void seedRentals(JdbcTemplate jdbcTemplate) {
+        seededRentals = rows / 100;
+        Date rentalDate = Date.valueOf(LocalDate.now());
+        Date dueDate = Date.valueOf(LocalDate.now().plusDays(14));
+        List<Object[]> customers = new ArrayList<>(CUSTOMERS);
+        for (int customerId = 1; customerId <= CUSTOMERS; customerId++) {
+            customers.add(new Object[]{"customer " + customerId, "Customer " + customerId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers (name_key, name) VALUES (?, ?)", customers);
+
+        List<Object[]> rentals = new ArrayList<>(seededRentals);
+        List<Object[]> items = new ArrayList<>(seededRentals * RENTAL_SIZE);
+        for (long rentalId = 1; rentalId <= seededRentals; rentalId++) {
+            long customerId = (rentalId - 1) % CUSTOMERS + 1;
+            rentals.add(new Object[]{"Customer " + customerId, customerId, rentalDate, dueDate});
+            for (int i = 0; i < RENTAL_SIZE; i++) {
+                items.add(new Object[]{rentalId, (rentalId - 1) * RENTAL_SIZE + i + 1});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO rentals (user_details, customer_id, rental_date, due_date) VALUES (?, ?, ?, ?)", rentals);
+        jdbcTemplate.batchUpdate("INSERT INTO rental_items (rental_id, book_id) VALUES (?, ?)", items);
+        jdbcTemplate.update("UPDATE books SET available = FALSE, available_copies = 0 WHERE book_id < ?", firstFreeBookId());
+    }
+
+    private long firstFreeBookId() {
+        return (long) seededRentals * RENTAL_SIZE + 1;
+    }
+}
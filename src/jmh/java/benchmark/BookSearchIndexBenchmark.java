@@ -0,0 +1,133 @@
+package org.newnop.benchmark;
+
+import org.newnop.dto.BookDTO;
+import org.newnop.search.BookSearchIndex;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+// Compares BookSearchIndex against the LOWER(col) LIKE '%x%' queries the repository used to run.
+// Run with
+//   mvn -Pjmh test-compile exec:exec -Dbenchmark.main=org.newnop.benchmark.BookSearchIndexBenchmark \
+//       -Dbenchmark.args="<books> <iterations>"
+// e.g. -Dbenchmark.args="1000000 20".
+public class BookSearchIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "java", "history", "garden", "ocean", "night", "empire", "silent", "river", "code", "winter",
+            "dragon", "kitchen", "quantum", "shadow", "mountain", "letters", "city", "machine", "forest", "storm"
+    };
+    private static final String[] SURNAMES = {
+            "smith", "tolkien", "bloch", "austen", "orwell", "atwood", "king", "christie", "pratchett", "herbert"
+    };
+    private static final String[] GENRES = {
+            "fiction", "fantasy", "programming", "history", "science", "poetry", "travel", "cooking"
+    };
+    private static final String[][] QUERIES = {
+            {"quantum", null, null},
+            {"drag", null, null},
+            {"silent river", null, null},
+            {null, "tolkien", null},
+            {"java", "bloch", "programming"}
+    };
+
+    public static void main(String[] args) throws SQLException {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:search_benchmark", "sa", "")) {
+            seed(connection, bookCount);
+
+            BookSearchIndex index = new BookSearchIndex();
+            long buildStart = System.nanoTime();
+            index.rebuild(LongStream.rangeClosed(1, bookCount).mapToObj(BookSearchIndexBenchmark::book));
+            System.out.printf("index build: %d books in %d ms%n", index.size(), (System.nanoTime() - buildStart) / 1_000_000);
+
+            System.out.printf("%-36s %14s %14s%n", "query (title | author | genre)", "LIKE us/op", "index us/op");
+            for (String[] query : QUERIES) {
+                double likeMicros = timeLike(connection, query, iterations);
+                double indexMicros = timeIndex(index, query, iterations * 50);
+                System.out.printf("%-36s %14.1f %14.1f%n", String.join(" | ", String.valueOf(query[0]),
+                        String.valueOf(query[1]), String.valueOf(query[2])), likeMicros, indexMicros);
+            }
+        }
+    }
+
+    private static BookDTO book(long id) {
+        Random random = new Random(id);
+        String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                + " " + WORDS[random.nextInt(WORDS.length)] + " " + id;
+        String author = "author" + random.nextInt(1000) + " " + SURNAMES[random.nextInt(SURNAMES.length)];
+        return new BookDTO(id, title, author, GENRES[random.nextInt(GENRES.length)], true);
+    }
+
+    private static void seed(Connection connection, int bookCount) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE books (book_id BIGINT PRIMARY KEY, title VARCHAR(255), "
+                    + "author VARCHAR(255), genre VARCHAR(255), available BOOLEAN)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO books VALUES (?, ?, ?, ?, ?)")) {
+            for (long id = 1; id <= bookCount; id++) {
+                BookDTO book = book(id);
+                insert.setLong(1, id);
+                insert.setString(2, book.getTitle());
+                insert.setString(3, book.getAuthor());
+                insert.setString(4, book.getGenre());
+                insert.setBoolean(5, true);
+                insert.addBatch();
+                if (id % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+    }
+
+    // Same shape as the derived ContainingIgnoreCase queries, with every criterion applied
+    private static double timeLike(Connection connection, String[] query, int iterations) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT book_id, title, author, genre, available FROM books WHERE 1 = 1");
+        String[] columns = {"title", "author", "genre"};
+        for (int i = 0; i < columns.length; i++) {
+            if (query[i] != null) {
+                sql.append(" AND LOWER(").append(columns[i]).append(") LIKE ?");
+            }
+        }
+
+        try (PreparedStatement select = connection.prepareStatement(sql.toString())) {
+            int parameter = 1;
+            for (String criterion : query) {
+                if (criterion != null) {
+                    select.setString(parameter++, "%" + criterion + "%");
+                }
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getLong(1);
+                    }
+                }
+            }
+            return (System.nanoTime() - start) / 1_000.0 / iterations;
+        }
+    }
+
+    private static double timeIndex(BookSearchIndex index, String[] query, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            index.search(query[0], query[1], query[2], 100);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            index.search(query[0], query[1], query[2], 100);
+        }
+        return (System.nanoTime() - start) / 1_000.0 / iterations;
+    }
+}
@@ -0,0 +1,54 @@
+package org.newnop.benchmark;
+
+import org.newnop.dto.BookDTO;
+import org.newnop.dto.CursorPageDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class BookServiceBenchmark {
+
+    // One common title word, matched by about a seventh of all books
+    @Benchmark
+    public List<BookDTO> searchBooksByTitle(BenchmarkDatabase database) {
+        return database.bookService.searchBooks("quantum", null, null);
+    }
+
+    @Benchmark
+    public List<BookDTO> searchBooksByTitlePrefix(BenchmarkDatabase database) {
+        return database.bookService.searchBooks("drag", null, null);
+    }
+
+    @Benchmark
+    public List<BookDTO> searchBooksByAllCriteria(BenchmarkDatabase database) {
+        return database.bookService.searchBooks("java", "bloch", "programming");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<BookDTO> getAllBooks(BenchmarkDatabase database) {
+        return database.bookService.getAllBooks();
+    }
+
+    @Benchmark
+    public CursorPageDTO<BookDTO> getBooksPage(BenchmarkDatabase database) {
+        return database.bookService.getBooksPage(null, 100);
+    }
+
+    @Benchmark
+    public CursorPageDTO<BookDTO> getAvailableBooksPage(BenchmarkDatabase database) {
+        return database.bookService.getAvailableBooksPage(null, 100);
+    }
+}
@@ -0,0 +1,225 @@
+package org.newnop.benchmark;
+
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.newnop.reactive.ReactiveCatalogServer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+// Compares the MVC endpoints with the reactive catalog under slow clients. Each stack gets the same number of
+// connections that request the full book listing and then read nothing, like a stalled mobile client. While they
+// are held, the benchmark records what they cost the server (threads, heap) and the latency of small page requests.
+// Run with
+//   mvn -Pjmh test-compile exec:exec -Dbenchmark.main=org.newnop.benchmark.CatalogLoadTest \
+//       -Dbenchmark.args="<rows> <slow connections> <page requests>"
+// e.g. -Dbenchmark.args="60000 300 500". The listing has to outgrow the kernel's socket buffers to stall a writer.
+public class CatalogLoadTest {
+
+    private static final int CLIENT_RECEIVE_BUFFER = 4096;
+    private static final int LATENCY_CLIENTS = 16;
+    private static final Duration SETTLE_TIME = Duration.ofSeconds(3);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 60_000;
+        int slowConnections = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        BenchmarkDatabase database = new BenchmarkDatabase();
+        database.rows = rows;
+        database.start(WebApplicationType.SERVLET,
+                "--server.port=0",
+                "--reactive-catalog.enabled=true",
+                "--reactive-catalog.port=0",
+                "--reactive-catalog.r2dbc.url=r2dbc:h2:mem:///benchmark?options=MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--reactive-catalog.r2dbc.username=sa",
+                "--reactive-catalog.r2dbc.password=");
+        try {
+            TomcatWebServer tomcat = (TomcatWebServer) database.webServer();
+            int reactivePort = database.bean(ReactiveCatalogServer.class).port();
+            // Tomcat's request threads that are busy, against the event loops that serve every reactive request
+            ThreadPoolExecutor tomcatExecutor = (ThreadPoolExecutor) tomcat.getTomcat().getConnector()
+                    .getProtocolHandler().getExecutor();
+            IntSupplier mvcThreads = tomcatExecutor::getActiveCount;
+            IntSupplier reactiveThreads = () -> (int) Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("reactor-http-"))
+                    .count();
+
+            System.out.printf("%d books, %d slow connections, %d page requests from %d clients%n",
+                    rows, slowConnections, requests, LATENCY_CLIENTS);
+            System.out.printf("%-9s %10s %9s %8s %12s %14s %9s %9s %9s %7s%n", "stack", "streaming",
+                    "rejected", "threads", "threads/conn", "heap KB/conn", "p50 ms", "p99 ms", "max ms", "failed");
+            for (int round = 0; round < 2; round++) {
+                // The first round warms up both stacks; only the second is reported
+                Result mvc = measure(tomcat.getPort(), mvcThreads, slowConnections, requests);
+                Result reactive = measure(reactivePort, reactiveThreads, slowConnections, requests);
+                if (round == 1) {
+                    mvc.print("mvc", slowConnections);
+                    reactive.print("reactive", slowConnections);
+                }
+            }
+        } finally {
+            database.stop();
+        }
+    }
+
+    private static Result measure(int port, IntSupplier serverThreads, int slowConnections, int requests)
+            throws Exception {
+        long heapBefore = usedHeapAfterGc();
+
+        List<Socket> sockets = new ArrayList<>(slowConnections);
+        try {
+            for (int i = 0; i < slowConnections; i++) {
+                sockets.add(openStalledListing(port));
+            }
+            Thread.sleep(SETTLE_TIME.toMillis());
+
+            Result result = new Result();
+            for (Socket socket : sockets) {
+                int status = responseStatus(socket);
+                if (status == 200) {
+                    result.streaming++;
+                } else if (status != 0) {
+                    result.rejected++;
+                }
+            }
+            result.threads = serverThreads.getAsInt();
+            result.heapBytes = usedHeapAfterGc() - heapBefore;
+            timePageRequests(port, requests, result);
+            return result;
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            Thread.sleep(SETTLE_TIME.toMillis());
+        }
+    }
+
+    // A tiny receive window makes the server's writes stall almost at once
+    private static Socket openStalledListing(int port) throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(CLIENT_RECEIVE_BUFFER);
+        socket.connect(new InetSocketAddress("localhost", port));
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET /api/books HTTP/1.1\r\nHost: localhost\r\nAccept: application/json\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return socket;
+    }
+
+    // The status code, or 0 while the response has not started
+    private static int responseStatus(Socket socket) throws IOException {
+        socket.setSoTimeout(50);
+        InputStream in = socket.getInputStream();
+        byte[] statusLine = new byte["HTTP/1.1 200".length()];
+        int read = 0;
+        try {
+            while (read < statusLine.length) {
+                int n = in.read(statusLine, read, statusLine.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+        } catch (SocketTimeoutException e) {
+            // Nothing more yet
+        }
+        return read < statusLine.length ? 0 : Integer.parseInt(new String(statusLine, 9, 3, StandardCharsets.US_ASCII));
+    }
+
+    private static void timePageRequests(int port, int requests, Result result) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books/page?size=20"))
+                .timeout(REQUEST_TIMEOUT)
+                .build();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>(requests));
+        AtomicInteger remaining = new AtomicInteger(requests);
+        ExecutorService clients = Executors.newFixedThreadPool(LATENCY_CLIENTS);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < LATENCY_CLIENTS; i++) {
+                running.add(clients.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long started = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                latencies.add(System.nanoTime() - started);
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            // Timed out or refused
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        result.failed.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        Collections.sort(latencies);
+        if (!latencies.isEmpty()) {
+            result.p50Millis = percentile(latencies, 0.50);
+            result.p99Millis = percentile(latencies, 0.99);
+            result.maxMillis = latencies.get(latencies.size() - 1) / 1_000_000.0;
+        }
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class Result {
+        private int streaming;
+        private int rejected;
+        private int threads;
+        private long heapBytes;
+        private double p50Millis = Double.NaN;
+        private double p99Millis = Double.NaN;
+        private double maxMillis = Double.NaN;
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private void print(String stack, int connections) {
+            System.out.printf("%-9s %10d %9d %8d %12.2f %14.1f %9.1f %9.1f %9.1f %7d%n", stack, streaming, rejected,
+                    threads, (double) threads / connections, heapBytes / 1024.0 / connections,
+                    p50Millis, p99Millis, maxMillis, failed.get());
+        }
+    }
+}
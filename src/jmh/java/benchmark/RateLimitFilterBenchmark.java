@@ -0,0 +1,137 @@
+package org.newnop.benchmark;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.newnop.config.RateLimitProperties;
+import org.newnop.ratelimit.ClientRateLimiter;
+import org.newnop.ratelimit.EndpointCosts;
+import org.newnop.ratelimit.PoolWaitMonitor;
+import org.newnop.ratelimit.RateLimitFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Overhead of RateLimitFilter per request, without the servlet container: the filter with an allowing and with a
+// refusing bucket, with one client and spread over many, and the bucket alone, also contended by four threads.
+// Run with
+//   mvn -Pjmh test-compile exec:exec -Dbenchmark.args="RateLimitFilterBenchmark"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimitFilterBenchmark {
+
+    private static final int CLIENTS = 10_000;
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    private RateLimitFilter allowingFilter;
+    private RateLimitFilter refusingFilter;
+    private ClientRateLimiter allowingLimiter;
+    private MockHttpServletRequest request;
+    private MockHttpServletRequest[] clientRequests;
+    private String[] clients;
+    private HttpServletResponse response;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RateLimitProperties properties = properties();
+        PoolWaitMonitor poolWaitMonitor = new PoolWaitMonitor(properties.getShedPoolWait());
+        // So fast a rate that no bucket ever runs dry, and so slow a one that every bucket is dry after its burst
+        allowingLimiter = new ClientRateLimiter(1e9, properties.getBurst(), properties.getMaxClients());
+        EndpointCosts endpointCosts = new EndpointCosts(properties);
+        allowingFilter = new RateLimitFilter(allowingLimiter, poolWaitMonitor, endpointCosts, properties.getShedMinCost());
+        refusingFilter = new RateLimitFilter(new ClientRateLimiter(1e-6, properties.getBurst(),
+                properties.getMaxClients()), poolWaitMonitor, endpointCosts, properties.getShedMinCost());
+
+        request = apiRequest("10.0.0.1", "/api/books/42");
+        clientRequests = new MockHttpServletRequest[CLIENTS];
+        clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            String address = "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255);
+            clientRequests[i] = apiRequest(address, i % 10 == 0 ? "/api/books/search" : "/api/books/" + i);
+            clients[i] = address;
+        }
+        // Errors are written to nothing, so the same response can be refused again and again
+        response = new HttpServletResponseWrapper(new MockHttpServletResponse()) {
+            @Override
+            public void sendError(int status, String message) {
+            }
+
+            @Override
+            public void setHeader(String name, String value) {
+            }
+        };
+    }
+
+    @Benchmark
+    public void filterAllowed() throws ServletException, IOException {
+        allowingFilter.doFilter(request, response, NO_OP_CHAIN);
+    }
+
+    @Benchmark
+    public void filterAllowedManyClients(Cursor cursor) throws ServletException, IOException {
+        allowingFilter.doFilter(clientRequests[cursor.next++ % CLIENTS], response, NO_OP_CHAIN);
+    }
+
+    @Benchmark
+    public void filterRefused() throws ServletException, IOException {
+        refusingFilter.doFilter(request, response, NO_OP_CHAIN);
+    }
+
+    @Benchmark
+    public long bucketAllowed(Cursor cursor) {
+        return allowingLimiter.tryAcquire(clients[cursor.next++ % CLIENTS], 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long bucketContended() {
+        return allowingLimiter.tryAcquire("10.0.0.1", 1);
+    }
+
+    private static MockHttpServletRequest apiRequest(String address, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(address);
+        return request;
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties properties = new RateLimitProperties();
+        List<String> listings = List.of("/api/books", "/api/books/available", "/api/books/stream", "/api/rentals",
+                "/api/rentals/stream", "/api/customers");
+        for (String path : listings) {
+            RateLimitProperties.EndpointCost cost = new RateLimitProperties.EndpointCost();
+            cost.setMethod("GET");
+            cost.setPath(path);
+            cost.setCost(50);
+            properties.getCosts().add(cost);
+        }
+        return properties;
+    }
+}
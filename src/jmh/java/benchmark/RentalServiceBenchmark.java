@@ -0,0 +1,122 @@
+package org.newnop.benchmark;
+
+import org.newnop.dto.BookRentalHistoryDTO;
+import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.dto.CustomerRentalDTO;
+import org.newnop.dto.RentalDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// convertToDTO is private, so it is measured through getRentalById (one rental) and getRentalsPage (100 rentals).
+// The history lookups read the newest 50 rentals of customer 1, who holds a quarter of the seeded rentals.
+// Checkouts and returns undo each other outside the measured call, so the data stays the same across iterations.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class RentalServiceBenchmark {
+
+    @State(Scope.Thread)
+    public static class Checkout {
+        private BenchmarkDatabase database;
+        private long nextBookId;
+        CreateRentalRequest request;
+        RentalDTO rental;
+
+        @Setup(Level.Trial)
+        public void start(BenchmarkDatabase database) {
+            this.database = database;
+            nextBookId = database.checkoutBooks().first();
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            List<Long> bookIds = new ArrayList<>(BenchmarkDatabase.RENTAL_SIZE);
+            for (int i = 0; i < BenchmarkDatabase.RENTAL_SIZE; i++) {
+                bookIds.add(nextBookId);
+                nextBookId = nextBookId == database.checkoutBooks().last() ? database.checkoutBooks().first() : nextBookId + 1;
+            }
+            request = new CreateRentalRequest("Benchmark customer", LocalDate.now(), LocalDate.now().plusDays(14), bookIds, null);
+        }
+
+        @TearDown(Level.Invocation)
+        public void release() {
+            if (rental != null) {
+                database.rentalService.returnBooks(rental.getRentalId());
+                rental = null;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Return {
+        private BenchmarkDatabase database;
+        private long nextBookId;
+        Long rentalId;
+
+        @Setup(Level.Trial)
+        public void start(BenchmarkDatabase database) {
+            this.database = database;
+            nextBookId = database.returnBooks().first();
+        }
+
+        @Setup(Level.Invocation)
+        public void rent() {
+            List<Long> bookIds = new ArrayList<>(BenchmarkDatabase.RENTAL_SIZE);
+            for (int i = 0; i < BenchmarkDatabase.RENTAL_SIZE; i++) {
+                bookIds.add(nextBookId);
+                nextBookId = nextBookId == database.returnBooks().last() ? database.returnBooks().first() : nextBookId + 1;
+            }
+            rentalId = database.rentalService.createRental(new CreateRentalRequest("Benchmark customer",
+                    LocalDate.now(), LocalDate.now().plusDays(14), bookIds, null)).getRentalId();
+        }
+    }
+
+    @Benchmark
+    public RentalDTO createRental(BenchmarkDatabase database, Checkout checkout) {
+        checkout.rental = database.rentalService.createRental(checkout.request);
+        return checkout.rental;
+    }
+
+    @Benchmark
+    public RentalDTO returnBooks(BenchmarkDatabase database, Return state) {
+        return database.rentalService.returnBooks(state.rentalId);
+    }
+
+    @Benchmark
+    public RentalDTO getRentalById(BenchmarkDatabase database) {
+        return database.rentalService.getRentalById(1L);
+    }
+
+    @Benchmark
+    public CursorPageDTO<RentalDTO> getRentalsPage(BenchmarkDatabase database) {
+        return database.rentalService.getRentalsPage(null, 100);
+    }
+
+    @Benchmark
+    public CursorPageDTO<CustomerRentalDTO> getCustomerRentalHistory(BenchmarkDatabase database) {
+        return database.rentalService.getCustomerRentalHistory(1L, null, 50);
+    }
+
+    @Benchmark
+    public CursorPageDTO<BookRentalHistoryDTO> getBookRentalHistory(BenchmarkDatabase database) {
+        return database.rentalService.getBookRentalHistory(1L, null, 50);
+    }
+}
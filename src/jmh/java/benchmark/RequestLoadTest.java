@@ -0,0 +1,171 @@
+package org.newnop.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Closed-loop HTTP load test of the running application on platform and on virtual request threads.
+// Each client repeatedly fetches a book by ID, a search result or a page of books, and every mode reports
+// throughput, p50/p99 latency and 503s from the concurrency limiter, as a table and as one JSON line each.
+// Run with
+//   mvn -Pjmh test-compile exec:exec -Dbenchmark.main=org.newnop.benchmark.RequestLoadTest \
+//       -Dbenchmark.args="<rows> <clients> <seconds> <modes>"
+// e.g. -Dbenchmark.args="100000 400 30 platform,virtual". Virtual threads need a Java 21+ runtime: on an older
+// JDK, add -Dbenchmark.java=<path to a Java 21 bin/java>; the classes are built for Java 17 and run on either.
+public class RequestLoadTest {
+
+    private static final String[] SEARCH_WORDS = {"quantum", "river", "drag", "silent", "storm"};
+    private static final int POOL_SIZE = 20;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        String[] modes = args.length > 3 ? args[3].split(",") : new String[]{"platform", "virtual"};
+
+        List<String> results = new ArrayList<>();
+        System.out.printf("%-9s %8s %8s %12s %10s %10s %10s %8s%n",
+                "mode", "rows", "clients", "requests/s", "p50 ms", "p99 ms", "rejected", "errors");
+        for (String mode : modes) {
+            boolean virtual = mode.equals("virtual");
+            if (virtual && Runtime.version().feature() < 21) {
+                System.out.printf("%-9s skipped: virtual threads need Java 21+, running on %s%n", mode, Runtime.version());
+                continue;
+            }
+            Result result = run(rows, clients, seconds, virtual);
+            System.out.printf("%-9s %8d %8d %12.1f %10.2f %10.2f %10d %8d%n", mode, rows, clients,
+                    result.throughput(), result.percentileMillis(0.50), result.percentileMillis(0.99),
+                    result.rejected, result.errors);
+            results.add(String.format("{\"mode\":\"%s\",\"rows\":%d,\"clients\":%d,\"requestsPerSecond\":%.1f,"
+                            + "\"p50Ms\":%.2f,\"p99Ms\":%.2f,\"rejected\":%d,\"errors\":%d}", mode, rows, clients,
+                    result.throughput(), result.percentileMillis(0.50), result.percentileMillis(0.99),
+                    result.rejected, result.errors));
+        }
+        results.forEach(System.out::println);
+    }
+
+    private static Result run(int rows, int clients, int seconds, boolean virtual) throws Exception {
+        BenchmarkDatabase database = new BenchmarkDatabase();
+        database.rows = rows;
+        database.start(WebApplicationType.SERVLET,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                "--request-limiter.max-concurrent=" + POOL_SIZE,
+                "--management.metrics.enable.all=false");
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        try {
+            String baseUrl = "http://localhost:" + database.port() + "/api/books";
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(clientExecutor)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            // Warm up for a third of the measured time, then measure
+            drive(client, baseUrl, rows, clients, Math.max(1, seconds / 3));
+            return drive(client, baseUrl, rows, clients, seconds);
+        } finally {
+            clientExecutor.shutdownNow();
+            database.stop();
+        }
+    }
+
+    private static Result drive(HttpClient client, String baseUrl, int rows, int clients, int seconds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Future<Result>> futures = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            futures.add(executor.submit(() -> {
+                Result result = new Result(seconds);
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = HttpRequest.newBuilder(nextUri(baseUrl, rows))
+                            .timeout(Duration.ofSeconds(30))
+                            .build();
+                    long start = System.nanoTime();
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status == 503) {
+                            result.rejected++;
+                        } else if (status >= 400) {
+                            result.errors++;
+                        } else {
+                            result.record(System.nanoTime() - start);
+                        }
+                    } catch (IOException e) {
+                        result.errors++;
+                    }
+                }
+                return result;
+            }));
+        }
+
+        Result total = new Result(seconds);
+        for (Future<Result> future : futures) {
+            total.merge(future.get());
+        }
+        executor.shutdown();
+        return total;
+    }
+
+    private static URI nextUri(String baseUrl, int rows) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (random.nextInt(3)) {
+            case 0 -> URI.create(baseUrl + "/" + (random.nextInt(rows) + 1));
+            case 1 -> URI.create(baseUrl + "/search?title=" + SEARCH_WORDS[random.nextInt(SEARCH_WORDS.length)]);
+            default -> URI.create(baseUrl + "/page?size=50&after=" + random.nextInt(rows));
+        };
+    }
+
+    // Latencies of successful requests plus the rejected and failed counts of one client, or of all after merging
+    private static final class Result {
+        private final int seconds;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long rejected;
+        private long errors;
+
+        private Result(int seconds) {
+            this.seconds = seconds;
+        }
+
+        private void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        private void merge(Result other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i]);
+            }
+            rejected += other.rejected;
+            errors += other.errors;
+        }
+
+        private double throughput() {
+            return (double) count / seconds;
+        }
+
+        private double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)] / 1_000_000.0;
+        }
+    }
+}
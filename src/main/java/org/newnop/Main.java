@@ -3,12 +3,15 @@ package org.newnop;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// An R2DBC ConnectionFactory bean would make Boot drop the JDBC DataSource that JPA runs on;
+// the reactive catalog builds its own pool instead, see ReactiveBooksRepository
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 
 public class Main {
     public static void main(String[] args) {
 
         SpringApplication.run(Main.class, args);
     }
-}
\ No newline at end of file
+}
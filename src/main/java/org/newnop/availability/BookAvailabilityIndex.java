@@ -0,0 +1,218 @@
+package org.newnop.availability;
+
+import org.newnop.dto.AvailabilityConsistencyDTO;
+import org.newnop.dto.BookDTO;
+import org.newnop.replica.ReadConsistency;
+import org.newnop.repository.BooksRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// One bit per book ID, set while the book is available. Book IDs are dense auto-increment values,
+// so a plain BitSet stays small (1M books take 125 KB) and walks available IDs in ascending order.
+// Changes made inside a transaction are applied only once it commits, and are then read back from the table
+// rather than taken from the caller: hooks of transactions that commit close together can run in either order.
+@Component
+public class BookAvailabilityIndex {
+
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Held from reading committed availability until it is applied, so the last refresh to run applies the newest
+    private final Object refreshLock = new Object();
+    private final BitSet available = new BitSet();
+    private int availableCount;
+    private volatile boolean ready;
+
+    // Reads fall back to the database until the first build has completed
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Built from the primary: a lagging replica would leave out the latest checkouts and returns
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        ReadConsistency.runOnPrimary(() -> {
+            try (Stream<BookDTO> books = booksRepository.streamAllAsDTO()) {
+                rebuild(books);
+            }
+        });
+    }
+
+    public void rebuild(Stream<BookDTO> books) {
+        BitSet rebuilt = new BitSet();
+        books.filter(book -> Boolean.TRUE.equals(book.getAvailable()))
+                .forEach(book -> rebuilt.set(toIndex(book.getBookId())));
+
+        lock.writeLock().lock();
+        try {
+            available.clear();
+            available.or(rebuilt);
+            availableCount = available.cardinality();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return availableCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isAvailable(Long bookId) {
+        lock.readLock().lock();
+        try {
+            return available.get(toIndex(bookId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Available book IDs greater than after, in ascending order
+    public List<Long> availableIds(Long after, int limit) {
+        List<Long> bookIds = new ArrayList<>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try {
+            int from = after != null ? toIndex(after) + 1 : 0;
+            for (int i = available.nextSetBit(from); i >= 0 && bookIds.size() < limit; i = available.nextSetBit(i + 1)) {
+                bookIds.add((long) i);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return bookIds;
+    }
+
+    public void update(Long bookId, boolean isAvailable) {
+        update(List.of(bookId), isAvailable);
+    }
+
+    // For books whose committed availability the caller knows and no other request can change yet, i.e. books
+    // just created or deleted outside a transaction. Deleted books are recorded as unavailable.
+    public void update(Collection<Long> bookIds, boolean isAvailable) {
+        lock.writeLock().lock();
+        try {
+            bookIds.forEach(bookId -> set(bookId, isAvailable));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void refresh(Long bookId) {
+        refresh(List.of(bookId));
+    }
+
+    // Reads the availability of the books from the primary once the surrounding transaction commits, or at once
+    // outside a transaction. Books no longer found are recorded as unavailable.
+    public void refresh(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    load(bookIds);
+                }
+            });
+        } else {
+            load(bookIds);
+        }
+    }
+
+    // Compares a snapshot of the index with the table; writes that commit during the scan can show up as mismatches
+    @Transactional(readOnly = true)
+    public AvailabilityConsistencyDTO checkConsistency() {
+        BitSet snapshot;
+        long indexedAvailable;
+        lock.readLock().lock();
+        try {
+            snapshot = (BitSet) available.clone();
+            indexedAvailable = availableCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long tableAvailable = 0;
+        long mismatchCount = 0;
+        List<Long> mismatches = new ArrayList<>();
+        try (Stream<BookDTO> books = ReadConsistency.onPrimary(booksRepository::streamAllAsDTO)) {
+            for (BookDTO book : (Iterable<BookDTO>) books::iterator) {
+                int index = toIndex(book.getBookId());
+                boolean inTable = Boolean.TRUE.equals(book.getAvailable());
+                if (inTable) {
+                    tableAvailable++;
+                }
+                if (inTable != snapshot.get(index)) {
+                    mismatchCount++;
+                    if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                        mismatches.add(book.getBookId());
+                    }
+                }
+                // Whatever is still set afterwards belongs to books that no longer exist
+                snapshot.clear(index);
+            }
+        }
+        for (int i = snapshot.nextSetBit(0); i >= 0; i = snapshot.nextSetBit(i + 1)) {
+            mismatchCount++;
+            if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                mismatches.add((long) i);
+            }
+        }
+
+        return new AvailabilityConsistencyDTO(mismatchCount == 0, indexedAvailable, tableAvailable,
+                mismatchCount, mismatches);
+    }
+
+    // Private helper methods
+    private void load(Collection<Long> bookIds) {
+        synchronized (refreshLock) {
+            Set<Long> availableIds = new HashSet<>(ReadConsistency.onPrimary(() ->
+                    booksRepository.findAvailableIds(bookIds)));
+            lock.writeLock().lock();
+            try {
+                for (Long bookId : bookIds) {
+                    set(bookId, availableIds.contains(bookId));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Called with the write lock held
+    private void set(Long bookId, boolean isAvailable) {
+        int index = toIndex(bookId);
+        if (available.get(index) != isAvailable) {
+            available.set(index, isAvailable);
+            availableCount += isAvailable ? 1 : -1;
+        }
+    }
+
+    private static int toIndex(Long bookId) {
+        return Math.toIntExact(bookId);
+    }
+}
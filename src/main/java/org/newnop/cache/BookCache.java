@@ -0,0 +1,81 @@
+package org.newnop.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.newnop.dto.BookDTO;
+import org.newnop.dto.CacheStatsDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+// Bounded read-through cache of books by ID.
+// Writers invalidate only once their transaction has completed. A load that read the old row is either
+// still running (the invalidation waits for it and then drops it) or already cached (and dropped),
+// so a committed change is never hidden by a stale entry.
+@Component
+public class BookCache {
+
+    private final Cache<Long, BookDTO> cache;
+
+    @Autowired
+    public BookCache(@Value("${book-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${book-cache.ttl:10m}") Duration ttl) {
+        this(maximumSize, ttl, Ticker.systemTicker());
+    }
+
+    BookCache(long maximumSize, Duration ttl, Ticker ticker) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    // Returns the cached book or loads it; a null result is not cached
+    public BookDTO get(Long bookId, Function<Long, BookDTO> loader) {
+        return cache.get(bookId, loader);
+    }
+
+    public void invalidate(Long bookId) {
+        invalidateAll(List.of(bookId));
+    }
+
+    public void invalidateAll(Collection<Long> bookIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll(bookIds);
+                }
+            });
+        } else {
+            cache.invalidateAll(bookIds);
+        }
+    }
+
+    // Runs pending size and expiry evictions now instead of on the next access
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    public CacheStatsDTO stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDTO(
+                cache.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                stats.hitRate()
+        );
+    }
+}
@@ -0,0 +1,251 @@
+package org.newnop.catalog;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.entity.Books;
+import org.newnop.entity.CatalogStamps;
+import org.newnop.event.BookUpdated;
+import org.newnop.event.BooksReturned;
+import org.newnop.event.RentalCreated;
+import org.newnop.replica.ReadConsistency;
+import org.newnop.repository.BooksRepository;
+import org.newnop.repository.CatalogStampsRepository;
+import org.newnop.search.BookSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Keeps the catalog state of each instance (validators, book cache, second-level cache and indexes) in step with
+// changes committed on the others, through the catalog_stamps table.
+// Each run stamps the books changed here with the next catalog version, then reads the stamps written since the
+// last run. Books changed elsewhere are reloaded from the primary into the indexes and dropped from the caches
+// before their validators move to the stamp's version, so a new validator never comes with old data. A change made
+// on another instance shows up here within about two intervals; until then a validator handed out there for it
+// can still match here.
+// Stamps of this instance are skipped when read back; their versions were applied when they were written. Where stamping would overwrite another instance's stamp that
+// has not been read yet, that book is refreshed at once instead.
+// Checkouts, returns and book edits publish a domain event instead, and are stamped when the outbox delivers it,
+// so they still reach the other instances if this one stops right after the commit. The outbox hands the event to
+// any one instance, so those stamps are applied everywhere, the origin included; a redelivery stamps them again,
+// which only refreshes the books once more.
+@Component
+public class CatalogSync {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSync.class);
+
+    @Autowired
+    private CatalogStampsRepository catalogStampsRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private BookAvailabilityIndex bookAvailabilityIndex;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${catalog-sync.batch-size:1000}")
+    private int batchSize;
+
+    // Stamps up to (seenVersion, seenBookId) have been read
+    private long seenVersion;
+    private long seenBookId;
+    // Versions this instance stamped with that have not been read past yet
+    private final NavigableSet<Long> ownVersions = new TreeSet<>();
+    private volatile boolean started;
+
+    // Ahead of the index builds at startup: changes that commit while they run are read and applied afterwards.
+    // All stamps are read once, so the validators of books changed before the start match those of the other
+    // instances; nothing is cached yet, so there is nothing to refresh.
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void start() {
+        seenVersion = 0;
+        seenBookId = 0;
+        ownVersions.clear();
+        List<CatalogStamps> stamps;
+        do {
+            long mark = catalogVersions.mark();
+            stamps = ReadConsistency.onPrimary(() ->
+                    catalogStampsRepository.findStampedAfter(seenVersion, seenBookId, Limit.of(batchSize)));
+            applyVersions(stamps, mark);
+            advance(stamps);
+        } while (stamps.size() == batchSize);
+        started = true;
+    }
+
+    @Scheduled(fixedDelayString = "${catalog-sync.interval-ms:250}")
+    public void poll() {
+        if (!started) {
+            return;
+        }
+        try {
+            sync();
+        } catch (DataAccessException e) {
+            log.warn("Catalog sync failed, retrying in the next run: {}", e.toString());
+        }
+    }
+
+    // Shares the changes made here and applies those made elsewhere; returns how many books changed elsewhere
+    public synchronized int sync() {
+        return share() + receive();
+    }
+
+    @EventListener
+    public void onRentalCreated(RentalCreated event) {
+        stamp(event.bookIds(), null);
+    }
+
+    @EventListener
+    public void onBooksReturned(BooksReturned event) {
+        stamp(event.bookIds(), null);
+    }
+
+    @EventListener
+    public void onBookUpdated(BookUpdated event) {
+        stamp(List.of(event.bookId()), null);
+    }
+
+    // Private helper methods
+    private int share() {
+        long mark = catalogVersions.mark();
+        List<Long> bookIds = catalogVersions.takeUnshared();
+        if (bookIds.isEmpty()) {
+            return 0;
+        }
+        Set<Long> overwritten = new LinkedHashSet<>();
+        long version;
+        try {
+            version = stamp(bookIds, overwritten);
+        } catch (RuntimeException e) {
+            catalogVersions.keepUnshared(bookIds);
+            throw e;
+        }
+        ownVersions.add(version);
+        refresh(new ArrayList<>(overwritten));
+        catalogVersions.stamped(bookIds, version, mark);
+        return overwritten.size();
+    }
+
+    // Stamps the books with the next catalog version and returns it. Books whose stamp from another instance is
+    // replaced before this one read it are added to overwritten, if given.
+    private long stamp(List<Long> bookIds, Set<Long> overwritten) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            long next = catalogStampsRepository.nextVersion();
+            List<Long> stamped = new ArrayList<>();
+            for (int from = 0; from < bookIds.size(); from += batchSize) {
+                List<Long> chunk = bookIds.subList(from, Math.min(from + batchSize, bookIds.size()));
+                for (CatalogStamps stamp : catalogStampsRepository.findByBookIdIn(chunk)) {
+                    stamped.add(stamp.getBookId());
+                    if (overwritten != null && isUnread(stamp) && !ownVersions.contains(stamp.getVersion())) {
+                        overwritten.add(stamp.getBookId());
+                    }
+                }
+            }
+            Set<Long> added = new TreeSet<>(bookIds);
+            stamped.forEach(added::remove);
+            // Ascending ID order, like checkouts, so the row locks cannot deadlock
+            stamped.sort(null);
+            catalogStampsRepository.stampAll(stamped, added, next);
+            return next;
+        });
+    }
+
+    private int receive() {
+        int received = 0;
+        List<CatalogStamps> stamps;
+        do {
+            long mark = catalogVersions.mark();
+            stamps = ReadConsistency.onPrimary(() ->
+                    catalogStampsRepository.findStampedAfter(seenVersion, seenBookId, Limit.of(batchSize)));
+            List<CatalogStamps> elsewhere = stamps.stream()
+                    .filter(stamp -> !ownVersions.contains(stamp.getVersion()))
+                    .toList();
+            refresh(elsewhere.stream().map(CatalogStamps::getBookId).toList());
+            applyVersions(elsewhere, mark);
+            received += elsewhere.size();
+            advance(stamps);
+        } while (stamps.size() == batchSize);
+        ownVersions.headSet(seenVersion, false).clear();
+        return received;
+    }
+
+    private void refresh(List<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        bookIds.forEach(bookId -> entityManagerFactory.getCache().evict(Books.class, bookId));
+        List<Books> books = ReadConsistency.onPrimary(() -> booksRepository.findAllById(bookIds));
+
+        // Books no longer found were deleted
+        Set<Long> removed = new TreeSet<>(bookIds);
+        for (Books book : books) {
+            removed.remove(book.getBookId());
+            bookSearchIndex.index(book);
+        }
+        removed.forEach(bookSearchIndex::remove);
+        bookAvailabilityIndex.refresh(bookIds);
+
+        bookCache.invalidateAll(bookIds);
+    }
+
+    // Stamps come in (version, bookId) order, so the books of one version are next to each other
+    private void applyVersions(List<CatalogStamps> stamps, long mark) {
+        int from = 0;
+        while (from < stamps.size()) {
+            long version = stamps.get(from).getVersion();
+            int to = from;
+            while (to < stamps.size() && stamps.get(to).getVersion() == version) {
+                to++;
+            }
+            catalogVersions.stamped(stamps.subList(from, to).stream().map(CatalogStamps::getBookId).toList(),
+                    version, mark);
+            from = to;
+        }
+    }
+
+    private void advance(List<CatalogStamps> stamps) {
+        if (!stamps.isEmpty()) {
+            CatalogStamps last = stamps.get(stamps.size() - 1);
+            seenVersion = last.getVersion();
+            seenBookId = last.getBookId();
+        }
+    }
+
+    private boolean isUnread(CatalogStamps stamp) {
+        return stamp.getVersion() > seenVersion
+                || (stamp.getVersion() == seenVersion && stamp.getBookId() > seenBookId);
+    }
+}
@@ -0,0 +1,183 @@
+package org.newnop.catalog;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Version stamps behind the ETag and Last-Modified headers of the catalog: one for the whole catalog and one per
+// book. They are the versions of the shared catalog_stamps table as read by CatalogSync, the wall-clock time of
+// the stamp in milliseconds, so every instance that has read a change hands out the same validators for it.
+// Books never stamped have version 0. A version moves only once CatalogSync has refreshed the caches, so a client
+// never sees a new stamp together with old data.
+// A change made here is pending from its commit until its stamp has been read: the data already shows it while
+// the validators do not, so no request is answered from the validators until then.
+// Changes made here are shared with the other instances, and theirs applied here, by CatalogSync;
+// changes that also publish a domain event are shared by CatalogSync when the outbox delivers the event.
+@Component
+public class CatalogVersions {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long catalogVersion;
+    // Wall-clock time of the latest change committed here, pending or not
+    private volatile long changedAt;
+    // Indexed by book ID, like the availability index; 0 means never stamped
+    private long[] bookVersions = new long[1024];
+    // Books changed here whose stamp has not been read yet, with the mark of their latest change
+    private final Map<Long, Long> pending = new HashMap<>();
+    private long marks;
+    // Books changed here that CatalogSync has not shared yet
+    private final BitSet unshared = new BitSet();
+
+    public long catalogVersion() {
+        return catalogVersion;
+    }
+
+    public long bookVersion(Long bookId) {
+        lock.readLock().lock();
+        try {
+            int index = toIndex(bookId);
+            return index < bookVersions.length ? bookVersions[index] : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The latest version, or change made here, that reads of the catalog must see
+    public long readAfter() {
+        return Math.max(catalogVersion, changedAt);
+    }
+
+    public boolean isPending() {
+        lock.readLock().lock();
+        try {
+            return !pending.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isPending(Long bookId) {
+        lock.readLock().lock();
+        try {
+            return pending.containsKey(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void changed(Long bookId) {
+        changed(List.of(bookId));
+    }
+
+    // Registered after the book cache invalidation of the same change, which also runs on completion
+    public void changed(Collection<Long> bookIds) {
+        onCommit(bookIds, true);
+    }
+
+    public void changedWithEvent(Long bookId) {
+        changedWithEvent(List.of(bookId));
+    }
+
+    // For changes whose transaction also publishes a domain event naming the books; they are not shared from here
+    public void changedWithEvent(Collection<Long> bookIds) {
+        onCommit(bookIds, false);
+    }
+
+    // Changes made here up to the returned mark are covered by any stamp read, or taken for sharing, after it
+    public long mark() {
+        lock.readLock().lock();
+        try {
+            return marks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // For stamps CatalogSync has read or written; the caller has already refreshed the caches. Changes made here
+    // up to mark are no longer pending for these books.
+    public void stamped(Collection<Long> bookIds, long version, long mark) {
+        lock.writeLock().lock();
+        try {
+            for (Long bookId : bookIds) {
+                int index = toIndex(bookId);
+                if (index >= bookVersions.length) {
+                    bookVersions = Arrays.copyOf(bookVersions, Math.max(index + 1, bookVersions.length * 2));
+                }
+                bookVersions[index] = Math.max(bookVersions[index], version);
+                pending.computeIfPresent(bookId, (id, changeMark) -> changeMark <= mark ? null : changeMark);
+            }
+            catalogVersion = Math.max(catalogVersion, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Books changed here since the last call, in ascending ID order
+    public List<Long> takeUnshared() {
+        List<Long> bookIds = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            unshared.stream().forEach(index -> bookIds.add((long) index));
+            unshared.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return bookIds;
+    }
+
+    // Hands back books taken but not shared, e.g. because the database was unavailable
+    public void keepUnshared(Collection<Long> bookIds) {
+        lock.writeLock().lock();
+        try {
+            bookIds.forEach(bookId -> unshared.set(toIndex(bookId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Private helper methods
+    private void onCommit(Collection<Long> bookIds, boolean share) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        apply(bookIds, share);
+                    }
+                }
+            });
+        } else {
+            apply(bookIds, share);
+        }
+    }
+
+    private void apply(Collection<Long> bookIds, boolean share) {
+        lock.writeLock().lock();
+        try {
+            long mark = ++marks;
+            for (Long bookId : bookIds) {
+                pending.put(bookId, mark);
+                if (share) {
+                    unshared.set(toIndex(bookId));
+                }
+            }
+            changedAt = Math.max(changedAt, System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int toIndex(Long bookId) {
+        return Math.toIntExact(bookId);
+    }
+}
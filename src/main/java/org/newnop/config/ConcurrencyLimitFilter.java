@@ -0,0 +1,160 @@
+package org.newnop.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Caps the number of API requests in flight that need a connection, by default at the size of the connection pool.
+// Request threads are cheap, virtual ones especially, but connections are not: excess requests wait here
+// for up to acquire-timeout and are then answered with 503 instead of queueing on the pool or MySQL.
+// A permit is held only while the request thread runs. GET routes answered from memory (unlimited-get-paths) take
+// none; their cache misses wait on the pool instead. Streams (stream-paths) write rows long after the thread
+// returned, so they take a permit of their own, smaller limit and hold it until the stream completes.
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final UrlPathHelper PATH_HELPER = fullPathHelper();
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final Semaphore permits;
+    private final Semaphore streamPermits;
+    private final long acquireTimeoutNanos;
+    private final List<String> streamPaths;
+    private final List<String> unlimitedGetPaths;
+
+    @Autowired
+    public ConcurrencyLimitFilter(@Value("${request-limiter.max-concurrent:20}") int maxConcurrent,
+                                  @Value("${request-limiter.max-concurrent-streams:4}") int maxConcurrentStreams,
+                                  @Value("${request-limiter.acquire-timeout:2s}") Duration acquireTimeout,
+                                  @Value("${request-limiter.stream-paths:}") List<String> streamPaths,
+                                  @Value("${request-limiter.unlimited-get-paths:}") List<String> unlimitedGetPaths) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.streamPermits = new Semaphore(maxConcurrentStreams, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.streamPaths = List.copyOf(streamPaths);
+        this.unlimitedGetPaths = List.copyOf(unlimitedGetPaths);
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int availableStreamPermits() {
+        return streamPermits.availablePermits();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Event streams stay open for minutes without using a connection; a permit would be held all that time
+        String path = lookupPath(request);
+        return !path.startsWith("/api/") || path.endsWith("/events")
+                || ("GET".equals(request.getMethod()) && matches(unlimitedGetPaths, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean stream = matches(streamPaths, lookupPath(request));
+        Semaphore limit = stream ? streamPermits : permits;
+        boolean acquired;
+        try {
+            acquired = limit.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                    stream ? "Too many concurrent streams" : "Too many concurrent requests");
+            return;
+        }
+
+        // A stream keeps working after this thread has returned; its permit is released on completion
+        AtomicBoolean released = new AtomicBoolean();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (stream && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(limit, released));
+            } else {
+                release(limit, released);
+            }
+        }
+    }
+
+    // Private helper methods
+    private static void release(Semaphore limit, AtomicBoolean released) {
+        if (released.compareAndSet(false, true)) {
+            limit.release();
+        }
+    }
+
+    private static boolean matches(List<String> patterns, String path) {
+        for (String pattern : patterns) {
+            if (PATH_MATCHER.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The path as the handlers match it, like RateLimitFilter, so a differently spelled path cannot dodge a limit
+    private static String lookupPath(HttpServletRequest request) {
+        return PATH_HELPER.getLookupPathForRequest(request);
+    }
+
+    private static UrlPathHelper fullPathHelper() {
+        UrlPathHelper pathHelper = new UrlPathHelper();
+        pathHelper.setAlwaysUseFullPath(true);
+        return pathHelper;
+    }
+
+    private static class ReleasingListener implements AsyncListener {
+        private final Semaphore limit;
+        private final AtomicBoolean released;
+
+        private ReleasingListener(Semaphore limit, AtomicBoolean released) {
+            this.limit = limit;
+            this.released = released;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(limit, released);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(limit, released);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(limit, released);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
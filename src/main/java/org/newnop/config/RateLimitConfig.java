@@ -0,0 +1,62 @@
+package org.newnop.config;
+
+import org.newnop.ratelimit.ClientRateLimiter;
+import org.newnop.ratelimit.EndpointCosts;
+import org.newnop.ratelimit.PoolWaitMonitor;
+import org.newnop.ratelimit.RateLimitFilter;
+import org.newnop.ratelimit.ReactiveRateLimitFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+// Per-client rate limits and load shedding for the API, see RateLimitFilter
+@Configuration
+@ConditionalOnProperty(name = "rate-limiter.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    @Bean
+    public ClientRateLimiter clientRateLimiter(RateLimitProperties rateLimitProperties) {
+        return new ClientRateLimiter(rateLimitProperties.getTokensPerSecond(), rateLimitProperties.getBurst(),
+                rateLimitProperties.getMaxClients());
+    }
+
+    @Bean
+    public PoolWaitMonitor poolWaitMonitor(RateLimitProperties rateLimitProperties) {
+        return new PoolWaitMonitor(rateLimitProperties.getShedPoolWait());
+    }
+
+    @Bean
+    public SchedulingConfigurer poolWaitChecks(PoolWaitMonitor poolWaitMonitor, RateLimitProperties rateLimitProperties) {
+        return registrar -> registrar.addFixedDelayTask(poolWaitMonitor::check, rateLimitProperties.getShedCheckInterval());
+    }
+
+    @Bean
+    public EndpointCosts endpointCosts(RateLimitProperties rateLimitProperties) {
+        return new EndpointCosts(rateLimitProperties);
+    }
+
+    // Ahead of ConcurrencyLimitFilter, which keeps the default, lowest order
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(ClientRateLimiter clientRateLimiter,
+                                                                   PoolWaitMonitor poolWaitMonitor,
+                                                                   EndpointCosts endpointCosts,
+                                                                   RateLimitProperties rateLimitProperties) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+                new RateLimitFilter(clientRateLimiter, poolWaitMonitor, endpointCosts,
+                        rateLimitProperties.getShedMinCost()));
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return registration;
+    }
+
+    // Picked up by ReactiveCatalogServer when the reactive catalog is enabled
+    @Bean
+    public ReactiveRateLimitFilter reactiveRateLimitFilter(ClientRateLimiter clientRateLimiter,
+                                                           EndpointCosts endpointCosts) {
+        return new ReactiveRateLimitFilter(clientRateLimiter, endpointCosts);
+    }
+}
@@ -0,0 +1,33 @@
+package org.newnop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("rate-limiter")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    // Every client address's bucket refills at tokens-per-second and holds at most burst tokens
+    private double tokensPerSecond = 50;
+    private int burst = 200;
+    private long maxClients = 100_000;
+    private int defaultCost = 1;
+    private List<EndpointCost> costs = new ArrayList<>();
+    // Requests costing at least shed-min-cost are refused while the mean connection wait is above shed-pool-wait
+    private Duration shedPoolWait = Duration.ofMillis(100);
+    private int shedMinCost = 10;
+    private Duration shedCheckInterval = Duration.ofMillis(250);
+
+    @Data
+    public static class EndpointCost {
+        private String method;
+        // Matched exactly, without path variables
+        private String path;
+        private int cost;
+    }
+}
@@ -0,0 +1,77 @@
+package org.newnop.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.newnop.replica.ReadYourWritesFilter;
+import org.newnop.replica.ReplicaMonitor;
+import org.newnop.replica.ReplicaRoutingDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// With replicas.enabled, spring.datasource becomes the primary and read-only transactions are spread over
+// replicas.nodes. Each replica gets its own pool with the primary's Hikari settings.
+@Configuration
+@ConditionalOnProperty(name = "replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaMonitor replicaMonitor(HikariDataSource primaryDataSource, ReplicaProperties replicaProperties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaProperties.getNodes().size(); i++) {
+            ReplicaProperties.Node node = replicaProperties.getNodes().get(i);
+            String name = node.getName() != null ? node.getName() : "replica-" + (i + 1);
+            replicas.put(name, replicaDataSource(primaryDataSource, node, name));
+        }
+        return new ReplicaMonitor(primaryDataSource, replicas, replicaProperties.getMaxLag());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaMonitor replicaMonitor) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replicaMonitor));
+    }
+
+    @Bean
+    public SchedulingConfigurer replicaChecks(ReplicaMonitor replicaMonitor, ReplicaProperties replicaProperties) {
+        return registrar -> registrar.addFixedDelayTask(replicaMonitor::check, replicaProperties.getCheckInterval());
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaProperties replicaProperties) {
+        return new ReadYourWritesFilter(replicaProperties.getMaxLag());
+    }
+
+    // Private helper methods
+    private HikariDataSource replicaDataSource(HikariDataSource primaryDataSource, ReplicaProperties.Node node,
+                                               String name) {
+        HikariConfig config = new HikariConfig();
+        primaryDataSource.copyStateTo(config);
+        config.setPoolName(name);
+        config.setJdbcUrl(node.getUrl());
+        if (node.getUsername() != null) {
+            config.setUsername(node.getUsername());
+            config.setPassword(node.getPassword());
+        }
+        // Replica pools fill lazily, so a replica that is down does not keep the application from starting
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+}
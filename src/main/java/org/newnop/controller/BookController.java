@@ -1,16 +1,33 @@
 package org.newnop.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.dto.ImportResultDTO;
+import org.newnop.service.BookImportServiceInterface;
+import org.newnop.cache.BookCache;
+import org.newnop.dto.AvailabilityConsistencyDTO;
 import org.newnop.dto.BookDTO;
+import org.newnop.dto.BookRentalHistoryDTO;
+import org.newnop.dto.CacheStatsDTO;
 import org.newnop.service.BookServiceInterface;
+import org.newnop.service.RentalServiceInterface;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -22,6 +39,21 @@ public class BookController {
     @Autowired
     private BookServiceInterface bookService;
 
+    @Autowired
+    private BookImportServiceInterface bookImportService;
+
+    @Autowired
+    private RentalServiceInterface rentalService;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private CatalogResponses catalogResponses;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Operation(summary = "Create new book", description = "Add a new book to the library")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Book created successfully"),
@@ -33,56 +65,200 @@ public class BookController {
             BookDTO createdBook = bookService.createBook(bookDTO);
             return new ResponseEntity<>(createdBook, HttpStatus.CREATED);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         }
     }
 
+    @Operation(summary = "Import books", description = "Bulk import books from a CSV (header: title,author,genre,available) or NDJSON upload")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished; rejected rows are listed with their line numbers"),
+            @ApiResponse(responseCode = "400", description = "Unreadable upload"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping(value = "/import", consumes = {"text/csv", NdjsonWriter.MEDIA_TYPE})
+    public ResponseEntity<ImportResultDTO> importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        try {
+            Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+            ImportResultDTO result = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.valueOf("text/csv"))
+                    ? bookImportService.importCsv(reader)
+                    : bookImportService.importNdjson(reader);
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @Operation(summary = "Get all books", description = "Retrieve all books from the database")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved books"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag or date sent by the client"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping
-    public ResponseEntity<List<BookDTO>> getAllBooks() {
+    public ResponseEntity<List<BookDTO>> getAllBooks(WebRequest webRequest) {
         try {
-            List<BookDTO> books = bookService.getAllBooks();
-            return new ResponseEntity<>(books, HttpStatus.OK);
+            return catalogResponses.ofCatalog(webRequest, bookService::getAllBooks);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    @Operation(summary = "Get books page", description = "Retrieve books ordered by ID, one keyset page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved books page"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag or date sent by the client"),
+            @ApiResponse(responseCode = "400", description = "Invalid page size"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDTO<BookDTO>> getBooksPage(
+            @Parameter(description = "Cursor returned as nextCursor by the previous page") @RequestParam(required = false) Long after,
+            @Parameter(description = "Number of books per page") @RequestParam(defaultValue = "50") int size,
+            WebRequest webRequest) {
+        try {
+            return catalogResponses.ofCatalog(webRequest, () -> bookService.getBooksPage(after, size));
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Stream all books", description = "Stream every book as newline-delimited JSON without buffering the table")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Books streamed successfully")
+    })
+    @GetMapping(value = "/stream", produces = NdjsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+        StreamingResponseBody body = outputStream ->
+                bookService.streamAllBooks(new NdjsonWriter<>(objectMapper, outputStream));
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
     @Operation(summary = "Get available books", description = "Retrieve all books that are currently available for rental")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved available books"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag or date sent by the client"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/available")
-    public ResponseEntity<List<BookDTO>> getAvailableBooks() {
+    public ResponseEntity<List<BookDTO>> getAvailableBooks(WebRequest webRequest) {
+        try {
+            return catalogResponses.ofCatalog(webRequest, bookService::getAvailableBooks);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get available books page", description = "Retrieve available books ordered by ID, one keyset page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved available books page"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag or date sent by the client"),
+            @ApiResponse(responseCode = "400", description = "Invalid page size"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/available/page")
+    public ResponseEntity<CursorPageDTO<BookDTO>> getAvailableBooksPage(
+            @Parameter(description = "Cursor returned as nextCursor by the previous page") @RequestParam(required = false) Long after,
+            @Parameter(description = "Number of books per page") @RequestParam(defaultValue = "50") int size,
+            WebRequest webRequest) {
+        try {
+            return catalogResponses.ofCatalog(webRequest, () -> bookService.getAvailableBooksPage(after, size));
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Count available books", description = "Number of books currently available for rental")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully counted available books")
+    })
+    @GetMapping("/available/count")
+    public ResponseEntity<Long> countAvailableBooks() {
+        return new ResponseEntity<>(bookService.countAvailableBooks(), HttpStatus.OK);
+    }
+
+    @Operation(summary = "Check availability index", description = "Compare the in-memory availability index with the books table")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Consistency report"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/available/consistency")
+    public ResponseEntity<AvailabilityConsistencyDTO> checkAvailabilityConsistency() {
         try {
-            List<BookDTO> books = bookService.getAvailableBooks();
-            return new ResponseEntity<>(books, HttpStatus.OK);
+            return new ResponseEntity<>(bookService.checkAvailabilityConsistency(), HttpStatus.OK);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    @Operation(summary = "Check book availability", description = "Whether a specific book is currently available for rental")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Availability of the book")
+    })
+    @GetMapping("/{id}/available")
+    public ResponseEntity<Boolean> isBookAvailable(
+            @Parameter(description = "Book ID", required = true) @PathVariable Long id) {
+        return new ResponseEntity<>(bookService.isBookAvailable(id), HttpStatus.OK);
+    }
+
     @Operation(summary = "Get book by ID", description = "Retrieve a specific book by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Book found"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag or date sent by the client"),
             @ApiResponse(responseCode = "404", description = "Book not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/{id}")
     public ResponseEntity<BookDTO> getBookById(
-            @Parameter(description = "Book ID", required = true) @PathVariable Long id) {
+            @Parameter(description = "Book ID", required = true) @PathVariable Long id,
+            WebRequest webRequest) {
+        try {
+            return catalogResponses.ofBook(webRequest, id, () -> bookService.getBookById(id));
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get rental history of a book", description = "Retrieve the rentals of a book, newest first, one keyset page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved rental history"),
+            @ApiResponse(responseCode = "400", description = "Invalid page size"),
+            @ApiResponse(responseCode = "404", description = "Book not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}/rentals")
+    public ResponseEntity<CursorPageDTO<BookRentalHistoryDTO>> getBookRentalHistory(
+            @Parameter(description = "Book ID", required = true) @PathVariable Long id,
+            @Parameter(description = "Cursor returned as nextCursor by the previous page") @RequestParam(required = false) Long before,
+            @Parameter(description = "Number of rentals per page") @RequestParam(defaultValue = "50") int size) {
         try {
-            BookDTO book = bookService.getBookById(id);
-            if (book != null) {
-                return new ResponseEntity<>(book, HttpStatus.OK);
+            CursorPageDTO<BookRentalHistoryDTO> page = rentalService.getBookRentalHistory(id, before, size);
+            if (page != null) {
+                return new ResponseEntity<>(page, HttpStatus.OK);
             }
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
@@ -104,6 +280,7 @@ public class BookController {
             }
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         }
     }
@@ -124,25 +301,38 @@ public class BookController {
             }
             return new ResponseEntity<>("Book not found", HttpStatus.NOT_FOUND);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>("Error deleting book", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    @Operation(summary = "Search books", description = "Search books by title, author, or genre")
+    @Operation(summary = "Search books", description = "Search books by title, author, or genre. Returns at most 100 books, "
+            + "best matches first; narrow the criteria to find others. Without criteria, all books are returned")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Books found matching search criteria"),
+            @ApiResponse(responseCode = "200", description = "Books found matching search criteria, at most 100"),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag or date sent by the client"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/search")
     public ResponseEntity<List<BookDTO>> searchBooks(
             @Parameter(description = "Book title to search") @RequestParam(required = false) String title,
             @Parameter(description = "Book author to search") @RequestParam(required = false) String author,
-            @Parameter(description = "Book genre to search") @RequestParam(required = false) String genre) {
+            @Parameter(description = "Book genre to search") @RequestParam(required = false) String genre,
+            WebRequest webRequest) {
         try {
-            List<BookDTO> books = bookService.searchBooks(title, author, genre);
-            return new ResponseEntity<>(books, HttpStatus.OK);
+            return catalogResponses.ofCatalog(webRequest, () -> bookService.searchBooks(title, author, genre));
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    @Operation(summary = "Get book cache statistics", description = "Hit, miss and eviction counters of the book-by-ID cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved cache statistics")
+    })
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStatsDTO> getCacheStats() {
+        return new ResponseEntity<>(bookCache.stats(), HttpStatus.OK);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package org.newnop.controller;
+
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.dto.BookDTO;
+import org.newnop.replica.ReadConsistency;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Conditional GET for catalog reads. ETag and Last-Modified come from CatalogVersions and are checked before
+// anything is loaded, so a matching If-None-Match or If-Modified-Since costs neither a query nor serialization.
+// Validators are the shared catalog_stamps versions, so one handed out by any instance can match on the others.
+// Changes made on another instance reach the validators here through CatalogSync, within about two sync intervals;
+// while a change made here has not been stamped yet, responses carry no validators.
+// Shared caches such as a CDN may serve a response for shared-max-age on top of that; browsers revalidate on every use.
+@Component
+public class CatalogResponses {
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    private final CacheControl cacheControl;
+
+    @Autowired
+    public CatalogResponses(@Value("${http-cache.shared-max-age:30s}") Duration sharedMaxAge) {
+        this.cacheControl = CacheControl.maxAge(Duration.ZERO).cachePublic().sMaxAge(sharedMaxAge);
+    }
+
+    // Listings and search results, which change with any book
+    public <T> ResponseEntity<T> ofCatalog(WebRequest request, Supplier<T> body) {
+        boolean pending = catalogVersions.isPending();
+        long version = catalogVersions.catalogVersion();
+        long readAfter = catalogVersions.readAfter();
+        // A replica that has not applied the change behind this version would serve older data under its ETag
+        return respond(request, pending ? null : "c" + tag(version), version,
+                () -> ReadConsistency.readingAfter(readAfter, body));
+    }
+
+    public ResponseEntity<BookDTO> ofBook(WebRequest request, Long bookId, Supplier<BookDTO> body) {
+        boolean pending = catalogVersions.isPending(bookId);
+        long version = catalogVersions.bookVersion(bookId);
+        return respond(request, pending ? null : bookId + "-" + tag(version), version, body);
+    }
+
+    // Private helper methods
+    private static String tag(long version) {
+        return Long.toString(version, 36);
+    }
+
+    // The version is read before the data, so a concurrent change can only leave the data newer than its ETag.
+    // Without a tag the response is sent without validators.
+    private <T> ResponseEntity<T> respond(WebRequest request, String tag, long version, Supplier<T> body) {
+        // Weak, as the same version is served both compressed and uncompressed. Version 0 has no time to send.
+        if (tag != null && (version > 0
+                ? request.checkNotModified("W/\"" + tag + "\"", version)
+                : request.checkNotModified("W/\"" + tag + "\""))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        T value = body.get();
+        if (value == null) {
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).body(value);
+    }
+}
@@ -0,0 +1,98 @@
+package org.newnop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.dto.CustomerDTO;
+import org.newnop.dto.CustomerRentalDTO;
+import org.newnop.service.CustomerServiceInterface;
+import org.newnop.service.RentalServiceInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/customers")
+@CrossOrigin(origins = "*")
+@Tag(name = "Customers", description = "Customer lookup and rental history APIs")
+public class CustomerController {
+
+    @Autowired
+    private CustomerServiceInterface customerService;
+
+    @Autowired
+    private RentalServiceInterface rentalService;
+
+    @Operation(summary = "Find customer by name", description = "Look up a customer by name, ignoring case and extra spaces")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Customer found"),
+            @ApiResponse(responseCode = "404", description = "Customer not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping
+    public ResponseEntity<CustomerDTO> findCustomerByName(
+            @Parameter(description = "Customer name", required = true) @RequestParam String name) {
+        try {
+            CustomerDTO customer = customerService.findCustomerByName(name);
+            if (customer != null) {
+                return new ResponseEntity<>(customer, HttpStatus.OK);
+            }
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get customer by ID", description = "Retrieve a specific customer by its ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Customer found"),
+            @ApiResponse(responseCode = "404", description = "Customer not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<CustomerDTO> getCustomerById(
+            @Parameter(description = "Customer ID", required = true) @PathVariable Long id) {
+        try {
+            CustomerDTO customer = customerService.getCustomerById(id);
+            if (customer != null) {
+                return new ResponseEntity<>(customer, HttpStatus.OK);
+            }
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get rental history of a customer", description = "Retrieve the rentals of a customer with their books, newest first, one keyset page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved rental history"),
+            @ApiResponse(responseCode = "400", description = "Invalid page size"),
+            @ApiResponse(responseCode = "404", description = "Customer not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}/rentals")
+    public ResponseEntity<CursorPageDTO<CustomerRentalDTO>> getCustomerRentalHistory(
+            @Parameter(description = "Customer ID", required = true) @PathVariable Long id,
+            @Parameter(description = "Cursor returned as nextCursor by the previous page") @RequestParam(required = false) Long before,
+            @Parameter(description = "Number of rentals per page") @RequestParam(defaultValue = "50") int size) {
+        try {
+            CursorPageDTO<CustomerRentalDTO> page = rentalService.getCustomerRentalHistory(id, before, size);
+            if (page != null) {
+                return new ResponseEntity<>(page, HttpStatus.OK);
+            }
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.newnop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.newnop.dto.HoldDTO;
+import org.newnop.dto.PlaceHoldRequest;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.HoldStatus;
+import org.newnop.hold.HoldNotifier;
+import org.newnop.service.HoldServiceInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/holds")
+@CrossOrigin(origins = "*")
+@Tag(name = "Holds", description = "Hold queue APIs for books without a copy available")
+public class HoldController {
+
+    @Autowired
+    private HoldServiceInterface holdService;
+
+    @Autowired
+    private HoldNotifier holdNotifier;
+
+    @Operation(summary = "Place hold", description = "Join the queue for a book without a copy available; customers with a higher hold priority, which staff assign, are served first, equal ones in the order they were placed. Returned copies are set aside for the next hold, which then stays READY until readyUntil")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Hold placed, and READY at once if a copy came back meanwhile"),
+            @ApiResponse(responseCode = "400", description = "Invalid hold data"),
+            @ApiResponse(responseCode = "409", description = "A copy is available for rental, or the customer already holds the book")
+    })
+    @PostMapping
+    public ResponseEntity<HoldDTO> placeHold(@RequestBody PlaceHoldRequest request) {
+        try {
+            return new ResponseEntity<>(holdService.placeHold(request), HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get hold by ID", description = "Retrieve a hold with its status")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Hold found"),
+            @ApiResponse(responseCode = "404", description = "Hold not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<HoldDTO> getHold(
+            @Parameter(description = "Hold ID", required = true) @PathVariable Long id) {
+        try {
+            HoldDTO hold = holdService.getHold(id);
+            if (hold != null) {
+                return new ResponseEntity<>(hold, HttpStatus.OK);
+            }
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Wait for hold", description = "Server-sent events instead of polling the available books: one event named after the hold's status once it is no longer WAITING, e.g. \"ready\", then the stream ends. Reconnect after a timeout")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "404", description = "Hold not found"),
+            @ApiResponse(responseCode = "503", description = "Too many clients waiting")
+    })
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> waitForHold(
+            @Parameter(description = "Hold ID", required = true) @PathVariable Long id) {
+        SseEmitter emitter = holdNotifier.subscribe(id);
+        if (emitter == null) {
+            return new ResponseEntity<>(null, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        try {
+            // Read after subscribing, so a hold readied in between is seen here or notified, never missed
+            HoldDTO hold = holdService.getHold(id);
+            if (hold == null) {
+                emitter.complete();
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            if (hold.getStatus() != HoldStatus.WAITING) {
+                HoldNotifier.send(emitter, hold);
+            }
+            return new ResponseEntity<>(emitter, HttpStatus.OK);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            emitter.completeWithError(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Cancel hold", description = "Leave the queue; the copy set aside for a READY hold goes to the next hold")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Hold cancelled"),
+            @ApiResponse(responseCode = "404", description = "Hold not found"),
+            @ApiResponse(responseCode = "409", description = "Hold already picked up, cancelled or expired")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<HoldDTO> cancelHold(
+            @Parameter(description = "Hold ID", required = true) @PathVariable Long id) {
+        try {
+            HoldDTO hold = holdService.cancelHold(id);
+            if (hold != null) {
+                holdNotifier.close(id, hold);
+                return new ResponseEntity<>(hold, HttpStatus.OK);
+            }
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Pick up hold", description = "Rent the copy set aside for a READY hold")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Rental created"),
+            @ApiResponse(responseCode = "404", description = "Hold not found"),
+            @ApiResponse(responseCode = "409", description = "Hold is not READY")
+    })
+    @PostMapping("/{id}/checkout")
+    public ResponseEntity<RentalDTO> checkoutHold(
+            @Parameter(description = "Hold ID", required = true) @PathVariable Long id) {
+        try {
+            RentalDTO rental = holdService.checkoutHold(id);
+            if (rental != null) {
+                return new ResponseEntity<>(rental, HttpStatus.CREATED);
+            }
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.newnop.controller;
+
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+// The controllers answer failures with an error status instead of rethrowing. Handing the exception to the
+// request's observation keeps its type in the exception tag of http.server.requests rather than "none".
+final class ObservedErrors {
+
+    private ObservedErrors() {
+    }
+
+    static void record(Exception e) {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            ServerHttpObservationFilter.findObservationContext(attributes.getRequest())
+                    .ifPresent(context -> context.setError(e));
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package org.newnop.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.CursorPageDTO;
 import org.newnop.dto.RentalDTO;
+import org.newnop.idempotency.IdempotencyKeyReusedException;
+import org.newnop.idempotency.IdempotencyKeyStore;
 import org.newnop.service.RentalServiceInterface;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 
 @RestController
@@ -23,17 +28,32 @@ public class RentalController {
     @Autowired
     private RentalServiceInterface rentalService;
 
-    @Operation(summary = "Create new rental", description = "Create a new book rental")
+    @Autowired
+    private IdempotencyKeyStore idempotencyKeyStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Operation(summary = "Create new rental", description = "Create a new book rental; returnDate is the planned return date and becomes the due date (default: rental date plus the loan period). Retries that send the same Idempotency-Key get the rental of the first attempt")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "Rental created successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid rental data")
+            @ApiResponse(responseCode = "201", description = "Rental created successfully, or created earlier with the same Idempotency-Key"),
+            @ApiResponse(responseCode = "400", description = "Invalid rental data"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key already used with a different request")
     })
     @PostMapping
-    public ResponseEntity<RentalDTO> createRental(@RequestBody CreateRentalRequest request) {
+    public ResponseEntity<RentalDTO> createRental(
+            @Parameter(description = "Client-chosen key, unique per rental, that makes retries of this request safe") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody CreateRentalRequest request) {
         try {
-            RentalDTO createdRental = rentalService.createRental(request);
+            RentalDTO createdRental = idempotencyKey != null
+                    ? idempotencyKeyStore.createRental(idempotencyKey, request, rentalService::createRental)
+                    : rentalService.createRental(request);
             return new ResponseEntity<>(createdRental, HttpStatus.CREATED);
+        } catch (IdempotencyKeyReusedException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.UNPROCESSABLE_ENTITY);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         }
     }
@@ -49,10 +69,66 @@ public class RentalController {
             List<RentalDTO> rentals = rentalService.getAllRentals();
             return new ResponseEntity<>(rentals, HttpStatus.OK);
         } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get rentals page", description = "Retrieve rentals ordered by ID, one keyset page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved rentals page"),
+            @ApiResponse(responseCode = "400", description = "Invalid page size"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDTO<RentalDTO>> getRentalsPage(
+            @Parameter(description = "Cursor returned as nextCursor by the previous page") @RequestParam(required = false) Long after,
+            @Parameter(description = "Number of rentals per page") @RequestParam(defaultValue = "50") int size) {
+        try {
+            CursorPageDTO<RentalDTO> page = rentalService.getRentalsPage(after, size);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get overdue rentals", description = "Retrieve open rentals past their due date with their late fees, longest overdue first, one keyset page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved overdue rentals"),
+            @ApiResponse(responseCode = "400", description = "Invalid page size or cursor"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/overdue")
+    public ResponseEntity<CursorPageDTO<RentalDTO>> getOverdueRentals(
+            @Parameter(description = "Cursor returned as nextCursor by the previous page") @RequestParam(required = false) Long after,
+            @Parameter(description = "Number of rentals per page") @RequestParam(defaultValue = "50") int size) {
+        try {
+            CursorPageDTO<RentalDTO> page = rentalService.getOverdueRentalsPage(after, size);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    @Operation(summary = "Stream all rentals", description = "Stream every rental as newline-delimited JSON without buffering the table")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rentals streamed successfully")
+    })
+    @GetMapping(value = "/stream", produces = NdjsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllRentals() {
+        StreamingResponseBody body = outputStream ->
+                rentalService.streamAllRentals(new NdjsonWriter<>(objectMapper, outputStream));
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
     @Operation(summary = "Get rental by ID", description = "Retrieve a specific rental by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Rental found"),
@@ -69,6 +145,7 @@ public class RentalController {
             }
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
@@ -90,6 +167,7 @@ public class RentalController {
             }
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         }
     }
@@ -98,6 +176,7 @@ public class RentalController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Books returned successfully"),
             @ApiResponse(responseCode = "404", description = "Rental not found"),
+            @ApiResponse(responseCode = "409", description = "Rental was returned by another request meanwhile; retry to read it"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PutMapping("/{id}/return")
@@ -109,8 +188,36 @@ public class RentalController {
                 return new ResponseEntity<>(rental, HttpStatus.OK);
             }
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Return many rentals", description = "Return the books of several rentals in one transaction, e.g. an end-of-day drop box; unknown rental IDs are skipped")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rentals returned successfully"),
+            @ApiResponse(responseCode = "400", description = "No rental IDs or too many at once"),
+            @ApiResponse(responseCode = "409", description = "A rental was returned by another request meanwhile; nothing was returned"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/return")
+    public ResponseEntity<List<RentalDTO>> returnRentals(@RequestBody List<Long> rentalIds) {
+        try {
+            List<RentalDTO> rentals = rentalService.returnRentals(rentalIds);
+            return new ResponseEntity<>(rentals, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
         } catch (Exception e) {
+            ObservedErrors.record(e);
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-}
\ No newline at end of file
+}
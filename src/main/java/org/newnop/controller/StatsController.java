@@ -0,0 +1,134 @@
+package org.newnop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.newnop.dto.BookRentalCountDTO;
+import org.newnop.dto.DailyRentalCountDTO;
+import org.newnop.dto.RentalCountDTO;
+import org.newnop.dto.RentalStatsSummaryDTO;
+import org.newnop.service.StatsServiceInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stats")
+@CrossOrigin(origins = "*")
+@Tag(name = "Statistics", description = "Rental statistics served from incrementally updated counters")
+public class StatsController {
+
+    @Autowired
+    private StatsServiceInterface statsService;
+
+    @Operation(summary = "Get most rented books", description = "Retrieve the books rented most often, most rented first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved ranking"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/top-books")
+    public ResponseEntity<List<BookRentalCountDTO>> getTopBooks(
+            @Parameter(description = "Number of books to return") @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return new ResponseEntity<>(statsService.getTopBooks(limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get rentals per genre", description = "Retrieve genres by number of rented books, most rented first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved ranking"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/genres")
+    public ResponseEntity<List<RentalCountDTO>> getTopGenres(
+            @Parameter(description = "Number of genres to return") @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return new ResponseEntity<>(statsService.getTopGenres(limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get rentals per author", description = "Retrieve authors by number of rented books, most rented first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved ranking"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/authors")
+    public ResponseEntity<List<RentalCountDTO>> getTopAuthors(
+            @Parameter(description = "Number of authors to return") @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return new ResponseEntity<>(statsService.getTopAuthors(limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get rentals per day", description = "Retrieve the number of rentals started on each day of a date range; days without rentals are left out")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved daily counts"),
+            @ApiResponse(responseCode = "400", description = "Invalid date range"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/daily")
+    public ResponseEntity<List<DailyRentalCountDTO>> getRentalsPerDay(
+            @Parameter(description = "First day (yyyy-MM-dd)", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day (yyyy-MM-dd)", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return new ResponseEntity<>(statsService.getRentalsPerDay(from, to), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Get rental summary", description = "Retrieve total rentals, open rentals and books currently out")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved summary")
+    })
+    @GetMapping("/summary")
+    public ResponseEntity<RentalStatsSummaryDTO> getSummary() {
+        return new ResponseEntity<>(statsService.getSummary(), HttpStatus.OK);
+    }
+
+    @Operation(summary = "Reconcile statistics", description = "Rebuild the counters from the tables now and report how many had drifted")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Counters reconciled"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/reconcile")
+    public ResponseEntity<Long> reconcile() {
+        try {
+            return new ResponseEntity<>(statsService.reconcile(), HttpStatus.OK);
+        } catch (Exception e) {
+            ObservedErrors.record(e);
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.newnop.customer;
+
+import org.newnop.entity.Customers;
+import org.newnop.entity.Rentals;
+import org.newnop.repository.CustomersRepository;
+import org.newnop.repository.RentalsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Maps the free-text customer names on rentals to customer records, so history lookups can use an indexed
+// customer ID instead of a LIKE scan over user details. Names that differ only in case or spacing are the
+// same customer.
+@Component
+public class CustomerDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerDirectory.class);
+
+    @Autowired
+    private CustomersRepository customersRepository;
+
+    @Autowired
+    private RentalsRepository rentalsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${customers.link-chunk-size:500}")
+    private int chunkSize;
+
+    public static String keyOf(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // Returns the customer with this name, creating it if needed; null for a blank name
+    public Customers resolve(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        String nameKey = keyOf(name);
+        return customersRepository.findByNameKey(nameKey).orElseGet(() -> {
+            customersRepository.insertIfAbsent(nameKey, name.trim());
+            return customersRepository.findLockedByNameKey(nameKey).orElseThrow();
+        });
+    }
+
+    public Customers find(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        return customersRepository.findByNameKey(keyOf(name)).orElse(null);
+    }
+
+    // Links rentals written before customers existed, one chunk per transaction; returns how many were linked
+    @EventListener(ApplicationReadyEvent.class)
+    public long linkUnassignedRentals() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicLong linked = new AtomicLong();
+        long afterRentalId = 0;
+        while (true) {
+            long cursor = afterRentalId;
+            List<Rentals> chunk = transactionTemplate.execute(status -> {
+                List<Rentals> rentals = rentalsRepository.findUnassignedAfter(cursor, Limit.of(chunkSize));
+                for (Rentals rental : rentals) {
+                    rental.setCustomer(resolve(rental.getUserDetails()));
+                    linked.incrementAndGet();
+                }
+                return rentals;
+            });
+
+            if (chunk.size() < chunkSize) {
+                if (linked.get() > 0) {
+                    log.info("Linked {} existing rentals to customers", linked.get());
+                }
+                return linked.get();
+            }
+            afterRentalId = chunk.get(chunk.size() - 1).getRentalId();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AvailabilityConsistencyDTO {
+    private boolean consistent;
+    private long indexedAvailable;
+    private long tableAvailable;
+    private long mismatchCount;
+    // Only the first mismatching book IDs are listed
+    private List<Long> mismatchedBookIds;
+}
@@ -0,0 +1,22 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookDTO {
+    private Long bookId;
+    private String title;
+    private String author;
+    private String genre;
+    private Boolean available;
+    private Integer totalCopies;
+    private Integer availableCopies;
+
+    public BookDTO(Long bookId, String title, String author, String genre, Boolean available) {
+        this(bookId, title, author, genre, available, null, null);
+    }
+}
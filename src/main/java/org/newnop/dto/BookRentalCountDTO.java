@@ -0,0 +1,15 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookRentalCountDTO {
+    private Long bookId;
+    private String title;
+    private String author;
+    private long rentals;
+}
@@ -0,0 +1,19 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookRentalHistoryDTO {
+    private Long rentalId;
+    private Long customerId;
+    private String userDetails;
+    private LocalDate rentalDate;
+    private LocalDate dueDate;
+    private LocalDate returnDate;
+}
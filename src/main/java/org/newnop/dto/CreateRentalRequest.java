@@ -0,0 +1,20 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CreateRentalRequest {
+    private String userDetails;
+    private LocalDate rentalDate;
+    private LocalDate returnDate;
+    private List<Long> bookIds;
+    // Optional; when set, the rental is recorded for this customer and userDetails defaults to their name
+    private Long customerId;
+}
@@ -0,0 +1,16 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> content;
+    // Pass back as "after" (or "before" on newest-first lists) to fetch the following page; null on the last page
+    private Long nextCursor;
+}
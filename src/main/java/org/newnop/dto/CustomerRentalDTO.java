@@ -0,0 +1,27 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerRentalDTO {
+    private Long rentalId;
+    private LocalDate rentalDate;
+    private LocalDate dueDate;
+    private LocalDate returnDate;
+    private BigDecimal lateFee;
+    private List<RentalBookDTO> books;
+
+    // Query projection; the books are filled in afterwards
+    public CustomerRentalDTO(Long rentalId, LocalDate rentalDate, LocalDate dueDate, LocalDate returnDate, BigDecimal lateFee) {
+        this(rentalId, rentalDate, dueDate, returnDate, lateFee, new ArrayList<>());
+    }
+}
@@ -0,0 +1,24 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.newnop.entity.HoldStatus;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HoldDTO {
+    private Long holdId;
+    private Long bookId;
+    private Long customerId;
+    private Integer priority;
+    private HoldStatus status;
+    private LocalDateTime createdAt;
+    // Set while READY: the copy goes to the next hold, or back on the shelf, after this time
+    private LocalDateTime readyUntil;
+    // The rental that picked the copy up, once FULFILLED
+    private Long rentalId;
+}
@@ -0,0 +1,17 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResultDTO {
+    private long imported;
+    private long failed;
+    // Only the first errors are reported; failed holds the full count
+    private List<ImportErrorDTO> errors;
+}
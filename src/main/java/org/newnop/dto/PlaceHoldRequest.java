@@ -0,0 +1,15 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlaceHoldRequest {
+    private Long bookId;
+    // The customer is given by ID, or looked up, or created, by name as for rentals
+    private Long customerId;
+    private String userDetails;
+}
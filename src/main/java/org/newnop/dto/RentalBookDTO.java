@@ -0,0 +1,14 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RentalBookDTO {
+    private Long bookId;
+    private String title;
+    private String author;
+}
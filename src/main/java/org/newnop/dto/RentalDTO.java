@@ -0,0 +1,30 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RentalDTO {
+    private Long rentalId;
+    private String userDetails;
+    private LocalDate rentalDate;
+    private LocalDate returnDate;
+    private List<BookDTO> books;
+    private LocalDate dueDate;
+    private BigDecimal lateFee;
+    private Long customerId;
+
+    // Query projection; the books are filled in afterwards
+    public RentalDTO(Long rentalId, String userDetails, LocalDate rentalDate, LocalDate returnDate, LocalDate dueDate,
+                     BigDecimal lateFee, Long customerId) {
+        this(rentalId, userDetails, rentalDate, returnDate, new ArrayList<>(), dueDate, lateFee, customerId);
+    }
+}
@@ -0,0 +1,14 @@
+package org.newnop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RentalStatsSummaryDTO {
+    private long totalRentals;
+    private long openRentals;
+    private long booksOut;
+}
@@ -5,11 +5,18 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Check;
 
 import java.util.List;
 
 @Entity
-@Table(name = "books")
+// idx_books_available lists available books in ID order when the availability index is not built yet
+@Table(name = "books", indexes = @Index(name = "idx_books_available", columnList = "available, book_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Check(name = "ck_books_copies", constraints = "available_copies >= 0 AND available_copies <= total_copies")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -22,8 +29,34 @@ public class Books {
     private String title;
     private String author;
     private String genre;
+    // A row is a title; available is kept equal to availableCopies > 0. All three change only through the atomic
+    // updates in BooksRepository, so saving an edited entity never writes back stale counts.
+    @Column(updatable = false)
     private Boolean available;
 
+    @Column(nullable = false, updatable = false)
+    private Integer totalCopies;
+
+    @Column(nullable = false, updatable = false)
+    private Integer availableCopies;
+
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL)
     private List<RentalItems> rentalItems;
+
+    // A title with a single copy, as every book was before copies were counted
+    public Books(Long bookId, String title, String author, String genre, Boolean available, List<RentalItems> rentalItems) {
+        this(bookId, title, author, genre, available, null, null, rentalItems);
+    }
+
+    // Books created without copy counts are single copies, on the shelf unless marked unavailable
+    @PrePersist
+    public void defaultCopies() {
+        if (totalCopies == null) {
+            totalCopies = 1;
+        }
+        if (availableCopies == null) {
+            availableCopies = Boolean.FALSE.equals(available) ? 0 : totalCopies;
+        }
+        available = availableCopies > 0;
+    }
 }
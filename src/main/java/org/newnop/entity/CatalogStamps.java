@@ -0,0 +1,23 @@
+package org.newnop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+// The catalog version at which each book last changed on any instance, see CatalogSync.
+// The row with book_id 0 holds the latest version handed out.
+@Table(name = "catalog_stamps", indexes = {
+        @Index(name = "idx_catalog_stamps_version", columnList = "version, book_id")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogStamps {
+    @Id
+    private Long bookId;
+
+    @Column(nullable = false)
+    private Long version;
+}
@@ -0,0 +1,28 @@
+package org.newnop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+// nameKey is the normalized name; it is unique so that every spelling of a name maps to one customer
+@Table(name = "customers", uniqueConstraints = @UniqueConstraint(name = "uk_customers_name_key", columnNames = "name_key"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Customers {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long customerId;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private String nameKey;
+
+    // Priority of this customer's holds, higher served first; staff set it, customers cannot choose it
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 0")
+    private int holdPriority;
+}
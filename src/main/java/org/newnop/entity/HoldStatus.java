@@ -0,0 +1,10 @@
+package org.newnop.entity;
+
+// WAITING holds queue for a copy; a READY hold has one set aside until ready_until. The rest are final.
+public enum HoldStatus {
+    WAITING,
+    READY,
+    FULFILLED,
+    CANCELLED,
+    EXPIRED
+}
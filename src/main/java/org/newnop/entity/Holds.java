@@ -0,0 +1,44 @@
+package org.newnop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+// A customer's place in the queue for a title without a copy on the shelf. Holds are served in dispatch order:
+// higher priority first, then first come, first served. idx_holds_dispatch finds a title's next waiting hold in
+// that order, idx_holds_ready_until finds the ready holds that ran out
+@Table(name = "holds", indexes = {
+        @Index(name = "idx_holds_dispatch", columnList = "status, book_id, priority DESC, hold_id"),
+        @Index(name = "idx_holds_ready_until", columnList = "status, ready_until")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Holds {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long holdId;
+
+    @Column(nullable = false)
+    private Long bookId;
+
+    @Column(nullable = false)
+    private Long customerId;
+
+    private int priority;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private HoldStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime readyUntil;
+
+    private Long rentalId;
+}
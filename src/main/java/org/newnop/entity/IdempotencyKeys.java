@@ -0,0 +1,37 @@
+package org.newnop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+// A client's Idempotency-Key with a hash of the request it came with and the response it got, kept until expires_at
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires", columnList = "expires_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyKeys {
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+
+    @Column(nullable = false, columnDefinition = "CHAR(64)")
+    private String requestHash;
+
+    @Column(nullable = false)
+    private Long rentalId;
+
+    @Column(nullable = false, columnDefinition = "LONGTEXT")
+    private String response;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
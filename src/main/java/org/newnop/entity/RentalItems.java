@@ -6,7 +6,12 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "rental_items")
+// idx_rental_items_book serves a book's rental history newest first without touching the rentals it does not
+// return; idx_rental_items_rental finds the books of a page of rentals without reading the item rows
+@Table(name = "rental_items", indexes = {
+        @Index(name = "idx_rental_items_book", columnList = "book_id, rental_id"),
+        @Index(name = "idx_rental_items_rental", columnList = "rental_id, book_id")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -15,7 +20,7 @@ public class RentalItems {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long rentalItemId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "rental_id")
     private Rentals rental;
 
@@ -5,11 +5,18 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "rentals")
+// Open rentals have no return date; idx_rentals_open_due serves the overdue scan (open and due before a date)
+// in due date order, with fee_assessed_on to skip rentals the sweep already assessed, and idx_rentals_customer
+// serves a customer's rental history newest first
+@Table(name = "rentals", indexes = {
+        @Index(name = "idx_rentals_open_due", columnList = "return_date, due_date, rental_id, fee_assessed_on"),
+        @Index(name = "idx_rentals_customer", columnList = "customer_id, rental_id")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -19,9 +26,19 @@ public class Rentals {
     private Long rentalId;
 
     private String userDetails;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id")
+    private Customers customer;
+
     private LocalDate rentalDate;
+    private LocalDate dueDate;
     private LocalDate returnDate;
 
+    @Column(precision = 10, scale = 2)
+    private BigDecimal lateFee;
+    private LocalDate feeAssessedOn;
+
     @OneToMany(mappedBy = "rental", cascade = CascadeType.ALL)
     private List<RentalItems> rentalItems;
 }
\ No newline at end of file
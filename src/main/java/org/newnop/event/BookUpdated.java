@@ -0,0 +1,5 @@
+package org.newnop.event;
+
+public record BookUpdated(Long bookId, String title, String author, String genre, Boolean available)
+        implements DomainEvent {
+}
@@ -0,0 +1,8 @@
+package org.newnop.event;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// One event per return call, however many rentals it closed
+public record BooksReturned(List<Long> rentalIds, List<Long> bookIds, LocalDate returnDate) implements DomainEvent {
+}
@@ -0,0 +1,6 @@
+package org.newnop.event;
+
+// Events written to the outbox and delivered to @EventListener methods after the transaction commits.
+// Delivery is at least once, so listeners must tolerate seeing an event again.
+public sealed interface DomainEvent permits RentalCreated, BooksReturned, BookUpdated, HoldReady {
+}
@@ -0,0 +1,7 @@
+package org.newnop.event;
+
+import java.time.LocalDateTime;
+
+// A returned copy was set aside for a hold; the customer can pick it up until readyUntil
+public record HoldReady(Long holdId, Long bookId, Long customerId, LocalDateTime readyUntil) implements DomainEvent {
+}
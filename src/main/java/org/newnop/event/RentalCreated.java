@@ -0,0 +1,8 @@
+package org.newnop.event;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record RentalCreated(Long rentalId, Long customerId, List<Long> bookIds, LocalDate rentalDate,
+                            LocalDate dueDate) implements DomainEvent {
+}
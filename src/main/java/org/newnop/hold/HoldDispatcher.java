@@ -0,0 +1,149 @@
+package org.newnop.hold;
+
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.entity.HoldStatus;
+import org.newnop.entity.Holds;
+import org.newnop.event.HoldReady;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.replica.ReadConsistency;
+import org.newnop.repository.BooksRepository;
+import org.newnop.repository.HoldsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+// Hands copies to the holds waiting for them, in the transaction that freed the copies. The waiting holds are read
+// from the holds table, so a copy returned on one instance goes to a hold placed on any other. They are locked as
+// they are read, skipping holds that another transaction has locked instead of waiting for it, and a copy is
+// taken with the same guarded decrement as a checkout. So every copy ends up either on the shelf or set aside for
+// exactly one hold, whatever runs concurrently. The waiting holds of all titles given are read in one query.
+// Readied holds are announced with a HoldReady event, which HoldNotifier passes on to the waiting clients.
+// This replaces the per-instance HoldQueue that the V6 migration still names; see V13.
+@Component
+public class HoldDispatcher {
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private HoldsRepository holdsRepository;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private BookAvailabilityIndex bookAvailabilityIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${holds.ready-for:3d}")
+    private Duration readyFor;
+
+    @Value("${holds.expiry-chunk-size:500}")
+    private int expiryChunkSize;
+
+    // Readies waiting holds for the copies of these titles that are on the shelf; returns the titles that gave
+    // up copies. The caller invalidates the caches and updates the availability index of those titles.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<Long> dispatch(Collection<Long> bookIds) {
+        Set<Long> dispatched = new TreeSet<>();
+        if (bookIds.isEmpty()) {
+            return dispatched;
+        }
+        LocalDateTime readyUntil = LocalDateTime.now().plus(readyFor);
+        // Ascending ID order, like checkouts, so the row locks cannot deadlock
+        Map<Long, List<Holds>> waiting = holdsRepository.findWaitingForUpdate(new TreeSet<>(bookIds)).stream()
+                .collect(Collectors.groupingBy(Holds::getBookId, TreeMap::new, Collectors.toList()));
+        waiting.forEach((bookId, holds) -> {
+            Iterator<Holds> next = holds.iterator();
+            while (next.hasNext() && booksRepository.takeCopies(List.of(bookId)) == 1) {
+                Holds hold = next.next();
+                // The row is locked and was read as waiting, so this cannot miss
+                holdsRepository.markReady(hold.getHoldId(), readyUntil);
+                outboxPublisher.publish(new HoldReady(hold.getHoldId(), bookId, hold.getCustomerId(), readyUntil));
+                dispatched.add(bookId);
+            }
+        });
+        return dispatched;
+    }
+
+    // Dispatches one title in a transaction of its own, e.g. after a hold was placed: a return that committed
+    // meanwhile did not see the new hold
+    public void dispatchShelfCopies(Long bookId) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (!dispatch(List.of(bookId)).isEmpty()) {
+                refresh(bookId);
+            }
+        });
+    }
+
+    // Puts the copy set aside for a hold that was cancelled or ran out back on the shelf, or passes it on
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long bookId) {
+        booksRepository.putBackCopy(bookId);
+        dispatch(List.of(bookId));
+        refresh(bookId);
+    }
+
+    @Scheduled(fixedDelayString = "${holds.expiry-interval-ms:60000}")
+    public void expireReadyHolds() {
+        expireReadyHolds(LocalDateTime.now());
+    }
+
+    // Expires ready holds that were not picked up by now, one per transaction; returns how many
+    public int expireReadyHolds(LocalDateTime now) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int expired = 0;
+        List<Holds> due;
+        do {
+            // From the primary: a lagging replica would keep listing holds that were already expired
+            due = ReadConsistency.onPrimary(() -> holdsRepository.findReadyUntilBefore(now, Limit.of(expiryChunkSize)));
+            for (Holds hold : due) {
+                Boolean changed = transactionTemplate.execute(status -> {
+                    if (holdsRepository.changeStatus(hold.getHoldId(), HoldStatus.READY, HoldStatus.EXPIRED) == 0) {
+                        return false;
+                    }
+                    release(hold.getBookId());
+                    return true;
+                });
+                if (Boolean.TRUE.equals(changed)) {
+                    expired++;
+                }
+            }
+        } while (due.size() == expiryChunkSize);
+        return expired;
+    }
+
+    // Private helper methods
+    private void refresh(Long bookId) {
+        bookCache.invalidate(bookId);
+        catalogVersions.changed(bookId);
+        bookAvailabilityIndex.refresh(bookId);
+    }
+}
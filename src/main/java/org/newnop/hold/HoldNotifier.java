@@ -0,0 +1,167 @@
+package org.newnop.hold;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.newnop.dto.HoldDTO;
+import org.newnop.entity.HoldStatus;
+import org.newnop.entity.Holds;
+import org.newnop.event.HoldReady;
+import org.newnop.mapper.HoldMapper;
+import org.newnop.replica.ReadConsistency;
+import org.newnop.repository.HoldsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Server-sent events for clients waiting on a hold, so they no longer poll the available books. A waiting
+// client holds an async request, which takes neither a request thread nor a database connection; it gets
+// one event named after the hold's status once the hold stops waiting, e.g. "ready", and the stream then ends.
+// Subscribers are kept per instance, but holds change on every instance and the outbox delivers each HoldReady
+// to only one of them. So besides passing on the HoldReady events it receives, each instance looks up the holds
+// its own clients wait on every poll interval, one query per chunk of holds. A client that reconnects, as
+// EventSource does after the timeout, is told at once if its hold changed meanwhile.
+@Component
+public class HoldNotifier implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldNotifier.class);
+
+    @Autowired
+    private HoldsRepository holdsRepository;
+
+    @Autowired
+    private HoldMapper holdMapper;
+
+    @Value("${holds.events-poll-chunk-size:500}")
+    private int pollChunkSize;
+
+    @Value("${holds.events-timeout:10m}")
+    private Duration timeout;
+
+    @Value("${holds.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    private final Map<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    // Returns null when the subscriber limit is reached
+    public SseEmitter subscribe(Long holdId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        // Completion also follows a timeout or an error, so the subscriber is let go only once
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable unsubscribe = () -> {
+            if (released.compareAndSet(false, true)) {
+                subscriberCount.decrementAndGet();
+                subscribers.computeIfPresent(holdId, (id, emitters) -> {
+                    emitters.remove(emitter);
+                    return emitters.isEmpty() ? null : emitters;
+                });
+            }
+        };
+        subscribers.compute(holdId, (id, emitters) -> {
+            Set<SseEmitter> target = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+            target.add(emitter);
+            return target;
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    @EventListener
+    public void onHoldReady(HoldReady event) {
+        Set<SseEmitter> emitters = subscribers.remove(event.holdId());
+        if (emitters != null) {
+            HoldDTO hold = new HoldDTO();
+            hold.setHoldId(event.holdId());
+            hold.setBookId(event.bookId());
+            hold.setCustomerId(event.customerId());
+            hold.setStatus(HoldStatus.READY);
+            hold.setReadyUntil(event.readyUntil());
+            emitters.forEach(emitter -> send(emitter, hold));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${holds.events-poll-interval-ms:1000}")
+    public void poll() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            notifyChanged();
+        } catch (DataAccessException e) {
+            log.warn("Hold events poll failed, retrying in the next run: {}", e.toString());
+        }
+    }
+
+    // Notifies the clients of holds that are no longer waiting, wherever they changed; returns how many holds
+    public int notifyChanged() {
+        List<Long> holdIds = new ArrayList<>(subscribers.keySet());
+        int notified = 0;
+        for (int from = 0; from < holdIds.size(); from += pollChunkSize) {
+            List<Long> chunk = holdIds.subList(from, Math.min(from + pollChunkSize, holdIds.size()));
+            // From the primary, like getHold, so a lagging replica does not hold the events back
+            List<Holds> changed = ReadConsistency.onPrimary(() ->
+                    holdsRepository.findByHoldIdInAndStatusNot(chunk, HoldStatus.WAITING));
+            for (Holds hold : changed) {
+                if (close(hold.getHoldId(), holdMapper.toDTO(hold))) {
+                    notified++;
+                }
+            }
+        }
+        return notified;
+    }
+
+    // Ends the streams of a hold that will never become ready, e.g. a cancelled one; false if none were open
+    public boolean close(Long holdId, HoldDTO hold) {
+        Set<SseEmitter> emitters = subscribers.remove(holdId);
+        if (emitters == null) {
+            return false;
+        }
+        emitters.forEach(emitter -> send(emitter, hold));
+        return true;
+    }
+
+    // Sends the hold's status as the stream's only event and ends the stream
+    public static void send(SseEmitter emitter, HoldDTO hold) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(hold.getStatus().name().toLowerCase(Locale.ROOT))
+                    .id(hold.getHoldId().toString())
+                    .data(hold));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, or the stream was already completed by a concurrent notification
+            emitter.completeWithError(e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("holds.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Clients waiting for a hold to become ready")
+                .register(registry);
+    }
+}
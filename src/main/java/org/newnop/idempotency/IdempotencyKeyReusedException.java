@@ -0,0 +1,9 @@
+package org.newnop.idempotency;
+
+// An Idempotency-Key sent again with a different request body
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Idempotency key " + idempotencyKey + " was already used with a different request");
+    }
+}
@@ -0,0 +1,182 @@
+package org.newnop.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.IdempotencyKeys;
+import org.newnop.replica.ReadConsistency;
+import org.newnop.repository.IdempotencyKeysRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.function.Function;
+
+// Makes rental creation safe to retry. The first request with an Idempotency-Key creates the rental and, in the
+// same transaction, stores the key with a hash of the request and the RentalDTO it was answered with. A retry
+// with the key gets that RentalDTO back without touching the rental tables; the same key with another request
+// is refused. Keys are cached in a bounded Caffeine map in front of the idempotency_keys table, so a replay is
+// a lock-free hash lookup, or one primary key read after a restart or eviction. Keys expire after ttl.
+@Component
+public class IdempotencyKeyStore {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    // Stored responses and request hashes use a mapper of their own, like the outbox payloads
+    private static final ObjectMapper MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    private final IdempotencyKeysRepository idempotencyKeysRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Cache<String, StoredRental> cache;
+
+    @Autowired
+    public IdempotencyKeyStore(IdempotencyKeysRepository idempotencyKeysRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${idempotency.maximum-size:100000}") long maximumSize,
+                               @Value("${idempotency.ttl:24h}") Duration ttl) {
+        this.idempotencyKeysRepository = idempotencyKeysRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        // An entry lives until its row expires, also when it was loaded from the table later on
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, StoredRental>() {
+                    @Override
+                    public long expireAfterCreate(String key, StoredRental stored, long currentTime) {
+                        return Math.max(Duration.between(LocalDateTime.now(), stored.expiresAt()).toNanos(), 0);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, StoredRental stored, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, stored, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, StoredRental stored, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // Returns the rental an earlier request with this key and body created, or creates it with createRental
+    // and records the key in the same transaction
+    public RentalDTO createRental(String idempotencyKey, CreateRentalRequest request,
+                                  Function<CreateRentalRequest, RentalDTO> createRental) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must have 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = hash(request);
+        RentalDTO replayed = find(idempotencyKey, requestHash);
+        if (replayed != null) {
+            return replayed;
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                RentalDTO created = createRental.apply(request);
+                record(idempotencyKey, requestHash, created);
+                return created;
+            });
+        } catch (RuntimeException e) {
+            // A concurrent request with the same key got the books first; its rental answers this request as well
+            RentalDTO winner = find(idempotencyKey, requestHash);
+            if (winner == null) {
+                throw e;
+            }
+            return winner;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        purgeExpired(LocalDateTime.now());
+    }
+
+    // Returns how many expired keys were deleted
+    public int purgeExpired(LocalDateTime now) {
+        return transactionTemplate.execute(status -> idempotencyKeysRepository.deleteExpired(now));
+    }
+
+    // Private helper methods
+    private RentalDTO find(String idempotencyKey, String requestHash) {
+        StoredRental stored = cache.getIfPresent(idempotencyKey);
+        if (stored == null) {
+            // A replica might not have the key yet, and a miss there would rent the books a second time
+            LocalDateTime now = LocalDateTime.now();
+            stored = ReadConsistency.onPrimary(() -> idempotencyKeysRepository.findById(idempotencyKey))
+                    .filter(row -> row.getExpiresAt().isAfter(now))
+                    .map(row -> new StoredRental(row.getRequestHash(), read(row.getResponse()), row.getExpiresAt()))
+                    .orElse(null);
+            if (stored == null) {
+                return null;
+            }
+            cache.put(idempotencyKey, stored);
+        }
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+        return stored.rental();
+    }
+
+    private void record(String idempotencyKey, String requestHash, RentalDTO rental) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyKeys row = new IdempotencyKeys(idempotencyKey, requestHash, rental.getRentalId(), write(rental),
+                now, now.plus(ttl));
+        idempotencyKeysRepository.insert(row);
+
+        StoredRental stored = new StoredRental(requestHash, rental, row.getExpiresAt());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.put(idempotencyKey, stored);
+            }
+        });
+    }
+
+    private static String hash(CreateRentalRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(MAPPER.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not hash rental request", e);
+        }
+    }
+
+    private static String write(RentalDTO rental) {
+        try {
+            return MAPPER.writeValueAsString(rental);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize rental " + rental.getRentalId(), e);
+        }
+    }
+
+    private static RentalDTO read(String response) {
+        try {
+            return MAPPER.readValue(response, RentalDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored rental response", e);
+        }
+    }
+
+    private record StoredRental(String requestHash, RentalDTO rental, LocalDateTime expiresAt) {
+    }
+}
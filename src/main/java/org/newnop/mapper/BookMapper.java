@@ -1,4 +1,34 @@
 package org.newnop.mapper;
 
-public class BookMapper {
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.NullValuePropertyMappingStrategy;
+import org.mapstruct.ReportingPolicy;
+import org.newnop.dto.BookDTO;
+import org.newnop.entity.Books;
+
+// Implemented by MapStruct at compile time as plain getter and setter calls, so mapping needs no reflection.
+// Reads query straight into BookDTO; these mappings are for the write paths that already hold an entity.
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface BookMapper {
+
+    BookDTO toDTO(Books book);
+
+    // New books are available unless the request says otherwise; copy counts left null are filled in on persist
+    @Mapping(target = "bookId", ignore = true)
+    @Mapping(target = "available", defaultValue = "true")
+    @Mapping(target = "rentalItems", ignore = true)
+    Books toEntity(BookDTO bookDTO);
+
+    // Partial update: fields left null in the DTO keep their current value. Availability follows the copy counts,
+    // which change by atomic updates only, see BookServiceImpl.updateBook.
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "bookId", ignore = true)
+    @Mapping(target = "available", ignore = true)
+    @Mapping(target = "totalCopies", ignore = true)
+    @Mapping(target = "availableCopies", ignore = true)
+    @Mapping(target = "rentalItems", ignore = true)
+    void updateEntity(BookDTO bookDTO, @MappingTarget Books book);
 }
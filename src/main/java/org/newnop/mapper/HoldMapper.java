@@ -0,0 +1,12 @@
+package org.newnop.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import org.newnop.dto.HoldDTO;
+import org.newnop.entity.Holds;
+
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface HoldMapper {
+
+    HoldDTO toDTO(Holds hold);
+}
@@ -1,4 +1,25 @@
 package org.newnop.mapper;
 
-public class RentalMapper {
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+import org.newnop.dto.BookDTO;
+import org.newnop.dto.RentalBookDTO;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Rentals;
+import org.newnop.repository.RentalBookRow;
+
+// Implemented by MapStruct at compile time as plain getter and setter calls, so mapping needs no reflection
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface RentalMapper {
+
+    // The books are added separately, with one query for a whole list of rentals. Reading the customer ID
+    // from the lazy customer proxy does not load the customer.
+    @Mapping(target = "books", ignore = true)
+    @Mapping(target = "customerId", source = "customer.customerId")
+    RentalDTO toDTO(Rentals rental);
+
+    BookDTO toBookDTO(RentalBookRow row);
+
+    RentalBookDTO toRentalBookDTO(RentalBookRow row);
 }
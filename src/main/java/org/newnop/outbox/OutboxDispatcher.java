@@ -0,0 +1,190 @@
+package org.newnop.outbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.newnop.entity.OutboxEvents;
+import org.newnop.replica.ReadConsistency;
+import org.newnop.repository.OutboxEventsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Delivers outbox events to the in-process @EventListener methods in batches, oldest first, off the request path.
+// An event row is deleted only after all its listeners returned, so delivery is at least once: a crash between
+// delivery and delete, or a second instance polling the same table, delivers an event again.
+// The table is the queue. One batch is claimed at a time, so slow listeners grow the backlog instead of memory,
+// and a batch with a failure ends the run, so a failing listener is not fed more events until the next poll.
+// Failed events are retried with exponential backoff and parked (failed_at set) after max-attempts.
+@Component
+public class OutboxDispatcher implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private OutboxEventsRepository outboxEventsRepository;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${outbox.batch-size:200}")
+    private int batchSize;
+
+    // Bounds one run, so a large backlog cannot hold a scheduler thread indefinitely
+    @Value("${outbox.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.retry-delay:1s}")
+    private Duration retryDelay;
+
+    @Value("${outbox.max-retry-delay:10m}")
+    private Duration maxRetryDelay;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder parked = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchNanos = new LongAdder();
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:250}")
+    public void poll() {
+        dispatch();
+    }
+
+    // Delivers due events until none are left, a batch fails or the run reaches max-batches-per-run;
+    // returns how many events were delivered
+    public int dispatch() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int deliveredCount = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvents> batch = transactionTemplate.execute(status ->
+                    outboxEventsRepository.findDue(now, Limit.of(batchSize)));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            long started = System.nanoTime();
+            List<Long> deliveredIds = new ArrayList<>(batch.size());
+            Map<OutboxEvents, Exception> failures = new LinkedHashMap<>();
+            for (OutboxEvents event : batch) {
+                try {
+                    eventPublisher.publishEvent(OutboxPublisher.read(event.getEventType(), event.getPayload()));
+                    deliveredIds.add(event.getEventId());
+                } catch (Exception e) {
+                    failures.put(event, e);
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!deliveredIds.isEmpty()) {
+                    outboxEventsRepository.deleteDelivered(deliveredIds);
+                }
+                failures.forEach((event, e) -> recordFailure(event, e, now));
+            });
+
+            batches.increment();
+            batchNanos.add(System.nanoTime() - started);
+            delivered.add(deliveredIds.size());
+            deliveredCount += deliveredIds.size();
+            if (batch.size() < batchSize || !failures.isEmpty()) {
+                break;
+            }
+        }
+        return deliveredCount;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("outbox.events.published", outboxPublisher, OutboxPublisher::publishedCount)
+                .register(registry);
+        FunctionCounter.builder("outbox.events.delivered", delivered, LongAdder::sum).register(registry);
+        FunctionCounter.builder("outbox.events.retried", retried, LongAdder::sum).register(registry);
+        FunctionCounter.builder("outbox.events.parked", parked, LongAdder::sum).register(registry);
+        FunctionTimer.builder("outbox.dispatch.batches", this, d -> d.batches.sum(), d -> d.batchNanos.sum(),
+                        TimeUnit.NANOSECONDS)
+                .register(registry);
+        // Read from the primary on each scrape; the table only holds undelivered and parked events
+        Gauge.builder("outbox.backlog", this, d -> d.queryPrimary(d.outboxEventsRepository::countByFailedAtIsNull))
+                .register(registry);
+        Gauge.builder("outbox.parked", this, d -> d.queryPrimary(d.outboxEventsRepository::countByFailedAtIsNotNull))
+                .register(registry);
+        Gauge.builder("outbox.lag", this, OutboxDispatcher::lagSeconds)
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    // Private helper methods
+    private void recordFailure(OutboxEvents event, Exception cause, LocalDateTime now) {
+        int attempts = event.getAttempts() + 1;
+        String error = truncate(cause.toString());
+        if (attempts >= maxAttempts) {
+            outboxEventsRepository.recordFailure(event.getEventId(), attempts, event.getNextAttemptAt(), error, now);
+            parked.increment();
+            log.error("Parked outbox event {} ({}) after {} attempts: {}",
+                    event.getEventId(), event.getEventType(), attempts, error);
+        } else {
+            Duration delay = backoff(attempts);
+            outboxEventsRepository.recordFailure(event.getEventId(), attempts, now.plus(delay), error, null);
+            retried.increment();
+            log.warn("Outbox event {} ({}) failed, attempt {} of {}, retrying in {}: {}",
+                    event.getEventId(), event.getEventType(), attempts, maxAttempts, delay, error);
+        }
+    }
+
+    // retry-delay doubled per failed attempt, capped at max-retry-delay
+    private Duration backoff(int attempts) {
+        Duration delay = retryDelay.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxRetryDelay) < 0 ? delay : maxRetryDelay;
+    }
+
+    private double lagSeconds() {
+        try {
+            LocalDateTime oldest = ReadConsistency.onPrimary(outboxEventsRepository::findOldestPendingCreatedAt);
+            return oldest == null ? 0 : Math.max(Duration.between(oldest, LocalDateTime.now()).toMillis(), 0) / 1000.0;
+        } catch (DataAccessException e) {
+            return Double.NaN;
+        }
+    }
+
+    private double queryPrimary(Supplier<Long> count) {
+        try {
+            return ReadConsistency.onPrimary(count);
+        } catch (DataAccessException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
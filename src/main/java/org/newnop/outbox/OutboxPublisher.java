@@ -0,0 +1,70 @@
+package org.newnop.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.newnop.entity.OutboxEvents;
+import org.newnop.event.DomainEvent;
+import org.newnop.repository.OutboxEventsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Writes domain events to the outbox in the caller's transaction: an event exists exactly when its change committed.
+// Payloads use a mapper of their own, so the stored format does not follow changes to the HTTP JSON settings.
+@Component
+public class OutboxPublisher {
+
+    static final ObjectMapper MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    // Stored by simple name; renaming an event class needs a migration of its pending rows
+    static final Map<String, Class<?>> EVENT_TYPES = Arrays.stream(DomainEvent.class.getPermittedSubclasses())
+            .collect(Collectors.toMap(Class::getSimpleName, Function.identity()));
+
+    @Autowired
+    private OutboxEventsRepository outboxEventsRepository;
+
+    private final LongAdder published = new LongAdder();
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(DomainEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvents outboxEvent = new OutboxEvents();
+        outboxEvent.setEventType(event.getClass().getSimpleName());
+        outboxEvent.setPayload(write(event));
+        outboxEvent.setCreatedAt(now);
+        outboxEvent.setNextAttemptAt(now);
+        outboxEventsRepository.save(outboxEvent);
+        published.increment();
+    }
+
+    // Events written by this instance since it started, committed or not
+    public long publishedCount() {
+        return published.sum();
+    }
+
+    static DomainEvent read(String eventType, String payload) throws JsonProcessingException {
+        Class<?> type = EVENT_TYPES.get(eventType);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown event type " + eventType);
+        }
+        return (DomainEvent) MAPPER.readValue(payload, type);
+    }
+
+    // Private helper methods
+    private String write(DomainEvent event) {
+        try {
+            return MAPPER.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + event.getClass().getSimpleName(), e);
+        }
+    }
+}
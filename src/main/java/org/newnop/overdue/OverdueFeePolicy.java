@@ -0,0 +1,40 @@
+package org.newnop.overdue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+// Late fee of a rental: a fixed amount per day past the due date, capped at max-fee
+@Component
+public class OverdueFeePolicy {
+
+    private final BigDecimal dailyFee;
+    private final BigDecimal maxFee;
+    private final int loanDays;
+
+    @Autowired
+    public OverdueFeePolicy(@Value("${overdue.daily-fee:0.50}") BigDecimal dailyFee,
+                            @Value("${overdue.max-fee:20.00}") BigDecimal maxFee,
+                            @Value("${overdue.loan-days:14}") int loanDays) {
+        this.dailyFee = dailyFee;
+        this.maxFee = maxFee;
+        this.loanDays = loanDays;
+    }
+
+    // Due date of a rental created without a planned return date
+    public LocalDate defaultDueDate(LocalDate rentalDate) {
+        return rentalDate.plusDays(loanDays);
+    }
+
+    public BigDecimal feeFor(LocalDate dueDate, LocalDate asOf) {
+        if (dueDate == null || !asOf.isAfter(dueDate)) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal fee = dailyFee.multiply(BigDecimal.valueOf(ChronoUnit.DAYS.between(dueDate, asOf)));
+        return fee.min(maxFee);
+    }
+}
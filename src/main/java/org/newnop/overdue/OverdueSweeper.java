@@ -0,0 +1,74 @@
+package org.newnop.overdue;
+
+import org.newnop.entity.Rentals;
+import org.newnop.repository.RentalsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Walks the open, overdue rentals in (due date, rental ID) order, one chunk per transaction, and brings their
+// late fees up to date. Rentals already assessed today are not read, so a sweep that is interrupted or run
+// again the same day only touches what is still missing, and memory use is bounded by the chunk size.
+@Component
+public class OverdueSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueSweeper.class);
+
+    @Autowired
+    private RentalsRepository rentalsRepository;
+
+    @Autowired
+    private OverdueFeePolicy overdueFeePolicy;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${overdue.sweep-chunk-size:500}")
+    private int chunkSize;
+
+    @Scheduled(cron = "${overdue.sweep-cron:0 15 * * * *}")
+    public void sweep() {
+        long started = System.nanoTime();
+        long assessed = sweep(LocalDate.now());
+        log.info("Overdue sweep assessed {} rentals in {} ms", assessed, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Returns how many rentals got a new assessment
+    public long sweep(LocalDate today) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicLong assessed = new AtomicLong();
+        LocalDate afterDueDate = RentalsRepository.OVERDUE_SCAN_START;
+        long afterRentalId = 0;
+        while (true) {
+            LocalDate cursorDueDate = afterDueDate;
+            long cursorRentalId = afterRentalId;
+            List<Rentals> chunk = transactionTemplate.execute(status -> {
+                List<Rentals> rentals = rentalsRepository.findUnassessedOverdueAfter(today, cursorDueDate, cursorRentalId,
+                        Limit.of(chunkSize));
+                for (Rentals rental : rentals) {
+                    rental.setLateFee(overdueFeePolicy.feeFor(rental.getDueDate(), today));
+                    rental.setFeeAssessedOn(today);
+                }
+                assessed.addAndGet(rentals.size());
+                return rentals;
+            });
+
+            if (chunk.size() < chunkSize) {
+                return assessed.get();
+            }
+            Rentals last = chunk.get(chunk.size() - 1);
+            afterDueDate = last.getDueDate();
+            afterRentalId = last.getRentalId();
+        }
+    }
+}
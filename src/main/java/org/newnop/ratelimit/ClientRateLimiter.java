@@ -0,0 +1,60 @@
+package org.newnop.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// One token bucket per client, kept as a single number: the time at which the bucket would be full again
+// (GCRA, the generic cell rate algorithm). Taking tokens moves that time forward by cost x interval with one CAS,
+// so buckets need neither locks nor a refill thread. The buckets live in a bounded Caffeine map, whose lookups
+// of existing entries are lock-free and whose writes are striped over the map's bins. Past max-clients, the
+// least used buckets are evicted; such a client starts over with a full bucket.
+public class ClientRateLimiter {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final LongSupplier nanoClock;
+    private final Cache<String, AtomicLong> buckets;
+
+    public ClientRateLimiter(double tokensPerSecond, int burst, long maxClients) {
+        this(tokensPerSecond, burst, maxClients, System::nanoTime);
+    }
+
+    ClientRateLimiter(double tokensPerSecond, int burst, long maxClients, LongSupplier nanoClock) {
+        if (tokensPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit needs a positive rate and burst");
+        }
+        this.nanosPerToken = (long) Math.ceil(TimeUnit.SECONDS.toNanos(1) / tokensPerSecond);
+        this.burstNanos = nanosPerToken * burst;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .build();
+    }
+
+    // Takes cost tokens from the client's bucket; returns 0 when they were there, otherwise how many nanoseconds
+    // until they will be. A refused request takes nothing.
+    public long tryAcquire(String client, int cost) {
+        AtomicLong bucket = buckets.getIfPresent(client);
+        if (bucket == null) {
+            bucket = buckets.get(client, key -> new AtomicLong(nanoClock.getAsLong()));
+        }
+        long now = nanoClock.getAsLong();
+        long increment = cost * nanosPerToken;
+        while (true) {
+            long fullAt = bucket.get();
+            // nanoTime values are only comparable by difference
+            long newFullAt = (fullAt - now > 0 ? fullAt : now) + increment;
+            long excess = newFullAt - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.compareAndSet(fullAt, newFullAt)) {
+                return 0;
+            }
+        }
+    }
+}
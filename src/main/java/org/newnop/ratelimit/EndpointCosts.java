@@ -0,0 +1,34 @@
+package org.newnop.ratelimit;
+
+import org.newnop.config.RateLimitProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Token cost of a request by method and path, from rate-limiter.costs. Callers pass the path as the handlers match
+// it, without matrix parameters (";x") and with escapes decoded, so a request cannot dodge its cost by spelling
+// the path differently.
+public class EndpointCosts {
+
+    private final int defaultCost;
+    // Method -> path -> cost; looked up without building a key per request
+    private final Map<String, Map<String, Integer>> costs = new HashMap<>();
+
+    public EndpointCosts(RateLimitProperties properties) {
+        this.defaultCost = properties.getDefaultCost();
+        for (RateLimitProperties.EndpointCost cost : properties.getCosts()) {
+            if (cost.getCost() < 1 || cost.getCost() > properties.getBurst()) {
+                throw new IllegalArgumentException("Cost of " + cost.getMethod() + " " + cost.getPath()
+                        + " must be between 1 and the burst of " + properties.getBurst());
+            }
+            costs.computeIfAbsent(cost.getMethod().toUpperCase(), method -> new HashMap<>())
+                    .put(cost.getPath(), cost.getCost());
+        }
+    }
+
+    public int costOf(String method, String lookupPath) {
+        Map<String, Integer> costsByPath = costs.get(method);
+        Integer cost = costsByPath != null ? costsByPath.get(lookupPath) : null;
+        return cost != null ? cost : defaultCost;
+    }
+}
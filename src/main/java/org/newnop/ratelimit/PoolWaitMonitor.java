@@ -0,0 +1,66 @@
+package org.newnop.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Tells whether the database connection pools are saturated. Each check reads Hikari's acquire timers and
+// compares the mean wait for a connection since the previous check with the threshold. Threads that are still
+// waiting do not show up in the timers yet, so a check in which nobody got a connection while some wait for one
+// also counts as saturated. Checks run on a schedule; the request path only reads a volatile flag.
+public class PoolWaitMonitor implements MeterBinder {
+
+    static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+    static final String PENDING_GAUGE = "hikaricp.connections.pending";
+
+    private final long thresholdNanos;
+    private volatile MeterRegistry registry;
+    private volatile boolean saturated;
+    private volatile double meanWaitNanos;
+    private double lastTotalNanos;
+    private long lastCount;
+
+    public PoolWaitMonitor(Duration threshold) {
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    public boolean isSaturated() {
+        return saturated;
+    }
+
+    public synchronized void check() {
+        MeterRegistry meters = registry;
+        if (meters == null) {
+            return;
+        }
+        double totalNanos = 0;
+        long count = 0;
+        for (Timer timer : meters.find(ACQUIRE_TIMER).timers()) {
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+            count += timer.count();
+        }
+        double pending = meters.find(PENDING_GAUGE).gauges().stream().mapToDouble(Gauge::value).sum();
+
+        long acquired = count - lastCount;
+        meanWaitNanos = acquired > 0 ? (totalNanos - lastTotalNanos) / acquired : 0;
+        saturated = meanWaitNanos > thresholdNanos || (acquired == 0 && pending > 0);
+        lastTotalNanos = totalNanos;
+        lastCount = count;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("rate.limiter.pool.wait", this, m -> m.meanWaitNanos / 1_000_000)
+                .baseUnit("milliseconds")
+                .description("Mean wait for a database connection in the last check")
+                .register(registry);
+        Gauge.builder("rate.limiter.shedding", this, m -> m.saturated ? 1 : 0)
+                .description("1 while expensive requests are shed")
+                .register(registry);
+    }
+}
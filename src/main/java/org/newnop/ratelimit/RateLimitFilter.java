@@ -0,0 +1,80 @@
+package org.newnop.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Charges every API request to its client's token bucket, weighted by endpoint (see EndpointCosts): a full
+// listing costs as much as dozens of lookups by ID. A client out of tokens gets 429 with Retry-After. While the
+// connection pool is saturated, requests costing at least shed-min-cost get 503 whatever their client's balance,
+// so checkouts and lookups keep their connections. Runs before ConcurrencyLimitFilter, so refused requests never
+// take a permit. The reactive catalog port charges the same buckets, see ReactiveRateLimitFilter.
+// Clients are told apart by address. API keys are not authenticated, so a bucket per key would hand a full bucket
+// to every made-up key and let them evict real clients. Behind a proxy, server.forward-headers-strategy must be
+// set for the address to be the client's.
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final UrlPathHelper PATH_HELPER = fullPathHelper();
+
+    private final ClientRateLimiter clientRateLimiter;
+    private final PoolWaitMonitor poolWaitMonitor;
+    private final EndpointCosts endpointCosts;
+    private final int shedMinCost;
+
+    public RateLimitFilter(ClientRateLimiter clientRateLimiter, PoolWaitMonitor poolWaitMonitor,
+                           EndpointCosts endpointCosts, int shedMinCost) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.poolWaitMonitor = poolWaitMonitor;
+        this.endpointCosts = endpointCosts;
+        this.shedMinCost = shedMinCost;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !lookupPath(request).startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int cost = endpointCosts.costOf(request.getMethod(), lookupPath(request));
+        if (cost >= shedMinCost && poolWaitMonitor.isSaturated()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Database busy, try again shortly");
+            return;
+        }
+
+        long waitNanos = clientRateLimiter.tryAcquire(request.getRemoteAddr(), cost);
+        if (waitNanos > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(waitNanos)));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Rate limit exceeded");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    static long retryAfterSeconds(long waitNanos) {
+        return (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+    }
+
+    // Private helper methods
+    // The path as the handler mappings match it: decoded, without matrix parameters or repeated slashes
+    private static String lookupPath(HttpServletRequest request) {
+        return PATH_HELPER.getLookupPathForRequest(request);
+    }
+
+    private static UrlPathHelper fullPathHelper() {
+        UrlPathHelper pathHelper = new UrlPathHelper();
+        pathHelper.setAlwaysUseFullPath(true);
+        return pathHelper;
+    }
+}
@@ -0,0 +1,64 @@
+package org.newnop.ratelimit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+// RateLimitFilter for the reactive catalog port: the same buckets and costs, so a client cannot double its limit
+// by using both ports. Nothing is shed, as reactive reads do not wait on the JDBC pool that PoolWaitMonitor watches.
+public class ReactiveRateLimitFilter implements WebFilter {
+
+    private final ClientRateLimiter clientRateLimiter;
+    private final EndpointCosts endpointCosts;
+
+    public ReactiveRateLimitFilter(ClientRateLimiter clientRateLimiter, EndpointCosts endpointCosts) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.endpointCosts = endpointCosts;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = lookupPath(request);
+        if (!path.startsWith("/api/")) {
+            return chain.filter(exchange);
+        }
+
+        int cost = endpointCosts.costOf(request.getMethod().name(), path);
+        long waitNanos = clientRateLimiter.tryAcquire(clientOf(request), cost);
+        if (waitNanos > 0) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                    Long.toString(RateLimitFilter.retryAfterSeconds(waitNanos)));
+            return response.setComplete();
+        }
+        return chain.filter(exchange);
+    }
+
+    // Private helper methods
+    // The path as the router matches it: segments decoded and without matrix parameters
+    private static String lookupPath(ServerHttpRequest request) {
+        StringBuilder path = new StringBuilder();
+        for (PathContainer.Element element : request.getPath().pathWithinApplication().elements()) {
+            path.append(element instanceof PathContainer.PathSegment segment
+                    ? segment.valueToMatch()
+                    : element.value());
+        }
+        return path.toString();
+    }
+
+    // The same key as RateLimitFilter, which uses the servlet's remote address
+    private static String clientOf(ServerHttpRequest request) {
+        InetSocketAddress address = request.getRemoteAddress();
+        return address != null ? address.getHostString() : "";
+    }
+}
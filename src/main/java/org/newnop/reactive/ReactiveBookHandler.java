@@ -0,0 +1,123 @@
+package org.newnop.reactive;
+
+import org.newnop.dto.BookDTO;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.repository.ReactiveBooksRepository;
+import org.newnop.search.BookSearchIndex;
+import org.newnop.service.impl.BookServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Read-only book endpoints of the reactive catalog, answering like their BookController counterparts.
+// Listings are streamed in keyset chunks fetched on demand: a slow client holds back the next query instead of
+// buffering rows, and holds no database connection between chunks.
+@Component
+@ConditionalOnProperty(name = "reactive-catalog.enabled", havingValue = "true")
+public class ReactiveBookHandler {
+
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    @Autowired
+    private ReactiveBooksRepository reactiveBooksRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    public Mono<ServerResponse> getAllBooks(ServerRequest request) {
+        return stream(request, inChunks(reactiveBooksRepository::findDTOsAfter, 0));
+    }
+
+    public Mono<ServerResponse> getAvailableBooks(ServerRequest request) {
+        return stream(request, inChunks(reactiveBooksRepository::findAvailableDTOsAfter, 0));
+    }
+
+    // Deferred so that invalid parameters fail the response instead of the handler call
+    public Mono<ServerResponse> getBooksPage(ServerRequest request) {
+        return Mono.defer(() -> booksPage(request));
+    }
+
+    public Mono<ServerResponse> getBookById(ServerRequest request) {
+        return Mono.defer(() -> reactiveBooksRepository.findDTOById(Long.valueOf(request.pathVariable("id"))))
+                .flatMap(book -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(book))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> searchBooks(ServerRequest request) {
+        String title = request.queryParam("title").orElse(null);
+        String author = request.queryParam("author").orElse(null);
+        String genre = request.queryParam("genre").orElse(null);
+        if (isBlank(title) && isBlank(author) && isBlank(genre)) {
+            return getAllBooks(request);
+        }
+        if (!bookSearchIndex.isReady()) {
+            return stream(request, searchInDatabase(title, author, genre).take(BookServiceImpl.MAX_SEARCH_RESULTS));
+        }
+
+        // The index ranks matching IDs; rows are then read by primary key to get current availability
+        List<Long> bookIds = bookSearchIndex.search(title, author, genre, BookServiceImpl.MAX_SEARCH_RESULTS);
+        Flux<BookDTO> books = reactiveBooksRepository.findAllDTOsById(bookIds)
+                .collectMap(BookDTO::getBookId, Function.identity())
+                .flatMapMany(booksById -> Flux.fromIterable(bookIds).mapNotNull(booksById::get));
+        return stream(request, books);
+    }
+
+    // Private helper methods
+    private Mono<ServerResponse> booksPage(ServerRequest request) {
+        long after = request.queryParam("after").map(Long::valueOf).orElse(0L);
+        int size = request.queryParam("size").map(Integer::valueOf).orElse(50);
+        if (size < 1 || size > BookServiceImpl.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + BookServiceImpl.MAX_PAGE_SIZE);
+        }
+
+        // Fetch one extra row to learn whether another page follows
+        return reactiveBooksRepository.findDTOsAfter(after, size + 1)
+                .collectList()
+                .map(books -> books.size() > size
+                        ? new CursorPageDTO<>(books.subList(0, size), books.get(size - 1).getBookId())
+                        : new CursorPageDTO<>(books, null))
+                .flatMap(page -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(page));
+    }
+
+    // A JSON array unless the client asks for newline-delimited JSON; either way written as rows arrive
+    private Mono<ServerResponse> stream(ServerRequest request, Flux<BookDTO> books) {
+        boolean ndjson = request.headers().accept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+        return ServerResponse.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(books, BookDTO.class);
+    }
+
+    // Each chunk is read completely, releasing its connection, and the next one is only queried once the
+    // client has taken the rows before it
+    private Flux<BookDTO> inChunks(BiFunction<Long, Integer, Flux<BookDTO>> chunkAfter, long after) {
+        return chunkAfter.apply(after, STREAM_CHUNK_SIZE)
+                .collectList()
+                .flatMapMany(chunk -> chunk.size() < STREAM_CHUNK_SIZE
+                        ? Flux.fromIterable(chunk)
+                        : Flux.fromIterable(chunk).concatWith(Flux.defer(() ->
+                                inChunks(chunkAfter, chunk.get(chunk.size() - 1).getBookId()))));
+    }
+
+    private Flux<BookDTO> searchInDatabase(String title, String author, String genre) {
+        if (!isBlank(title)) {
+            return reactiveBooksRepository.findDTOsContaining("title", title);
+        } else if (!isBlank(author)) {
+            return reactiveBooksRepository.findDTOsContaining("author", author);
+        } else {
+            return reactiveBooksRepository.findDTOsContaining("genre", genre);
+        }
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+}
@@ -0,0 +1,111 @@
+package org.newnop.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.newnop.ratelimit.ReactiveRateLimitFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+// Serves the read-only book API non-blocking on its own Reactor Netty port, next to the MVC endpoints on
+// server.port, so both stacks can be compared on the same data. A request only occupies an event loop thread
+// while it has work to do; a slow client costs its buffers, not a thread.
+// Requests are rate limited like the MVC ones unless rate-limiter.enabled is false.
+@Component
+@ConditionalOnProperty(name = "reactive-catalog.enabled", havingValue = "true")
+public class ReactiveCatalogServer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveCatalogServer.class);
+    private static final int COMPRESSION_MIN_RESPONSE_SIZE = 2048;
+
+    @Autowired
+    private ReactiveBookHandler reactiveBookHandler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private ReactiveRateLimitFilter reactiveRateLimitFilter;
+
+    @Value("${reactive-catalog.port:8081}")
+    private int port;
+
+    private volatile DisposableServer server;
+
+    @Override
+    public void start() {
+        ReactorHttpHandlerAdapter adapter = new ReactorHttpHandlerAdapter(
+                RouterFunctions.toHttpHandler(routes(), handlerStrategies()));
+        server = HttpServer.create()
+                .port(port)
+                .compress(COMPRESSION_MIN_RESPONSE_SIZE)
+                // reactor.netty.http.server.* meters; book IDs are folded into one URI tag
+                .metrics(true, uri -> uri.replaceAll("/\\d+(?=/|$)", "/{id}"))
+                .handle(adapter)
+                .bindNow();
+        log.info("Reactive catalog listening on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer running = server;
+        if (running != null) {
+            running.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    // The bound port; differs from reactive-catalog.port when that is 0
+    public int port() {
+        return server.port();
+    }
+
+    // Private helper methods
+    private RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .path("/api/books", books -> books
+                        .GET("", reactiveBookHandler::getAllBooks)
+                        .GET("/page", reactiveBookHandler::getBooksPage)
+                        .GET("/available", reactiveBookHandler::getAvailableBooks)
+                        .GET("/search", reactiveBookHandler::searchBooks)
+                        .GET("/{id}", reactiveBookHandler::getBookById))
+                .onError(IllegalArgumentException.class, (e, request) ->
+                        ServerResponse.badRequest().bodyValue(e.getMessage()))
+                .onError(Exception.class, (e, request) -> {
+                    log.error("Reactive catalog request {} failed", request.path(), e);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+                })
+                .build();
+    }
+
+    // JSON as the MVC endpoints write it, and their rate limits
+    private HandlerStrategies handlerStrategies() {
+        HandlerStrategies.Builder builder = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                });
+        if (reactiveRateLimitFilter != null) {
+            builder.webFilter(reactiveRateLimitFilter);
+        }
+        return builder.build();
+    }
+}
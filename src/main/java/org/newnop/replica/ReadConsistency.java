@@ -0,0 +1,90 @@
+package org.newnop.replica;
+
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+// Per-thread routing hints for ReplicaRoutingDataSource; without replicas configured they have no effect.
+// onPrimary pins reads that must see every committed write, such as index rebuilds and cache loads.
+// A session carries the time of the client's last write, so its reads skip replicas that are behind it.
+public final class ReadConsistency {
+
+    private static final ThreadLocal<Boolean> primary = new ThreadLocal<>();
+    private static final ThreadLocal<Long> notBefore = new ThreadLocal<>();
+    private static final ThreadLocal<Session> session = new ThreadLocal<>();
+
+    private ReadConsistency() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = primary.get();
+        primary.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                primary.remove();
+            } else {
+                primary.set(previous);
+            }
+        }
+    }
+
+    public static void runOnPrimary(Runnable action) {
+        onPrimary(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Reads inside action skip replicas that have not yet applied everything committed up to commitMillis
+    public static <T> T readingAfter(long commitMillis, Supplier<T> action) {
+        Long previous = notBefore.get();
+        notBefore.set(previous != null ? Math.max(previous, commitMillis) : commitMillis);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                notBefore.remove();
+            } else {
+                notBefore.set(previous);
+            }
+        }
+    }
+
+    // onWrite is told the commit time of every write made in the session
+    public static void beginSession(long readAfter, LongConsumer onWrite) {
+        session.set(new Session(readAfter, onWrite));
+    }
+
+    public static void endSession() {
+        session.remove();
+    }
+
+    static boolean isPrimaryRequired() {
+        return primary.get() != null;
+    }
+
+    static long readAfter() {
+        Session current = session.get();
+        Long minimum = notBefore.get();
+        return Math.max(current != null ? current.readAfter : 0, minimum != null ? minimum : 0);
+    }
+
+    static void writeCommitted(long commitMillis) {
+        Session current = session.get();
+        if (current != null) {
+            current.readAfter = Math.max(current.readAfter, commitMillis);
+            current.onWrite.accept(commitMillis);
+        }
+    }
+
+    private static final class Session {
+        private long readAfter;
+        private final LongConsumer onWrite;
+
+        private Session(long readAfter, LongConsumer onWrite) {
+            this.readAfter = readAfter;
+            this.onWrite = onWrite;
+        }
+    }
+}
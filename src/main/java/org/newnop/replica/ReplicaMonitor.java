@@ -0,0 +1,164 @@
+package org.newnop.replica;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// Measures replica lag with a heartbeat row: every check stamps the current time into replica_heartbeat on the
+// primary and reads back what each replica has replicated so far. A replica is healthy while it answers and its
+// heartbeat is at most max-lag old; lag is therefore measured to within one check interval.
+// Replicas start out unhealthy, so reads stay on the primary until the first check has passed.
+public class ReplicaMonitor implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaMonitor.class);
+
+    private static final int CHECK_TIMEOUT_SECONDS = 2;
+
+    private final JdbcTemplate primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final LongSupplier clock;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaMonitor(DataSource primary, Map<String, DataSource> replicas, Duration maxLag) {
+        this(primary, replicas, maxLag, System::currentTimeMillis);
+    }
+
+    ReplicaMonitor(DataSource primary, Map<String, DataSource> replicas, Duration maxLag, LongSupplier clock) {
+        this.primary = jdbcTemplate(primary);
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.maxLagMillis = maxLag.toMillis();
+        this.clock = clock;
+    }
+
+    public static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private volatile boolean healthy;
+        // Primary time of the newest heartbeat the replica has applied
+        private volatile long replicatedUpTo;
+        private volatile long lagMillis = -1;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = jdbcTemplate(dataSource);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public DataSource dataSource() {
+            return dataSource;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        // -1 until the replica has answered a check
+        public long lagMillis() {
+            return lagMillis;
+        }
+    }
+
+    public List<Replica> replicas() {
+        return Collections.unmodifiableList(replicas);
+    }
+
+    // Next healthy replica, in turn, that has applied everything committed before readAfter; null when there is none
+    public Replica choose(long readAfter) {
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy && replica.replicatedUpTo >= readAfter) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    // Scheduled every replicas.check-interval
+    public void check() {
+        long now = clock.getAsLong();
+        try {
+            beat(now);
+        } catch (DataAccessException e) {
+            log.warn("Could not write the replica heartbeat on the primary: {}", e.getMostSpecificCause().getMessage());
+        }
+
+        for (Replica replica : replicas) {
+            try {
+                Long beat = replica.jdbcTemplate.queryForObject(
+                        "SELECT beat_millis FROM replica_heartbeat WHERE id = 1", Long.class);
+                replica.replicatedUpTo = beat;
+                replica.lagMillis = Math.max(now - beat, 0);
+                setHealthy(replica, replica.lagMillis <= maxLagMillis,
+                        "lagging " + replica.lagMillis + " ms behind the primary");
+            } catch (DataAccessException e) {
+                setHealthy(replica, false, e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    // Called when a replica fails to hand out a connection between two checks
+    public void markDown(Replica replica, Exception cause) {
+        setHealthy(replica, false, cause.getMessage());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            Gauge.builder("db.replica.lag", replica, r -> r.lagMillis / 1000.0)
+                    .tag("replica", replica.name)
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("db.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+    }
+
+    // Private helper methods
+    private void beat(long now) {
+        // GREATEST keeps the heartbeat monotonic when several instances stamp it
+        int updated = primary.update(
+                "UPDATE replica_heartbeat SET beat_millis = GREATEST(beat_millis, ?) WHERE id = 1", now);
+        if (updated == 0) {
+            primary.update("INSERT INTO replica_heartbeat (id, beat_millis) VALUES (1, ?)", now);
+        }
+    }
+
+    private void setHealthy(Replica replica, boolean healthy, String reason) {
+        if (replica.healthy == healthy) {
+            return;
+        }
+        replica.healthy = healthy;
+        if (healthy) {
+            log.info("Replica {} in rotation, {} ms behind the primary", replica.name, replica.lagMillis);
+        } else {
+            log.warn("Replica {} taken out of rotation: {}", replica.name, reason);
+        }
+    }
+
+    private static JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+        return jdbcTemplate;
+    }
+}
@@ -0,0 +1,62 @@
+package org.newnop.replica;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Hands read-only transactions a connection to a healthy replica that has caught up with the session's last write,
+// and everything else one to the primary. When no replica qualifies, or the chosen one cannot connect, the
+// read runs on the primary.
+// Must be wrapped in a LazyConnectionDataSourceProxy: a transaction asks for its connection while it begins,
+// before its read-only flag is visible here; the proxy defers that until the first statement.
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReplicaMonitor replicaMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaMonitor replicaMonitor) {
+        this.primary = primary;
+        this.replicaMonitor = replicaMonitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            trackWrite();
+            return primary.getConnection();
+        }
+        if (!ReadConsistency.isPrimaryRequired()) {
+            ReplicaMonitor.Replica replica = replicaMonitor.choose(ReadConsistency.readAfter());
+            if (replica != null) {
+                try {
+                    return replica.dataSource().getConnection();
+                } catch (SQLException e) {
+                    replicaMonitor.markDown(replica, e);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    // Private helper methods
+    // Reports the commit of a read-write transaction to the session. Writes outside a transaction are not tracked.
+    private void trackWrite() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ReadConsistency.writeCommitted(System.currentTimeMillis());
+                }
+            });
+        }
+    }
+}
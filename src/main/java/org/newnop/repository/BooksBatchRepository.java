@@ -0,0 +1,10 @@
+package org.newnop.repository;
+
+import org.newnop.entity.Books;
+
+import java.util.List;
+
+public interface BooksBatchRepository {
+    // Inserts all books as a single JDBC batch and sets their generated IDs
+    void insertAll(List<Books> books);
+}
@@ -0,0 +1,62 @@
+package org.newnop.repository;
+
+import org.newnop.entity.Books;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+// Books uses IDENTITY keys, which stops Hibernate from batching inserts, so bulk loads go through JDBC.
+// The driver still hands back every generated key of the batch, so the ID strategy can stay as it is.
+public class BooksBatchRepositoryImpl implements BooksBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO books (title, author, genre, available, total_copies, available_copies)"
+            + " VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BooksBatchRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void insertAll(List<Books> books) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        Books book = books.get(i);
+                        // JDBC inserts skip the entity's @PrePersist callback
+                        book.defaultCopies();
+                        statement.setString(1, book.getTitle());
+                        statement.setString(2, book.getAuthor());
+                        statement.setString(3, book.getGenre());
+                        statement.setBoolean(4, book.getAvailable());
+                        statement.setInt(5, book.getTotalCopies());
+                        statement.setInt(6, book.getAvailableCopies());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return books.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < books.size(); i++) {
+            books.get(i).setBookId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+}
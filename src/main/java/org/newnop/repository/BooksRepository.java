@@ -1,15 +1,92 @@
 package org.newnop.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.newnop.dto.BookDTO;
 import org.newnop.entity.Books;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface BooksRepository extends JpaRepository<Books, Long> {
-    List<Books> findByAvailableTrue();
-    List<Books> findByTitleContainingIgnoreCase(String title);
-    List<Books> findByAuthorContainingIgnoreCase(String author);
-    List<Books> findByGenreContainingIgnoreCase(String genre);
-}
\ No newline at end of file
+public interface BooksRepository extends JpaRepository<Books, Long>, BooksBatchRepository {
+
+    // Reads select straight into BookDTO, so no managed entity or dirty-checking snapshot is created per row
+    String BOOK_DTO = "new org.newnop.dto.BookDTO(b.bookId, b.title, b.author, b.genre, b.available,"
+            + " b.totalCopies, b.availableCopies)";
+
+    @Query("SELECT " + BOOK_DTO + " FROM Books b ORDER BY b.bookId")
+    List<BookDTO> findAllAsDTO();
+
+    @Query("SELECT " + BOOK_DTO + " FROM Books b WHERE b.bookId = :bookId")
+    Optional<BookDTO> findDTOById(@Param("bookId") Long bookId);
+
+    @Query("SELECT " + BOOK_DTO + " FROM Books b WHERE b.bookId IN :bookIds")
+    List<BookDTO> findAllDTOsById(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("SELECT " + BOOK_DTO + " FROM Books b WHERE b.bookId > :bookId ORDER BY b.bookId")
+    List<BookDTO> findDTOsAfter(@Param("bookId") Long bookId, Limit limit);
+
+    @Query("SELECT " + BOOK_DTO + " FROM Books b WHERE b.available = true ORDER BY b.bookId")
+    List<BookDTO> findAvailableAsDTO();
+
+    @Query("SELECT " + BOOK_DTO + " FROM Books b WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%'))")
+    List<BookDTO> findDTOsByTitleContaining(@Param("title") String title, Limit limit);
+
+    @Query("SELECT " + BOOK_DTO + " FROM Books b WHERE LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))")
+    List<BookDTO> findDTOsByAuthorContaining(@Param("author") String author, Limit limit);
+
+    @Query("SELECT " + BOOK_DTO + " FROM Books b WHERE LOWER(b.genre) LIKE LOWER(CONCAT('%', :genre, '%'))")
+    List<BookDTO> findDTOsByGenreContaining(@Param("genre") String genre, Limit limit);
+
+    // Reads rows off a JDBC cursor straight into DTOs, so nothing accumulates in the persistence context
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT " + BOOK_DTO + " FROM Books b ORDER BY b.bookId")
+    Stream<BookDTO> streamAllAsDTO();
+
+    // Copy counts change only through the conditional updates below, so concurrent checkouts and returns of a
+    // title never overwrite each other. Hibernate keeps the SET order, and available is assigned first: MySQL
+    // evaluates single-table assignments left to right, so later ones would see the new availableCopies.
+
+    // Takes one copy of each title; returns how many titles still had one, fewer than requested means some ran out
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Books b SET b.available = CASE WHEN b.availableCopies > 1 THEN true ELSE false END,"
+            + " b.availableCopies = b.availableCopies - 1 WHERE b.bookId IN :bookIds AND b.availableCopies > 0")
+    int takeCopies(@Param("bookIds") Collection<Long> bookIds);
+
+    // Puts back one copy per rental item of the given rentals; ck_books_copies keeps a title below its total
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Books b SET b.available = true, b.availableCopies = b.availableCopies + (SELECT COUNT(ri)"
+            + " FROM RentalItems ri WHERE ri.book = b AND ri.rental.rentalId IN :rentalIds)"
+            + " WHERE b.bookId IN (SELECT ri.book.bookId FROM RentalItems ri WHERE ri.rental.rentalId IN :rentalIds)")
+    int returnCopies(@Param("rentalIds") Collection<Long> rentalIds);
+
+    // Adds or removes copies of a title; refused, returning 0, when fewer copies would remain than are rented
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Books b SET b.available = CASE WHEN b.availableCopies + :totalCopies - b.totalCopies > 0"
+            + " THEN true ELSE false END, b.availableCopies = b.availableCopies + :totalCopies - b.totalCopies,"
+            + " b.totalCopies = :totalCopies WHERE b.bookId = :bookId"
+            + " AND b.availableCopies + :totalCopies - b.totalCopies >= 0")
+    int changeTotalCopies(@Param("bookId") Long bookId, @Param("totalCopies") int totalCopies);
+
+    // Puts back a copy that was set aside for a hold
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Books b SET b.available = true, b.availableCopies = b.availableCopies + 1"
+            + " WHERE b.bookId = :bookId AND b.availableCopies < b.totalCopies")
+    int putBackCopy(@Param("bookId") Long bookId);
+
+    @Query("SELECT b.bookId FROM Books b WHERE b.bookId IN :bookIds AND b.availableCopies = 0")
+    List<Long> findOutOfStockIds(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("SELECT b.bookId FROM Books b WHERE b.bookId IN :bookIds AND b.available = true")
+    List<Long> findAvailableIds(@Param("bookIds") Collection<Long> bookIds);
+}
@@ -0,0 +1,13 @@
+package org.newnop.repository;
+
+import java.util.Collection;
+
+public interface CatalogStampsBatchRepository {
+    // Hands out the next catalog version: the current time in milliseconds, or one more than the last version if
+    // that is later. The catalog row stays locked until the transaction ends, so versions commit in ascending order
+    // and stamps read after this call include every earlier version.
+    long nextVersion();
+
+    // Stamps the books with the version as JDBC batches: an update of those stamped before, an insert of the others
+    void stampAll(Collection<Long> stampedBookIds, Collection<Long> newBookIds, long version);
+}
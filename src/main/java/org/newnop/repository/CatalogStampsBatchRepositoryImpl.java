@@ -0,0 +1,46 @@
+package org.newnop.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Stamps are written by the thousand on imports, and Hibernate would load each row before updating it
+public class CatalogStampsBatchRepositoryImpl implements CatalogStampsBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CatalogStampsBatchRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public long nextVersion() {
+        long now = System.currentTimeMillis();
+        // The V10 migration adds the catalog row; a schema built from the entities starts without it
+        if (jdbcTemplate.update("UPDATE catalog_stamps SET version = GREATEST(version + 1, ?) WHERE book_id = 0",
+                now) == 0) {
+            jdbcTemplate.update("INSERT INTO catalog_stamps (book_id, version) VALUES (0, ?)", now);
+        }
+        return jdbcTemplate.queryForObject("SELECT version FROM catalog_stamps WHERE book_id = 0", Long.class);
+    }
+
+    @Override
+    public void stampAll(Collection<Long> stampedBookIds, Collection<Long> newBookIds, long version) {
+        jdbcTemplate.batchUpdate("UPDATE catalog_stamps SET version = ? WHERE book_id = ?", rows(stampedBookIds, version));
+        jdbcTemplate.batchUpdate("INSERT INTO catalog_stamps (version, book_id) VALUES (?, ?)", rows(newBookIds, version));
+    }
+
+    // Private helper methods
+    private static List<Object[]> rows(Collection<Long> bookIds, long version) {
+        List<Object[]> rows = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            rows.add(new Object[]{version, bookId});
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,26 @@
+package org.newnop.repository;
+
+import org.newnop.entity.CatalogStamps;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CatalogStampsRepository extends JpaRepository<CatalogStamps, Long>, CatalogStampsBatchRepository {
+
+    @Query("SELECT s.version FROM CatalogStamps s WHERE s.bookId = 0")
+    Long findCatalogVersion();
+
+    // Book stamps after the given one in (version, bookId) order, for keyset paging through new changes
+    @Query("SELECT s FROM CatalogStamps s WHERE s.bookId <> 0 AND (s.version > :afterVersion"
+            + " OR (s.version = :afterVersion AND s.bookId > :afterBookId)) ORDER BY s.version, s.bookId")
+    List<CatalogStamps> findStampedAfter(@Param("afterVersion") long afterVersion,
+                                         @Param("afterBookId") long afterBookId, Limit limit);
+
+    List<CatalogStamps> findByBookIdIn(Collection<Long> bookIds);
+}
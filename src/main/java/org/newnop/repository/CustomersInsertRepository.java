@@ -0,0 +1,6 @@
+package org.newnop.repository;
+
+public interface CustomersInsertRepository {
+    // Inserts a customer unless the name key is taken; returns false when another customer already has it
+    boolean insertIfAbsent(String nameKey, String name);
+}
@@ -0,0 +1,29 @@
+package org.newnop.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+// Goes through JDBC so that losing a race on the unique name key only fails this statement. The same
+// failure inside Hibernate would leave the session unusable and roll back the caller's transaction.
+public class CustomersInsertRepositoryImpl implements CustomersInsertRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CustomersInsertRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public boolean insertIfAbsent(String nameKey, String name) {
+        try {
+            jdbcTemplate.update("INSERT INTO customers (name_key, name) VALUES (?, ?)", nameKey, name);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
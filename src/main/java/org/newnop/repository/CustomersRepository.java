@@ -0,0 +1,21 @@
+package org.newnop.repository;
+
+import jakarta.persistence.LockModeType;
+import org.newnop.entity.Customers;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CustomersRepository extends JpaRepository<Customers, Long>, CustomersInsertRepository {
+    Optional<Customers> findByNameKey(String nameKey);
+
+    // A locking read sees customers committed after this transaction's snapshot was taken
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT c FROM Customers c WHERE c.nameKey = :nameKey")
+    Optional<Customers> findLockedByNameKey(@Param("nameKey") String nameKey);
+}
@@ -0,0 +1,57 @@
+package org.newnop.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.SpecHints;
+import org.newnop.entity.HoldStatus;
+import org.newnop.entity.Holds;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HoldsRepository extends JpaRepository<Holds, Long> {
+
+    // The waiting holds of these titles, each title's in dispatch order; served by idx_holds_dispatch. A locking
+    // read, so it also sees holds committed after the transaction began. Holds locked by another transaction, e.g.
+    // one cancelling them, are skipped (lock timeout -2) instead of waited for.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "-2"))
+    @Query("SELECT h FROM Holds h WHERE h.status = org.newnop.entity.HoldStatus.WAITING AND h.bookId IN :bookIds"
+            + " ORDER BY h.bookId, h.priority DESC, h.holdId")
+    List<Holds> findWaitingForUpdate(@Param("bookIds") Collection<Long> bookIds);
+
+    // Holds that some client waits on and that are no longer waiting
+    List<Holds> findByHoldIdInAndStatusNot(Collection<Long> holdIds, HoldStatus status);
+
+    boolean existsByBookIdAndCustomerIdAndStatusIn(Long bookId, Long customerId, Collection<HoldStatus> statuses);
+
+    // Served by idx_holds_ready_until
+    @Query("SELECT h FROM Holds h WHERE h.status = org.newnop.entity.HoldStatus.READY AND h.readyUntil < :now"
+            + " ORDER BY h.readyUntil")
+    List<Holds> findReadyUntilBefore(@Param("now") LocalDateTime now, Limit limit);
+
+    // Every change is conditional on the status the caller saw, so a hold changes hands at most once
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Holds h SET h.status = org.newnop.entity.HoldStatus.READY, h.readyUntil = :readyUntil"
+            + " WHERE h.holdId = :holdId AND h.status = org.newnop.entity.HoldStatus.WAITING")
+    int markReady(@Param("holdId") Long holdId, @Param("readyUntil") LocalDateTime readyUntil);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Holds h SET h.status = :to WHERE h.holdId = :holdId AND h.status = :from")
+    int changeStatus(@Param("holdId") Long holdId, @Param("from") HoldStatus from, @Param("to") HoldStatus to);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Holds h SET h.rentalId = :rentalId WHERE h.holdId = :holdId")
+    int setRental(@Param("holdId") Long holdId, @Param("rentalId") Long rentalId);
+}
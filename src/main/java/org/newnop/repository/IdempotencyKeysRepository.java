@@ -0,0 +1,25 @@
+package org.newnop.repository;
+
+import org.newnop.entity.IdempotencyKeys;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeysRepository extends JpaRepository<IdempotencyKeys, String> {
+
+    // A plain insert; save() would first select the row because the key is assigned, not generated
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, rental_id, response, created_at, expires_at) "
+            + "VALUES (:#{#key.idempotencyKey}, :#{#key.requestHash}, :#{#key.rentalId}, :#{#key.response}, "
+            + ":#{#key.createdAt}, :#{#key.expiresAt})", nativeQuery = true)
+    int insert(@Param("key") IdempotencyKeys key);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKeys k WHERE k.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,39 @@
+package org.newnop.repository;
+
+import org.newnop.entity.OutboxEvents;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventsRepository extends JpaRepository<OutboxEvents, Long> {
+
+    // Pending events that are due, oldest first
+    @Query("SELECT e FROM OutboxEvents e WHERE e.failedAt IS NULL AND e.nextAttemptAt <= :now ORDER BY e.eventId")
+    List<OutboxEvents> findDue(@Param("now") LocalDateTime now, Limit limit);
+
+    long countByFailedAtIsNull();
+
+    long countByFailedAtIsNotNull();
+
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvents e WHERE e.failedAt IS NULL")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvents e WHERE e.eventId IN :eventIds")
+    int deleteDelivered(@Param("eventIds") Collection<Long> eventIds);
+
+    @Modifying
+    @Query("UPDATE OutboxEvents e SET e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, "
+            + "e.lastError = :lastError, e.failedAt = :failedAt WHERE e.eventId = :eventId")
+    int recordFailure(@Param("eventId") Long eventId, @Param("attempts") int attempts,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("lastError") String lastError,
+                      @Param("failedAt") LocalDateTime failedAt);
+}
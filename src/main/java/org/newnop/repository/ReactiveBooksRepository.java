@@ -0,0 +1,106 @@
+package org.newnop.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import org.newnop.dto.BookDTO;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+// Non-blocking counterpart of the BooksRepository reads, over R2DBC. Rows map straight to BookDTO;
+// each query holds a pooled connection only until its last row has been read.
+// The pool is private to this repository: as a bean it would replace the JDBC DataSource, see Main.
+@Repository
+@ConditionalOnProperty(name = "reactive-catalog.enabled", havingValue = "true")
+public class ReactiveBooksRepository implements DisposableBean {
+
+    private static final String SELECT_BOOK_DTO = "SELECT book_id, title, author, genre, available, total_copies, available_copies"
+            + " FROM books";
+
+    private final ConnectionPool connectionPool;
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveBooksRepository(@Value("${reactive-catalog.r2dbc.url}") String url,
+                                   @Value("${reactive-catalog.r2dbc.username:}") String username,
+                                   @Value("${reactive-catalog.r2dbc.password:}") String password,
+                                   @Value("${reactive-catalog.r2dbc.max-pool-size:20}") int maxPoolSize) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .maxSize(maxPoolSize)
+                .build());
+        this.databaseClient = DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    public Mono<BookDTO> findDTOById(Long bookId) {
+        return databaseClient.sql(SELECT_BOOK_DTO + " WHERE book_id = :bookId")
+                .bind("bookId", bookId)
+                .map(ReactiveBooksRepository::toDTO)
+                .one();
+    }
+
+    public Flux<BookDTO> findAllDTOsById(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql(SELECT_BOOK_DTO + " WHERE book_id IN (:bookIds)")
+                .bind("bookIds", bookIds)
+                .map(ReactiveBooksRepository::toDTO)
+                .all();
+    }
+
+    public Flux<BookDTO> findDTOsAfter(long bookId, int limit) {
+        return databaseClient.sql(SELECT_BOOK_DTO + " WHERE book_id > :bookId ORDER BY book_id LIMIT :limit")
+                .bind("bookId", bookId)
+                .bind("limit", limit)
+                .map(ReactiveBooksRepository::toDTO)
+                .all();
+    }
+
+    // Served by idx_books_available
+    public Flux<BookDTO> findAvailableDTOsAfter(long bookId, int limit) {
+        return databaseClient.sql(SELECT_BOOK_DTO + " WHERE available = TRUE AND book_id > :bookId ORDER BY book_id LIMIT :limit")
+                .bind("bookId", bookId)
+                .bind("limit", limit)
+                .map(ReactiveBooksRepository::toDTO)
+                .all();
+    }
+
+    // Same substring match as BooksRepository's findDTOsBy*Containing; column is one of title, author or genre
+    public Flux<BookDTO> findDTOsContaining(String column, String text) {
+        if (!column.equals("title") && !column.equals("author") && !column.equals("genre")) {
+            throw new IllegalArgumentException("Cannot search column " + column);
+        }
+        return databaseClient.sql(SELECT_BOOK_DTO + " WHERE LOWER(" + column + ") LIKE LOWER(CONCAT('%', :text, '%'))")
+                .bind("text", text)
+                .map(ReactiveBooksRepository::toDTO)
+                .all();
+    }
+
+    // Private helper methods
+    private static BookDTO toDTO(Readable row) {
+        return new BookDTO(row.get("book_id", Long.class), row.get("title", String.class), row.get("author", String.class),
+                row.get("genre", String.class), row.get("available", Boolean.class), row.get("total_copies", Integer.class),
+                row.get("available_copies", Integer.class));
+    }
+}
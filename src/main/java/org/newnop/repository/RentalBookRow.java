@@ -0,0 +1,6 @@
+package org.newnop.repository;
+
+// One book of a rental, read straight from rental_items joined with books without loading either entity
+public record RentalBookRow(Long rentalId, Long bookId, String title, String author, String genre, Boolean available,
+                            Integer totalCopies, Integer availableCopies) {
+}
@@ -0,0 +1,8 @@
+package org.newnop.repository;
+
+import java.util.Collection;
+
+public interface RentalItemsBatchRepository {
+    // Inserts one rental item per book as a single JDBC batch
+    void insertAll(Long rentalId, Collection<Long> bookIds);
+}
@@ -0,0 +1,29 @@
+package org.newnop.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// RentalItems uses IDENTITY keys, which stops Hibernate from batching inserts, so these go through JDBC
+public class RentalItemsBatchRepositoryImpl implements RentalItemsBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public RentalItemsBatchRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void insertAll(Long rentalId, Collection<Long> bookIds) {
+        List<Object[]> rows = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            rows.add(new Object[]{rentalId, bookId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO rental_items (rental_id, book_id) VALUES (?, ?)", rows);
+    }
+}
@@ -1,14 +1,48 @@
 package org.newnop.repository;
 
 
+import org.newnop.dto.BookRentalHistoryDTO;
 import org.newnop.entity.RentalItems;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface RentalItemsRepository extends JpaRepository<RentalItems, Long> {
+public interface RentalItemsRepository extends JpaRepository<RentalItems, Long>, RentalItemsBatchRepository {
+
     List<RentalItems> findByRentalRentalId(Long rentalId);
-    List<RentalItems> findByBookBookId(Long bookId);
-}
\ No newline at end of file
+
+    // Books of many rentals in a single statement, in the order they were added to their rentals
+    @Query("SELECT new org.newnop.repository.RentalBookRow(ri.rental.rentalId, b.bookId, b.title, b.author, b.genre,"
+            + " b.available, b.totalCopies, b.availableCopies) FROM RentalItems ri JOIN ri.book b WHERE ri.rental.rentalId IN :rentalIds ORDER BY ri.rentalItemId")
+    List<RentalBookRow> findBooksByRentalIds(@Param("rentalIds") Collection<Long> rentalIds);
+
+    // A book's rentals newest first, before the given rental ID; served by idx_rental_items_book
+    @Query("SELECT new org.newnop.dto.BookRentalHistoryDTO(r.rentalId, c.customerId, r.userDetails,"
+            + " r.rentalDate, r.dueDate, r.returnDate) FROM RentalItems ri JOIN ri.rental r LEFT JOIN r.customer c"
+            + " WHERE ri.book.bookId = :bookId AND ri.rental.rentalId < :beforeRentalId ORDER BY ri.rental.rentalId DESC")
+    List<BookRentalHistoryDTO> findHistoryByBook(@Param("bookId") Long bookId,
+                                                 @Param("beforeRentalId") Long beforeRentalId, Limit limit);
+
+    // One book ID per rental item, so a title appears once for every copy the rentals hold
+    @Query("SELECT ri.book.bookId FROM RentalItems ri WHERE ri.rental.rentalId IN :rentalIds")
+    List<Long> findBookIdsByRentalIds(@Param("rentalIds") Collection<Long> rentalIds);
+
+    // Aggregates for rebuilding and reconciling the rental statistics; each row is {key, count}
+    @Query("SELECT ri.book.bookId, COUNT(ri) FROM RentalItems ri GROUP BY ri.book.bookId")
+    List<Object[]> countRentalsByBook();
+
+    @Query("SELECT b.genre, COUNT(ri) FROM RentalItems ri JOIN ri.book b GROUP BY b.genre")
+    List<Object[]> countRentalsByGenre();
+
+    @Query("SELECT b.author, COUNT(ri) FROM RentalItems ri JOIN ri.book b GROUP BY b.author")
+    List<Object[]> countRentalsByAuthor();
+
+    @Query("SELECT COUNT(ri) FROM RentalItems ri WHERE ri.rental.returnDate IS NULL")
+    long countBooksOut();
+}
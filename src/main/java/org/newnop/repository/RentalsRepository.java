@@ -1,16 +1,85 @@
 package org.newnop.repository;
 
 
+import jakarta.persistence.LockModeType;
+import org.newnop.dto.CustomerRentalDTO;
+import org.newnop.dto.RentalDTO;
 import org.newnop.entity.Rentals;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RentalsRepository extends JpaRepository<Rentals, Long> {
-    List<Rentals> findByUserDetailsContainingIgnoreCase(String userDetails);
     List<Rentals> findByRentalDateBetween(LocalDate startDate, LocalDate endDate);
     List<Rentals> findByReturnDateIsNull();
-}
\ No newline at end of file
+    long countByReturnDateIsNull();
+
+    // Rentals started per day; each row is {rentalDate, count}
+    @Query("SELECT r.rentalDate, COUNT(r) FROM Rentals r GROUP BY r.rentalDate")
+    List<Object[]> countRentalsByDate();
+
+    // Reads select straight into RentalDTO; the books are added by the caller
+    String RENTAL_DTO = "new org.newnop.dto.RentalDTO(r.rentalId, r.userDetails, r.rentalDate, r.returnDate, r.dueDate,"
+            + " r.lateFee, c.customerId)";
+
+    @Query("SELECT " + RENTAL_DTO + " FROM Rentals r LEFT JOIN r.customer c ORDER BY r.rentalId")
+    List<RentalDTO> findAllAsDTO();
+
+    @Query("SELECT " + RENTAL_DTO + " FROM Rentals r LEFT JOIN r.customer c WHERE r.rentalId = :rentalId")
+    Optional<RentalDTO> findDTOById(@Param("rentalId") Long rentalId);
+
+    @Query("SELECT " + RENTAL_DTO + " FROM Rentals r LEFT JOIN r.customer c WHERE r.rentalId > :rentalId ORDER BY r.rentalId")
+    List<RentalDTO> findDTOsAfter(@Param("rentalId") Long rentalId, Limit limit);
+
+    // Keyset position before any real due date
+    LocalDate OVERDUE_SCAN_START = LocalDate.of(1970, 1, 1);
+
+    // Open rentals due before today, after the given (due date, rental ID) position
+    String OVERDUE = " WHERE r.returnDate IS NULL AND r.dueDate < :today"
+            + " AND (r.dueDate > :afterDueDate OR (r.dueDate = :afterDueDate AND r.rentalId > :afterRentalId))";
+    String OVERDUE_ORDER = " ORDER BY r.dueDate, r.rentalId";
+    String OVERDUE_AFTER = OVERDUE + OVERDUE_ORDER;
+
+    // Overdue rentals not assessed today, for the sweep; fee_assessed_on is read from idx_rentals_open_due
+    @Query("SELECT r FROM Rentals r" + OVERDUE + " AND (r.feeAssessedOn IS NULL OR r.feeAssessedOn < :today)"
+            + OVERDUE_ORDER)
+    List<Rentals> findUnassessedOverdueAfter(@Param("today") LocalDate today, @Param("afterDueDate") LocalDate afterDueDate,
+                                             @Param("afterRentalId") Long afterRentalId, Limit limit);
+
+    @Query("SELECT " + RENTAL_DTO + " FROM Rentals r LEFT JOIN r.customer c" + OVERDUE_AFTER)
+    List<RentalDTO> findOverdueDTOsAfter(@Param("today") LocalDate today, @Param("afterDueDate") LocalDate afterDueDate,
+                                         @Param("afterRentalId") Long afterRentalId, Limit limit);
+
+    // Rentals with a customer name but no customer record yet, in rental ID order
+    @Query("SELECT r FROM Rentals r WHERE r.customer IS NULL AND r.userDetails IS NOT NULL AND r.rentalId > :afterRentalId"
+            + " ORDER BY r.rentalId")
+    List<Rentals> findUnassignedAfter(@Param("afterRentalId") Long afterRentalId, Limit limit);
+
+    // A customer's rentals newest first, before the given rental ID; served by idx_rentals_customer
+    @Query("SELECT new org.newnop.dto.CustomerRentalDTO(r.rentalId, r.rentalDate, r.dueDate, r.returnDate, r.lateFee)"
+            + " FROM Rentals r WHERE r.customer.customerId = :customerId AND r.rentalId < :beforeRentalId"
+            + " ORDER BY r.rentalId DESC")
+    List<CustomerRentalDTO> findHistoryByCustomer(@Param("customerId") Long customerId,
+                                                  @Param("beforeRentalId") Long beforeRentalId, Limit limit);
+
+    // Locked in ascending ID order, so overlapping returns cannot deadlock; a return that waited here reads the
+    // return date the one before it committed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Rentals r WHERE r.rentalId IN :rentalIds ORDER BY r.rentalId")
+    List<Rentals> findAllForReturn(@Param("rentalIds") Collection<Long> rentalIds);
+
+    // Closes only rentals that are still open; the count tells the caller whether another request closed some first
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Rentals r SET r.returnDate = :returnDate WHERE r.rentalId IN :rentalIds AND r.returnDate IS NULL")
+    int markReturned(@Param("rentalIds") Collection<Long> rentalIds, @Param("returnDate") LocalDate returnDate);
+}
@@ -0,0 +1,395 @@
+package org.newnop.search;
+
+import org.newnop.dto.BookDTO;
+import org.newnop.entity.Books;
+import org.newnop.replica.ReadConsistency;
+import org.newnop.repository.BooksRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// In-memory inverted index over book title, author and genre.
+// Every query token must match a term of its field exactly or as a prefix; hits are ranked by
+// field weight * idf, with exact term matches counting double. The index only returns book IDs,
+// so availability is always read from the database by the caller.
+// A rebuild fills a new set of terms and documents without the lock, so searches and writes go on meanwhile;
+// writes are also recorded and replayed on the new set before it replaces the old one. Until then both are held.
+@Component
+public class BookSearchIndex {
+
+    public enum Field {
+        TITLE(3.0f), AUTHOR(2.0f), GENRE(1.0f);
+
+        private final float weight;
+
+        Field(float weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    private static final int MAX_TERMS_PER_LOOKUP = 16;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Contents contents = new Contents();
+    // Writes made while a rebuild runs, in order; null otherwise
+    private List<Change> changes;
+    private volatile boolean ready;
+
+    // Searches fall back to the database until the first build has completed
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return contents.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Built from the primary; books added since are indexed as they are written
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        ReadConsistency.runOnPrimary(() -> rebuild(booksRepository::streamAllAsDTO));
+    }
+
+    // Changes are recorded only from this call on, so ones committed after the stream's query ran can be missed
+    public void rebuild(Stream<BookDTO> books) {
+        rebuild(() -> books);
+    }
+
+    public void index(Books book) {
+        write(new Change(book.getBookId(), book.getTitle(), book.getAuthor(), book.getGenre(), false));
+    }
+
+    public void remove(Long bookId) {
+        write(new Change(bookId, null, null, null, true));
+    }
+
+    // Returns up to limit book IDs matching every given criterion, best match first
+    public List<Long> search(String title, String author, String genre, int limit) {
+        List<Clause> clauses = new ArrayList<>();
+        addClauses(clauses, Field.TITLE, title);
+        addClauses(clauses, Field.AUTHOR, author);
+        addClauses(clauses, Field.GENRE, genre);
+        if (clauses.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            Contents searched = contents;
+            // Drive the search from the most selective clause and verify the others per candidate
+            Clause driver = null;
+            for (Clause clause : clauses) {
+                clause.matchingTerms = searched.termsByField.get(clause.field)
+                        .subMap(clause.token, true, clause.token + Character.MAX_VALUE, false);
+                clause.estimatedHits = clause.matchingTerms.values().stream().mapToLong(Postings::size).sum();
+                prepareLookup(searched, clause);
+                if (driver == null || clause.estimatedHits < driver.estimatedHits) {
+                    driver = clause;
+                }
+            }
+            if (driver.estimatedHits == 0) {
+                return Collections.emptyList();
+            }
+
+            PriorityQueue<ScoredBook> topHits = new PriorityQueue<>(Comparator.reverseOrder());
+            Set<Long> seen = driver.matchingTerms.size() > 1 ? new HashSet<>() : null;
+            for (Map.Entry<String, Postings> entry : driver.matchingTerms.entrySet()) {
+                Postings postings = entry.getValue();
+                float driverScore = termScore(searched, driver, entry.getKey(), postings);
+                for (int i = 0; i < postings.size; i++) {
+                    long bookId = postings.ids[i];
+                    if (seen != null && !seen.add(bookId)) {
+                        continue;
+                    }
+                    float score = seen != null ? score(searched, bookId, driver, driverScore) : driverScore;
+                    for (Clause clause : clauses) {
+                        if (clause != driver && score > 0) {
+                            float clauseScore = score(searched, bookId, clause, 0);
+                            score = clauseScore > 0 ? score + clauseScore : 0;
+                        }
+                    }
+                    // Skip hits that cannot enter the top results; on a tie the hit found first is kept
+                    if (score <= 0 || (topHits.size() == limit && score <= topHits.peek().score)) {
+                        continue;
+                    }
+                    topHits.add(new ScoredBook(bookId, score));
+                    if (topHits.size() > limit) {
+                        topHits.poll();
+                    }
+                }
+            }
+
+            List<ScoredBook> ranked = new ArrayList<>(topHits);
+            Collections.sort(ranked);
+            List<Long> bookIds = new ArrayList<>(ranked.size());
+            ranked.forEach(hit -> bookIds.add(hit.bookId));
+            return bookIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    // Private helper methods
+    // Changes made while the new contents are built are recorded from before the books are read, so a change
+    // committed after the read began is replayed even when the read missed it
+    private synchronized void rebuild(Supplier<Stream<BookDTO>> source) {
+        List<Change> recorded = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            changes = recorded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Contents rebuilt = new Contents();
+        try (Stream<BookDTO> books = source.get()) {
+            books.forEach(book -> rebuilt.add(book.getBookId(), book.getTitle(), book.getAuthor(), book.getGenre()));
+
+            lock.writeLock().lock();
+            try {
+                recorded.forEach(change -> change.applyTo(rebuilt));
+                contents = rebuilt;
+                changes = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changes = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+    }
+
+    private void write(Change change) {
+        lock.writeLock().lock();
+        try {
+            change.applyTo(contents);
+            if (changes != null) {
+                changes.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Best score of a book for one clause, or 0 when none of the clause's terms contain the book
+    private float score(Contents searched, long bookId, Clause clause, float atLeast) {
+        float best = atLeast;
+        if (clause.lookupPostings != null) {
+            for (int i = 0; i < clause.lookupPostings.length; i++) {
+                if (clause.lookupScores[i] > best && clause.lookupPostings[i].contains(bookId)) {
+                    best = clause.lookupScores[i];
+                }
+            }
+            return best;
+        }
+
+        // Broad prefixes match many terms; checking the book's own terms is cheaper then
+        for (String term : searched.documents.get(bookId)[clause.field.ordinal()]) {
+            if (term.startsWith(clause.token)) {
+                best = Math.max(best, termScore(searched, clause, term, clause.matchingTerms.get(term)));
+            }
+        }
+        return best;
+    }
+
+    private float termScore(Contents searched, Clause clause, String term, Postings postings) {
+        float match = term.length() == clause.token.length() ? 1.0f : PREFIX_MATCH_FACTOR;
+        return match * clause.field.weight * idf(searched, postings);
+    }
+
+    private float idf(Contents searched, Postings postings) {
+        return (float) Math.log(1.0 + (double) searched.documents.size() / postings.size);
+    }
+
+    private void prepareLookup(Contents searched, Clause clause) {
+        if (clause.matchingTerms.size() > MAX_TERMS_PER_LOOKUP) {
+            return;
+        }
+        clause.lookupPostings = new Postings[clause.matchingTerms.size()];
+        clause.lookupScores = new float[clause.matchingTerms.size()];
+        int i = 0;
+        for (Map.Entry<String, Postings> entry : clause.matchingTerms.entrySet()) {
+            clause.lookupPostings[i] = entry.getValue();
+            clause.lookupScores[i] = termScore(searched, clause, entry.getKey(), entry.getValue());
+            i++;
+        }
+    }
+
+    private void addClauses(List<Clause> clauses, Field field, String text) {
+        for (String token : tokenize(text)) {
+            clauses.add(new Clause(field, token));
+        }
+    }
+
+    // Terms and documents of the index; replaced as a whole by a rebuild
+    private static final class Contents {
+        private final Map<Field, TreeMap<String, Postings>> termsByField = new HashMap<>();
+        private final Map<Long, String[][]> documents = new HashMap<>();
+
+        private Contents() {
+            for (Field field : Field.values()) {
+                termsByField.put(field, new TreeMap<>());
+            }
+        }
+
+        private void add(Long bookId, String title, String author, String genre) {
+            String[][] fields = new String[Field.values().length][];
+            fields[Field.TITLE.ordinal()] = addTerms(Field.TITLE, bookId, title);
+            fields[Field.AUTHOR.ordinal()] = addTerms(Field.AUTHOR, bookId, author);
+            fields[Field.GENRE.ordinal()] = addTerms(Field.GENRE, bookId, genre);
+            documents.put(bookId, fields);
+        }
+
+        private String[] addTerms(Field field, long bookId, String text) {
+            String[] terms = tokenize(text);
+            TreeMap<String, Postings> index = termsByField.get(field);
+            for (int i = 0; i < terms.length; i++) {
+                Map.Entry<String, Postings> entry = index.ceilingEntry(terms[i]);
+                if (entry != null && entry.getKey().equals(terms[i])) {
+                    // Share the indexed string instead of keeping one copy per document
+                    terms[i] = entry.getKey();
+                    entry.getValue().add(bookId);
+                } else {
+                    Postings postings = new Postings();
+                    postings.add(bookId);
+                    index.put(terms[i], postings);
+                }
+            }
+            return terms;
+        }
+
+        private void remove(Long bookId) {
+            String[][] fields = documents.remove(bookId);
+            if (fields == null) {
+                return;
+            }
+            for (Field field : Field.values()) {
+                NavigableMap<String, Postings> index = termsByField.get(field);
+                for (String term : fields[field.ordinal()]) {
+                    Postings postings = index.get(term);
+                    postings.remove(bookId);
+                    if (postings.size == 0) {
+                        index.remove(term);
+                    }
+                }
+            }
+        }
+    }
+
+    // A write, recorded while a rebuild runs
+    private record Change(Long bookId, String title, String author, String genre, boolean removed) {
+        private void applyTo(Contents target) {
+            target.remove(bookId);
+            if (!removed) {
+                target.add(bookId, title, author, genre);
+            }
+        }
+    }
+
+    private static final class Clause {
+        private final Field field;
+        private final String token;
+        private NavigableMap<String, Postings> matchingTerms;
+        private long estimatedHits;
+        // Matching terms resolved once per query, unless the prefix is too broad
+        private Postings[] lookupPostings;
+        private float[] lookupScores;
+
+        private Clause(Field field, String token) {
+            this.field = field;
+            this.token = token;
+        }
+    }
+
+    private record ScoredBook(long bookId, float score) implements Comparable<ScoredBook> {
+        // Higher score first, then lower ID for a stable order
+        @Override
+        public int compareTo(ScoredBook other) {
+            int byScore = Float.compare(other.score, score);
+            return byScore != 0 ? byScore : Long.compare(bookId, other.bookId);
+        }
+    }
+
+    // Sorted, primitive list of book IDs; new books get increasing IDs so adds are usually appends
+    private static final class Postings {
+        private long[] ids = new long[2];
+        private int size;
+
+        private int size() {
+            return size;
+        }
+
+        private boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void add(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        private void remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+        }
+    }
+}
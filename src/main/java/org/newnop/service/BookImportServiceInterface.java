@@ -0,0 +1,12 @@
+package org.newnop.service;
+import org.newnop.dto.ImportResultDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+
+public interface BookImportServiceInterface {
+
+    ImportResultDTO importCsv(Reader reader) throws IOException;
+
+    ImportResultDTO importNdjson(Reader reader) throws IOException;
+}
@@ -1,13 +1,22 @@
 package org.newnop.service;
+import org.newnop.dto.AvailabilityConsistencyDTO;
 import org.newnop.dto.BookDTO;
+import org.newnop.dto.CursorPageDTO;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface BookServiceInterface {
 
     BookDTO createBook(BookDTO bookDTO);
 
     List<BookDTO> getAllBooks();
+    CursorPageDTO<BookDTO> getBooksPage(Long after, int size);
+    void streamAllBooks(Consumer<BookDTO> consumer);
     List<BookDTO> getAvailableBooks();
+    CursorPageDTO<BookDTO> getAvailableBooksPage(Long after, int size);
+    long countAvailableBooks();
+    boolean isBookAvailable(Long id);
+    AvailabilityConsistencyDTO checkAvailabilityConsistency();
     BookDTO getBookById(Long id);
 
     BookDTO updateBook(Long id, BookDTO bookDTO);
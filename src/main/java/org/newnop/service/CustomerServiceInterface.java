@@ -0,0 +1,8 @@
+package org.newnop.service;
+import org.newnop.dto.CustomerDTO;
+
+public interface CustomerServiceInterface {
+
+    CustomerDTO getCustomerById(Long id);
+    CustomerDTO findCustomerByName(String name);
+}
@@ -0,0 +1,12 @@
+package org.newnop.service;
+import org.newnop.dto.HoldDTO;
+import org.newnop.dto.PlaceHoldRequest;
+import org.newnop.dto.RentalDTO;
+
+public interface HoldServiceInterface {
+
+    HoldDTO placeHold(PlaceHoldRequest request);
+    HoldDTO getHold(Long id);
+    HoldDTO cancelHold(Long id);
+    RentalDTO checkoutHold(Long id);
+}
@@ -1,17 +1,27 @@
 package org.newnop.service;
+import org.newnop.dto.BookRentalHistoryDTO;
 import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.dto.CustomerRentalDTO;
 import org.newnop.dto.RentalDTO;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface RentalServiceInterface {
 
     RentalDTO createRental(CreateRentalRequest request);
 
     List<RentalDTO> getAllRentals();
+    CursorPageDTO<RentalDTO> getRentalsPage(Long after, int size);
+    void streamAllRentals(Consumer<RentalDTO> consumer);
     RentalDTO getRentalById(Long id);
+    CursorPageDTO<RentalDTO> getOverdueRentalsPage(Long after, int size);
+    CursorPageDTO<BookRentalHistoryDTO> getBookRentalHistory(Long bookId, Long before, int size);
+    CursorPageDTO<CustomerRentalDTO> getCustomerRentalHistory(Long customerId, Long before, int size);
 
     RentalDTO updateRental(Long id, RentalDTO rentalDTO);
 
     RentalDTO returnBooks(Long rentalId);
+    List<RentalDTO> returnRentals(List<Long> rentalIds);
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package org.newnop.service;
+
+import org.newnop.dto.BookRentalCountDTO;
+import org.newnop.dto.DailyRentalCountDTO;
+import org.newnop.dto.RentalCountDTO;
+import org.newnop.dto.RentalStatsSummaryDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface StatsServiceInterface {
+
+    List<BookRentalCountDTO> getTopBooks(int limit);
+    List<RentalCountDTO> getTopGenres(int limit);
+    List<RentalCountDTO> getTopAuthors(int limit);
+    List<DailyRentalCountDTO> getRentalsPerDay(LocalDate from, LocalDate to);
+    RentalStatsSummaryDTO getSummary();
+
+    long reconcile();
+}
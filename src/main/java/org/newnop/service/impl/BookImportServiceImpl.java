@@ -0,0 +1,270 @@
+package org.newnop.service.impl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.dto.BookDTO;
+import org.newnop.dto.ImportErrorDTO;
+import org.newnop.dto.ImportResultDTO;
+import org.newnop.entity.Books;
+import org.newnop.repository.BooksRepository;
+import org.newnop.search.BookSearchIndex;
+import org.newnop.service.BookImportServiceInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Streams an upload line by line and stores it in JDBC batches of BATCH_SIZE rows, each in its own
+// transaction, so neither the upload nor the import holds more than one batch in memory.
+// Invalid rows are skipped and reported; the rest of the file is still imported.
+@Service
+public class BookImportServiceImpl implements BookImportServiceInterface {
+
+    public static final int BATCH_SIZE = 1000;
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_COLUMN_LENGTH = 255;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookAvailabilityIndex bookAvailabilityIndex;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public ImportResultDTO importCsv(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        ImportRun run = new ImportRun();
+
+        String header = lines.readLine();
+        if (header == null) {
+            return run.finish();
+        }
+        List<String> columns = parseCsvLine(header.replace("\uFEFF", "")).stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        int title = columns.indexOf("title");
+        int author = columns.indexOf("author");
+        int genre = columns.indexOf("genre");
+        int available = columns.indexOf("available");
+        int copies = columns.indexOf("copies");
+        if (title < 0 || author < 0) {
+            throw new IllegalArgumentException("CSV header must contain title and author columns");
+        }
+
+        String line;
+        long lineNumber = 1;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                List<String> fields = parseCsvLine(line);
+                run.add(lineNumber, toBook(field(fields, title), field(fields, author), field(fields, genre),
+                        parseAvailable(field(fields, available)), parseCopies(field(fields, copies))));
+            } catch (IllegalArgumentException e) {
+                run.fail(lineNumber, e.getMessage());
+            }
+        }
+        return run.finish();
+    }
+
+    @Override
+    public ImportResultDTO importNdjson(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        ImportRun run = new ImportRun();
+
+        String line;
+        long lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                BookDTO bookDTO = objectMapper.readValue(line, BookDTO.class);
+                run.add(lineNumber, toBook(bookDTO.getTitle(), bookDTO.getAuthor(), bookDTO.getGenre(), bookDTO.getAvailable(),
+                        bookDTO.getTotalCopies()));
+            } catch (JsonProcessingException e) {
+                run.fail(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+            } catch (IllegalArgumentException e) {
+                run.fail(lineNumber, e.getMessage());
+            }
+        }
+        return run.finish();
+    }
+
+    // Minimal RFC 4180 parsing: quoted fields may contain commas and doubled quotes, but not line breaks
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Private helper methods
+    private String field(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private Boolean parseAvailable(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+            return Boolean.valueOf(value);
+        }
+        throw new IllegalArgumentException("Available must be true or false");
+    }
+
+    private Integer parseCopies(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Copies must be a whole number");
+        }
+    }
+
+    // All copies of an imported title are on the shelf, or none when it is marked unavailable
+    private Books toBook(String title, String author, String genre, Boolean available, Integer copies) {
+        if (title == null || title.isBlank()) {
+            throw new IllegalArgumentException("Title is required");
+        }
+        if (author == null || author.isBlank()) {
+            throw new IllegalArgumentException("Author is required");
+        }
+        checkLength("Title", title);
+        checkLength("Author", author);
+        checkLength("Genre", genre);
+        if (copies != null && copies < 0) {
+            throw new IllegalArgumentException("Copies cannot be negative");
+        }
+
+        Books book = new Books();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        book.setAvailable(available != null ? available : true);
+        book.setTotalCopies(copies != null ? copies : 1);
+        return book;
+    }
+
+    private void checkLength(String name, String value) {
+        if (value != null && value.length() > MAX_COLUMN_LENGTH) {
+            throw new IllegalArgumentException(name + " must be at most " + MAX_COLUMN_LENGTH + " characters");
+        }
+    }
+
+    // Collects rows into batches and keeps the running totals of one import
+    private class ImportRun {
+        private final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        private final List<Books> pending = new ArrayList<>(BATCH_SIZE);
+        private final List<Long> pendingLines = new ArrayList<>(BATCH_SIZE);
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        private void add(long lineNumber, Books book) {
+            pending.add(book);
+            pendingLines.add(lineNumber);
+            if (pending.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void fail(long lineNumber, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportErrorDTO(lineNumber, message));
+            }
+        }
+
+        private ImportResultDTO finish() {
+            flush();
+            return new ImportResultDTO(imported, failed, errors);
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                insert(pending);
+            } catch (DataAccessException e) {
+                // Retry row by row so one bad row does not cost the whole batch
+                for (int i = 0; i < pending.size(); i++) {
+                    try {
+                        insert(List.of(pending.get(i)));
+                    } catch (DataAccessException rowException) {
+                        fail(pendingLines.get(i), "Could not store book: " + rowException.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            pending.clear();
+            pendingLines.clear();
+        }
+
+        private void insert(List<Books> books) {
+            transactionTemplate.executeWithoutResult(status -> booksRepository.insertAll(books));
+            imported += books.size();
+            List<Long> bookIds = new ArrayList<>(books.size());
+            for (Books book : books) {
+                bookSearchIndex.index(book);
+                bookAvailabilityIndex.update(book.getBookId(), book.getAvailable());
+                bookIds.add(book.getBookId());
+            }
+            catalogVersions.changed(bookIds);
+        }
+    }
+}
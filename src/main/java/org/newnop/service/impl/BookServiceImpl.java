@@ -1,71 +1,194 @@
 package org.newnop.service.impl;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.dto.AvailabilityConsistencyDTO;
 import org.newnop.dto.BookDTO;
+import org.newnop.dto.CursorPageDTO;
 import org.newnop.entity.Books;
+import org.newnop.event.BookUpdated;
+import org.newnop.mapper.BookMapper;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.replica.ReadConsistency;
 import org.newnop.repository.BooksRepository;
+import org.newnop.search.BookSearchIndex;
 import org.newnop.service.BookServiceInterface;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookServiceImpl implements BookServiceInterface {
 
+    public static final int MAX_PAGE_SIZE = 500;
+    // Documented on GET /api/books/search; change both together
+    public static final int MAX_SEARCH_RESULTS = 100;
+
     @Autowired
     private BooksRepository booksRepository;
 
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private BookAvailabilityIndex bookAvailabilityIndex;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
     @Override
     public BookDTO createBook(BookDTO bookDTO) {
-        Books book = new Books();
-        book.setTitle(bookDTO.getTitle());
-        book.setAuthor(bookDTO.getAuthor());
-        book.setGenre(bookDTO.getGenre());
-        book.setAvailable(bookDTO.getAvailable() != null ? bookDTO.getAvailable() : true);
-
-        Books savedBook = booksRepository.save(book);
-        return convertToDTO(savedBook);
+        int totalCopies = bookDTO.getTotalCopies() != null ? bookDTO.getTotalCopies() : 1;
+        if (totalCopies < 0) {
+            throw new IllegalArgumentException("Total copies cannot be negative");
+        }
+        if (bookDTO.getAvailableCopies() != null
+                && (bookDTO.getAvailableCopies() < 0 || bookDTO.getAvailableCopies() > totalCopies)) {
+            throw new IllegalArgumentException("Available copies must be between 0 and " + totalCopies);
+        }
+        Books savedBook = booksRepository.save(bookMapper.toEntity(bookDTO));
+        bookSearchIndex.index(savedBook);
+        bookAvailabilityIndex.update(savedBook.getBookId(), savedBook.getAvailable());
+        catalogVersions.changed(savedBook.getBookId());
+        return bookMapper.toDTO(savedBook);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDTO> getAllBooks() {
-        List<Books> books = booksRepository.findAll();
-        return books.stream().map(this::convertToDTO).collect(Collectors.toList());
+        return booksRepository.findAllAsDTO();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<BookDTO> getBooksPage(Long after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // Fetch one extra row to learn whether another page follows
+        List<BookDTO> books = booksRepository.findDTOsAfter(after != null ? after : 0L, Limit.of(size + 1));
+        Long nextCursor = null;
+        if (books.size() > size) {
+            books = books.subList(0, size);
+            nextCursor = books.get(size - 1).getBookId();
+        }
+
+        return new CursorPageDTO<>(books, nextCursor);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void streamAllBooks(Consumer<BookDTO> consumer) {
+        try (Stream<BookDTO> books = booksRepository.streamAllAsDTO()) {
+            books.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<BookDTO> getAvailableBooks() {
-        List<Books> books = booksRepository.findByAvailableTrue();
-        return books.stream().map(this::convertToDTO).collect(Collectors.toList());
+        if (!bookAvailabilityIndex.isReady()) {
+            return booksRepository.findAvailableAsDTO();
+        }
+
+        // Read only the available rows, by primary key, instead of scanning the whole table
+        List<Long> bookIds = bookAvailabilityIndex.availableIds(null, Integer.MAX_VALUE);
+        List<BookDTO> books = new ArrayList<>(bookIds.size());
+        for (int from = 0; from < bookIds.size(); from += MAX_PAGE_SIZE) {
+            books.addAll(findAvailableInOrder(bookIds.subList(from, Math.min(from + MAX_PAGE_SIZE, bookIds.size()))));
+        }
+        return books;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<BookDTO> getAvailableBooksPage(Long after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // Take one extra ID to learn whether another page follows
+        List<Long> bookIds = bookAvailabilityIndex.availableIds(after, size + 1);
+        Long nextCursor = null;
+        if (bookIds.size() > size) {
+            bookIds = bookIds.subList(0, size);
+            nextCursor = bookIds.get(size - 1);
+        }
+        return new CursorPageDTO<>(findAvailableInOrder(bookIds), nextCursor);
     }
 
+    @Override
+    public long countAvailableBooks() {
+        return bookAvailabilityIndex.count();
+    }
+
+    @Override
+    public boolean isBookAvailable(Long id) {
+        return bookAvailabilityIndex.isAvailable(id);
+    }
+
+    @Override
+    public AvailabilityConsistencyDTO checkAvailabilityConsistency() {
+        return bookAvailabilityIndex.checkConsistency();
+    }
+
+    // Not transactional on purpose: a cache hit should not take a connection from the pool
     @Override
     public BookDTO getBookById(Long id) {
-        Optional<Books> book = booksRepository.findById(id);
-        return book.map(this::convertToDTO).orElse(null);
+        // Loaded from the primary: a lagging replica could put back a row the last write just invalidated
+        return bookCache.get(id, bookId -> ReadConsistency.onPrimary(() ->
+                booksRepository.findDTOById(bookId).orElse(null)));
     }
 
+    // Transactional so the BookUpdated event commits with the change, and a refused change of copies undoes the edit
     @Override
+    @Transactional
     public BookDTO updateBook(Long id, BookDTO bookDTO) {
         Optional<Books> optionalBook = booksRepository.findById(id);
         if (optionalBook.isPresent()) {
             Books book = optionalBook.get();
+            bookMapper.updateEntity(bookDTO, book);
+            Books updatedBook = booksRepository.save(book);
 
-            if (bookDTO.getTitle() != null) {
-                book.setTitle(bookDTO.getTitle());
-            }
-            if (bookDTO.getAuthor() != null) {
-                book.setAuthor(bookDTO.getAuthor());
-            }
-            if (bookDTO.getGenre() != null) {
-                book.setGenre(bookDTO.getGenre());
-            }
-            if (bookDTO.getAvailable() != null) {
-                book.setAvailable(bookDTO.getAvailable());
+            // Copies are added or removed relative to the current counts, so checkouts meanwhile are not undone
+            if (bookDTO.getTotalCopies() != null) {
+                if (bookDTO.getTotalCopies() < 0) {
+                    throw new IllegalArgumentException("Total copies cannot be negative");
+                }
+                if (booksRepository.changeTotalCopies(id, bookDTO.getTotalCopies()) == 0) {
+                    throw new IllegalStateException("Book with ID " + id + " has more than "
+                            + bookDTO.getTotalCopies() + " copies rented");
+                }
+                updatedBook = booksRepository.findById(id).orElseThrow();
             }
 
-            Books updatedBook = booksRepository.save(book);
-            return convertToDTO(updatedBook);
+            outboxPublisher.publish(new BookUpdated(updatedBook.getBookId(), updatedBook.getTitle(),
+                    updatedBook.getAuthor(), updatedBook.getGenre(), updatedBook.getAvailable()));
+            bookSearchIndex.index(updatedBook);
+            bookAvailabilityIndex.refresh(id);
+            bookCache.invalidate(id);
+            catalogVersions.changedWithEvent(id);
+            return bookMapper.toDTO(updatedBook);
         }
         return null;
     }
@@ -74,36 +197,58 @@ public class BookServiceImpl implements BookServiceInterface {
     public boolean deleteBook(Long id) {
         if (booksRepository.existsById(id)) {
             booksRepository.deleteById(id);
+            bookSearchIndex.remove(id);
+            bookAvailabilityIndex.update(id, false);
+            bookCache.invalidate(id);
+            catalogVersions.changed(id);
             return true;
         }
         return false;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDTO> searchBooks(String title, String author, String genre) {
-        List<Books> books;
-
-        if (title != null && !title.isEmpty()) {
-            books = booksRepository.findByTitleContainingIgnoreCase(title);
-        } else if (author != null && !author.isEmpty()) {
-            books = booksRepository.findByAuthorContainingIgnoreCase(author);
-        } else if (genre != null && !genre.isEmpty()) {
-            books = booksRepository.findByGenreContainingIgnoreCase(genre);
-        } else {
-            books = booksRepository.findAll();
+        if (isBlank(title) && isBlank(author) && isBlank(genre)) {
+            return getAllBooks();
         }
+        if (!bookSearchIndex.isReady()) {
+            return searchBooksInDatabase(title, author, genre);
+        }
+
+        // The index ranks matching IDs; rows are then read by primary key to get current availability
+        List<Long> bookIds = bookSearchIndex.search(title, author, genre, MAX_SEARCH_RESULTS);
+        Map<Long, BookDTO> booksById = booksRepository.findAllDTOsById(bookIds).stream()
+                .collect(Collectors.toMap(BookDTO::getBookId, Function.identity()));
+        return bookIds.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-        return books.stream().map(this::convertToDTO).collect(Collectors.toList());
+    // Private helper methods
+    // Rows are re-checked so that a book rented since the index was read is never listed as available
+    private List<BookDTO> findAvailableInOrder(List<Long> bookIds) {
+        Map<Long, BookDTO> booksById = booksRepository.findAllDTOsById(bookIds).stream()
+                .collect(Collectors.toMap(BookDTO::getBookId, Function.identity()));
+        return bookIds.stream()
+                .map(booksById::get)
+                .filter(book -> book != null && Boolean.TRUE.equals(book.getAvailable()))
+                .collect(Collectors.toList());
+    }
+
+    // Capped like the index search, so results do not grow while the index is being built
+    private List<BookDTO> searchBooksInDatabase(String title, String author, String genre) {
+        if (!isBlank(title)) {
+            return booksRepository.findDTOsByTitleContaining(title, Limit.of(MAX_SEARCH_RESULTS));
+        } else if (!isBlank(author)) {
+            return booksRepository.findDTOsByAuthorContaining(author, Limit.of(MAX_SEARCH_RESULTS));
+        } else {
+            return booksRepository.findDTOsByGenreContaining(genre, Limit.of(MAX_SEARCH_RESULTS));
+        }
     }
 
-    // Private helper method
-    private BookDTO convertToDTO(Books book) {
-        return new BookDTO(
-                book.getBookId(),
-                book.getTitle(),
-                book.getAuthor(),
-                book.getGenre(),
-                book.getAvailable()
-        );
+    private boolean isBlank(String value) {
+        return value == null || value.isEmpty();
     }
 }
\ No newline at end of file
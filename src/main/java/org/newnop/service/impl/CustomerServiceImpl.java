@@ -0,0 +1,38 @@
+package org.newnop.service.impl;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.CustomerDTO;
+import org.newnop.entity.Customers;
+import org.newnop.repository.CustomersRepository;
+import org.newnop.service.CustomerServiceInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class CustomerServiceImpl implements CustomerServiceInterface {
+
+    @Autowired
+    private CustomersRepository customersRepository;
+
+    @Autowired
+    private CustomerDirectory customerDirectory;
+
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerDTO getCustomerById(Long id) {
+        return customersRepository.findById(id).map(this::convertToDTO).orElse(null);
+    }
+
+    // Exact lookup on the normalized name, served by its unique index
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerDTO findCustomerByName(String name) {
+        Customers customer = customerDirectory.find(name);
+        return customer != null ? convertToDTO(customer) : null;
+    }
+
+    // Private helper methods
+    private CustomerDTO convertToDTO(Customers customer) {
+        return new CustomerDTO(customer.getCustomerId(), customer.getName());
+    }
+}
@@ -0,0 +1,145 @@
+package org.newnop.service.impl;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.HoldDTO;
+import org.newnop.dto.PlaceHoldRequest;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Books;
+import org.newnop.entity.Customers;
+import org.newnop.entity.HoldStatus;
+import org.newnop.entity.Holds;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.mapper.HoldMapper;
+import org.newnop.replica.ReadConsistency;
+import org.newnop.repository.BooksRepository;
+import org.newnop.repository.CustomersRepository;
+import org.newnop.repository.HoldsRepository;
+import org.newnop.service.HoldServiceInterface;
+import org.newnop.service.RentalServiceInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+public class HoldServiceImpl implements HoldServiceInterface {
+
+    @Autowired
+    private HoldsRepository holdsRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private CustomersRepository customersRepository;
+
+    @Autowired
+    private CustomerDirectory customerDirectory;
+
+    @Autowired
+    private HoldDispatcher holdDispatcher;
+
+    @Autowired
+    private HoldMapper holdMapper;
+
+    @Autowired
+    private RentalServiceInterface rentalService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Holds are for titles without a copy on the shelf; one open hold per customer and title. The hold's priority
+    // is the customer's, never taken from the request.
+    @Override
+    public HoldDTO placeHold(PlaceHoldRequest request) {
+        if (request.getBookId() == null) {
+            throw new IllegalArgumentException("A book must be selected for the hold");
+        }
+
+        Holds hold = new TransactionTemplate(transactionManager).execute(status -> {
+            Books book = booksRepository.findById(request.getBookId())
+                    .orElseThrow(() -> new IllegalArgumentException("Book with ID " + request.getBookId() + " not found"));
+            if (book.getAvailableCopies() > 0) {
+                throw new IllegalStateException("Book with ID " + book.getBookId() + " has a copy available for rental");
+            }
+            Customers customer = resolveCustomer(request);
+            if (holdsRepository.existsByBookIdAndCustomerIdAndStatusIn(book.getBookId(), customer.getCustomerId(),
+                    List.of(HoldStatus.WAITING, HoldStatus.READY))) {
+                throw new IllegalStateException("Customer " + customer.getCustomerId() + " already holds book with ID "
+                        + book.getBookId());
+            }
+
+            return holdsRepository.save(new Holds(null, book.getBookId(), customer.getCustomerId(),
+                    customer.getHoldPriority(), HoldStatus.WAITING, LocalDateTime.now(), null, null));
+        });
+
+        // A copy returned while the hold was being placed went back on the shelf: the return could not see the hold
+        holdDispatcher.dispatchShelfCopies(hold.getBookId());
+        return getHold(hold.getHoldId());
+    }
+
+    // Read from the primary: clients check here whether a hold they wait for was readied a moment ago
+    @Override
+    public HoldDTO getHold(Long id) {
+        return ReadConsistency.onPrimary(() -> holdsRepository.findById(id).map(holdMapper::toDTO).orElse(null));
+    }
+
+    // A ready hold's copy goes to the next hold, or back on the shelf. Returns null when the hold does not exist.
+    @Override
+    @Transactional
+    public HoldDTO cancelHold(Long id) {
+        Holds hold = holdsRepository.findById(id).orElse(null);
+        if (hold == null) {
+            return null;
+        }
+        HoldStatus from = hold.getStatus();
+        if (from != HoldStatus.WAITING && from != HoldStatus.READY) {
+            throw new IllegalStateException("Hold " + id + " is already " + from);
+        }
+        if (holdsRepository.changeStatus(id, from, HoldStatus.CANCELLED) == 0) {
+            throw new IllegalStateException("Hold " + id + " was changed by another request");
+        }
+
+        if (from == HoldStatus.READY) {
+            holdDispatcher.release(hold.getBookId());
+        }
+        hold.setStatus(HoldStatus.CANCELLED);
+        return holdMapper.toDTO(hold);
+    }
+
+    // Rents the copy set aside for a ready hold. Returns null when the hold does not exist.
+    @Override
+    @Transactional
+    public RentalDTO checkoutHold(Long id) {
+        Holds hold = holdsRepository.findById(id).orElse(null);
+        if (hold == null) {
+            return null;
+        }
+        if (holdsRepository.changeStatus(id, HoldStatus.READY, HoldStatus.FULFILLED) == 0) {
+            throw new IllegalStateException("Hold " + id + " is not ready for pickup");
+        }
+
+        // The copy set aside goes back on the shelf and the checkout takes it again; the row stays locked in between
+        booksRepository.putBackCopy(hold.getBookId());
+        RentalDTO rental = rentalService.createRental(new CreateRentalRequest(null, null, null,
+                List.of(hold.getBookId()), hold.getCustomerId()));
+        holdsRepository.setRental(id, rental.getRentalId());
+        return rental;
+    }
+
+    // Private helper methods
+    private Customers resolveCustomer(PlaceHoldRequest request) {
+        if (request.getCustomerId() != null) {
+            return customersRepository.findById(request.getCustomerId())
+                    .orElseThrow(() -> new IllegalArgumentException("Customer with ID " + request.getCustomerId() + " not found"));
+        }
+        Customers customer = customerDirectory.resolve(request.getUserDetails());
+        if (customer == null) {
+            throw new IllegalArgumentException("A customer ID or name is required for a hold");
+        }
+        return customer;
+    }
+}
@@ -1,24 +1,54 @@
 package org.newnop.service.impl;
-import org.newnop.dto.BookDTO;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.BookRentalHistoryDTO;
 import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.dto.CustomerRentalDTO;
 import org.newnop.dto.RentalDTO;
 import org.newnop.entity.Books;
-import org.newnop.entity.RentalItems;
+import org.newnop.entity.Customers;
 import org.newnop.entity.Rentals;
+import org.newnop.event.BooksReturned;
+import org.newnop.event.RentalCreated;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.mapper.RentalMapper;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.overdue.OverdueFeePolicy;
 import org.newnop.repository.BooksRepository;
+import org.newnop.repository.CustomersRepository;
+import org.newnop.repository.RentalBookRow;
 import org.newnop.repository.RentalItemsRepository;
 import org.newnop.repository.RentalsRepository;
 import org.newnop.service.RentalServiceInterface;
+import org.newnop.stats.RentalStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class RentalServiceImpl implements RentalServiceInterface {
 
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_RETURN_BATCH_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     @Autowired
     private RentalsRepository rentalsRepository;
 
@@ -28,6 +58,36 @@ public class RentalServiceImpl implements RentalServiceInterface {
     @Autowired
     private RentalItemsRepository rentalItemsRepository;
 
+    @Autowired
+    private CustomersRepository customersRepository;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private BookAvailabilityIndex bookAvailabilityIndex;
+
+    @Autowired
+    private OverdueFeePolicy overdueFeePolicy;
+
+    @Autowired
+    private RentalStatistics rentalStatistics;
+
+    @Autowired
+    private CustomerDirectory customerDirectory;
+
+    @Autowired
+    private RentalMapper rentalMapper;
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private HoldDispatcher holdDispatcher;
+
     @Override
     @Transactional
     public RentalDTO createRental(CreateRentalRequest request) {
@@ -36,50 +96,189 @@ public class RentalServiceImpl implements RentalServiceInterface {
             throw new IllegalArgumentException("At least one book must be selected for rental");
         }
 
+        Set<Long> bookIds = new LinkedHashSet<>(request.getBookIds());
+        if (bookIds.size() != request.getBookIds().size()) {
+            throw new IllegalArgumentException("Each book can only be selected once per rental");
+        }
+
+        // Load all requested books with one query and report the first problem in request order
+        Map<Long, Books> booksById = booksRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(Books::getBookId, Function.identity()));
+        for (Long bookId : bookIds) {
+            Books book = booksById.get(bookId);
+            if (book == null) {
+                throw new IllegalArgumentException("Book with ID " + bookId + " not found");
+            }
+            if (!book.getAvailable()) {
+                throw new IllegalStateException("Book with ID " + bookId + " is not available for rental");
+            }
+        }
+
+        // A known customer can be given by ID; otherwise the customer is looked up, or created, by name
+        Customers customer;
+        String userDetails = request.getUserDetails();
+        if (request.getCustomerId() != null) {
+            customer = customersRepository.findById(request.getCustomerId())
+                    .orElseThrow(() -> new IllegalArgumentException("Customer with ID " + request.getCustomerId() + " not found"));
+            if (userDetails == null) {
+                userDetails = customer.getName();
+            }
+        } else {
+            customer = customerDirectory.resolve(userDetails);
+        }
+
         // Create rental
         Rentals rental = new Rentals();
-        rental.setUserDetails(request.getUserDetails());
-        rental.setRentalDate(request.getRentalDate());
-        rental.setReturnDate(request.getReturnDate());
+        rental.setUserDetails(userDetails);
+        rental.setCustomer(customer);
+        rental.setRentalDate(request.getRentalDate() != null ? request.getRentalDate() : LocalDate.now());
+        // The requested return date is the planned one; the actual return date is set when the books come back
+        rental.setDueDate(request.getReturnDate() != null
+                ? request.getReturnDate() : overdueFeePolicy.defaultDueDate(rental.getRentalDate()));
 
         Rentals savedRental = rentalsRepository.save(rental);
 
-        // Create rental items for each book
-        for (Long bookId : request.getBookIds()) {
-            Optional<Books> bookOpt = booksRepository.findById(bookId);
-            if (bookOpt.isPresent()) {
-                Books book = bookOpt.get();
-                if (book.getAvailable()) {
-                    // Create rental item
-                    RentalItems rentalItem = new RentalItems();
-                    rentalItem.setRental(savedRental);
-                    rentalItem.setBook(book);
-                    rentalItemsRepository.save(rentalItem);
-
-                    // Mark book as unavailable
-                    book.setAvailable(false);
-                    booksRepository.save(book);
-                } else {
-                    throw new IllegalStateException("Book with ID " + bookId + " is not available for rental");
-                }
-            } else {
-                throw new IllegalArgumentException("Book with ID " + bookId + " not found");
-            }
+        // Take a copy of every title in one conditional update; a short count means other checkouts took the last
+        // ones first. Row locks are taken in ascending ID order, so overlapping multi-book checkouts cannot deadlock.
+        int reserved = booksRepository.takeCopies(new TreeSet<>(bookIds));
+        if (reserved != bookIds.size()) {
+            throw new IllegalStateException("One or more of books " + bookIds + " were rented by another request");
         }
+        rentalItemsRepository.insertAll(savedRental.getRentalId(), bookIds);
+        bookCache.invalidateAll(bookIds);
+        catalogVersions.changedWithEvent(bookIds);
+        bookAvailabilityIndex.refresh(bookIds);
+        rentalStatistics.recordCheckout(savedRental.getRentalDate(), booksById.values());
+        outboxPublisher.publish(new RentalCreated(savedRental.getRentalId(), customer != null ? customer.getCustomerId() : null,
+                new ArrayList<>(bookIds), savedRental.getRentalDate(), savedRental.getDueDate()));
 
         return getRentalById(savedRental.getRentalId());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<RentalDTO> getAllRentals() {
-        List<Rentals> rentals = rentalsRepository.findAll();
-        return rentals.stream().map(this::convertToDTO).collect(Collectors.toList());
+        return withBooks(rentalsRepository.findAllAsDTO());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<RentalDTO> getRentalsPage(Long after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // Fetch one extra row to learn whether another page follows
+        List<RentalDTO> rentals = rentalsRepository.findDTOsAfter(after != null ? after : 0L, Limit.of(size + 1));
+        Long nextCursor = null;
+        if (rentals.size() > size) {
+            rentals = rentals.subList(0, size);
+            nextCursor = rentals.get(size - 1).getRentalId();
+        }
+
+        return new CursorPageDTO<>(withBooks(rentals), nextCursor);
+    }
+
+    // Not transactional on purpose: each chunk runs in its own persistence context, so memory stays flat
+    @Override
+    public void streamAllRentals(Consumer<RentalDTO> consumer) {
+        Long after = null;
+        do {
+            CursorPageDTO<RentalDTO> page = getRentalsPage(after, STREAM_CHUNK_SIZE);
+            page.getContent().forEach(consumer);
+            after = page.getNextCursor();
+        } while (after != null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public RentalDTO getRentalById(Long id) {
-        Optional<Rentals> rental = rentalsRepository.findById(id);
-        return rental.map(this::convertToDTO).orElse(null);
+        return rentalsRepository.findDTOById(id)
+                .map(rental -> withBooks(Collections.singletonList(rental)).get(0))
+                .orElse(null);
+    }
+
+    // Open rentals past their due date, longest overdue first. The cursor is a rental ID; its due date is
+    // looked up so that the scan can continue on the (return date, due date) index.
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<RentalDTO> getOverdueRentalsPage(Long after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        LocalDate afterDueDate = RentalsRepository.OVERDUE_SCAN_START;
+        long afterRentalId = 0;
+        if (after != null) {
+            RentalDTO cursor = rentalsRepository.findDTOById(after)
+                    .orElseThrow(() -> new IllegalArgumentException("Rental with ID " + after + " not found"));
+            afterDueDate = cursor.getDueDate();
+            afterRentalId = cursor.getRentalId();
+        }
+
+        // Fetch one extra row to learn whether another page follows
+        List<RentalDTO> rentals = rentalsRepository.findOverdueDTOsAfter(LocalDate.now(), afterDueDate, afterRentalId,
+                Limit.of(size + 1));
+        Long nextCursor = null;
+        if (rentals.size() > size) {
+            rentals = rentals.subList(0, size);
+            nextCursor = rentals.get(size - 1).getRentalId();
+        }
+
+        return new CursorPageDTO<>(withBooks(rentals), nextCursor);
+    }
+
+    // Rentals of one book, newest first. Returns null when the book does not exist.
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<BookRentalHistoryDTO> getBookRentalHistory(Long bookId, Long before, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (!booksRepository.existsById(bookId)) {
+            return null;
+        }
+
+        // Fetch one extra row to learn whether another page follows
+        List<BookRentalHistoryDTO> history = rentalItemsRepository.findHistoryByBook(bookId,
+                before != null ? before : Long.MAX_VALUE, Limit.of(size + 1));
+        Long nextCursor = null;
+        if (history.size() > size) {
+            history = history.subList(0, size);
+            nextCursor = history.get(size - 1).getRentalId();
+        }
+
+        return new CursorPageDTO<>(history, nextCursor);
+    }
+
+    // Rentals of one customer with their books, newest first. Returns null when the customer does not exist.
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CustomerRentalDTO> getCustomerRentalHistory(Long customerId, Long before, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (!customersRepository.existsById(customerId)) {
+            return null;
+        }
+
+        // Fetch one extra row to learn whether another page follows
+        List<CustomerRentalDTO> history = rentalsRepository.findHistoryByCustomer(customerId,
+                before != null ? before : Long.MAX_VALUE, Limit.of(size + 1));
+        Long nextCursor = null;
+        if (history.size() > size) {
+            history = history.subList(0, size);
+            nextCursor = history.get(size - 1).getRentalId();
+        }
+
+        if (!history.isEmpty()) {
+            Map<Long, CustomerRentalDTO> rentalsById = history.stream()
+                    .collect(Collectors.toMap(CustomerRentalDTO::getRentalId, Function.identity()));
+            for (RentalBookRow row : rentalItemsRepository.findBooksByRentalIds(rentalsById.keySet())) {
+                rentalsById.get(row.rentalId()).getBooks().add(rentalMapper.toRentalBookDTO(row));
+            }
+        }
+        return new CursorPageDTO<>(history, nextCursor);
     }
 
     @Override
@@ -90,6 +289,7 @@ public class RentalServiceImpl implements RentalServiceInterface {
 
             if (rentalDTO.getUserDetails() != null) {
                 rental.setUserDetails(rentalDTO.getUserDetails());
+                rental.setCustomer(customerDirectory.resolve(rentalDTO.getUserDetails()));
             }
             if (rentalDTO.getRentalDate() != null) {
                 rental.setRentalDate(rentalDTO.getRentalDate());
@@ -97,6 +297,9 @@ public class RentalServiceImpl implements RentalServiceInterface {
             if (rentalDTO.getReturnDate() != null) {
                 rental.setReturnDate(rentalDTO.getReturnDate());
             }
+            if (rentalDTO.getDueDate() != null) {
+                rental.setDueDate(rentalDTO.getDueDate());
+            }
 
             Rentals updatedRental = rentalsRepository.save(rental);
             return convertToDTO(updatedRental);
@@ -107,48 +310,93 @@ public class RentalServiceImpl implements RentalServiceInterface {
     @Override
     @Transactional
     public RentalDTO returnBooks(Long rentalId) {
-        Optional<Rentals> rentalOpt = rentalsRepository.findById(rentalId);
-        if (rentalOpt.isPresent()) {
-            List<RentalItems> rentalItems = rentalItemsRepository.findByRentalRentalId(rentalId);
-
-            // Mark all books as available
-            for (RentalItems item : rentalItems) {
-                Books book = item.getBook();
-                book.setAvailable(true);
-                booksRepository.save(book);
-            }
+        List<RentalDTO> returned = returnRentals(Collections.singletonList(rentalId));
+        return returned.isEmpty() ? null : returned.get(0);
+    }
 
-            // Update return date
-            Rentals rental = rentalOpt.get();
-            rental.setReturnDate(java.time.LocalDate.now());
-            rentalsRepository.save(rental);
+    // Returns all books of the given rentals with a fixed number of statements, however many books they hold.
+    // Rentals that are unknown are skipped and rentals already returned are left as they are;
+    // the result follows the order of the request.
+    @Override
+    @Transactional
+    public List<RentalDTO> returnRentals(List<Long> rentalIds) {
+        if (rentalIds == null || rentalIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one rental must be selected for return");
+        }
+        Set<Long> uniqueRentalIds = new LinkedHashSet<>(rentalIds);
+        if (uniqueRentalIds.size() > MAX_RETURN_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_RETURN_BATCH_SIZE + " rentals can be returned at once");
+        }
 
-            return convertToDTO(rental);
+        LocalDate today = LocalDate.now();
+        // Locked, so two returns of the same rental cannot both find it open and put its copies back twice
+        Map<Long, Rentals> rentalsById = rentalsRepository.findAllForReturn(uniqueRentalIds).stream()
+                .collect(Collectors.toMap(Rentals::getRentalId, Function.identity()));
+        List<Rentals> rentals = new ArrayList<>(rentalsById.size());
+        List<Rentals> openRentals = new ArrayList<>();
+        for (Long rentalId : uniqueRentalIds) {
+            Rentals rental = rentalsById.get(rentalId);
+            if (rental == null) {
+                continue;
+            }
+            rentals.add(rental);
+            if (rental.getReturnDate() == null) {
+                openRentals.add(rental);
+                // Settle the late fee up to today; only late rentals are written, flushed before the bulk updates
+                if (rental.getDueDate() != null && today.isAfter(rental.getDueDate())) {
+                    rental.setLateFee(overdueFeePolicy.feeFor(rental.getDueDate(), today));
+                    rental.setFeeAssessedOn(today);
+                }
+            }
         }
-        return null;
+        if (openRentals.isEmpty()) {
+            return convertToDTOs(rentals);
+        }
+
+        List<Long> openRentalIds = openRentals.stream().map(Rentals::getRentalId).collect(Collectors.toList());
+        List<Long> copyBookIds = rentalItemsRepository.findBookIdsByRentalIds(openRentalIds);
+        List<Long> bookIds = new ArrayList<>(new LinkedHashSet<>(copyBookIds));
+        // Closed first and only while still open; copies go back only for rentals this request closed
+        if (rentalsRepository.markReturned(openRentalIds, today) != openRentalIds.size()) {
+            throw new IllegalStateException("One or more of rentals " + openRentalIds + " were returned by another request");
+        }
+        booksRepository.returnCopies(openRentalIds);
+        // The bulk updates detached the loaded rentals; bring the response copies in line
+        openRentals.forEach(rental -> rental.setReturnDate(today));
+        // Returned copies go to waiting holds first, in this transaction, so no checkout can take them in between
+        holdDispatcher.dispatch(bookIds);
+
+        bookCache.invalidateAll(bookIds);
+        catalogVersions.changedWithEvent(bookIds);
+        bookAvailabilityIndex.refresh(bookIds);
+        rentalStatistics.recordReturn(openRentals.size(), copyBookIds.size());
+        outboxPublisher.publish(new BooksReturned(openRentalIds, bookIds, today));
+        return convertToDTOs(rentals);
     }
 
-    // Private helper method
+    // Private helper methods
     private RentalDTO convertToDTO(Rentals rental) {
-        RentalDTO dto = new RentalDTO();
-        dto.setRentalId(rental.getRentalId());
-        dto.setUserDetails(rental.getUserDetails());
-        dto.setRentalDate(rental.getRentalDate());
-        dto.setReturnDate(rental.getReturnDate());
-
-        // Get books for this rental
-        List<RentalItems> rentalItems = rentalItemsRepository.findByRentalRentalId(rental.getRentalId());
-        List<BookDTO> books = rentalItems.stream()
-                .map(item -> new BookDTO(
-                        item.getBook().getBookId(),
-                        item.getBook().getTitle(),
-                        item.getBook().getAuthor(),
-                        item.getBook().getGenre(),
-                        item.getBook().getAvailable()
-                ))
-                .collect(Collectors.toList());
-
-        dto.setBooks(books);
-        return dto;
+        return convertToDTOs(Collections.singletonList(rental)).get(0);
+    }
+
+    private List<RentalDTO> convertToDTOs(List<Rentals> rentals) {
+        return withBooks(rentals.stream().map(rentalMapper::toDTO).collect(Collectors.toList()));
+    }
+
+    // Adds the books of all given rentals with one query instead of one per rental
+    private List<RentalDTO> withBooks(List<RentalDTO> rentals) {
+        if (rentals.isEmpty()) {
+            return rentals;
+        }
+
+        Map<Long, RentalDTO> rentalsById = new HashMap<>();
+        for (RentalDTO rental : rentals) {
+            rental.setBooks(new ArrayList<>());
+            rentalsById.put(rental.getRentalId(), rental);
+        }
+        for (RentalBookRow row : rentalItemsRepository.findBooksByRentalIds(rentalsById.keySet())) {
+            rentalsById.get(row.rentalId()).getBooks().add(rentalMapper.toBookDTO(row));
+        }
+        return rentals;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+package org.newnop.service.impl;
+import org.newnop.dto.BookDTO;
+import org.newnop.dto.BookRentalCountDTO;
+import org.newnop.dto.DailyRentalCountDTO;
+import org.newnop.dto.RentalCountDTO;
+import org.newnop.dto.RentalStatsSummaryDTO;
+import org.newnop.service.BookServiceInterface;
+import org.newnop.service.StatsServiceInterface;
+import org.newnop.stats.RentalStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Serves reports from the in-memory rental counters; none of these reads aggregates the tables
+@Service
+public class StatsServiceImpl implements StatsServiceInterface {
+
+    public static final int MAX_RANKING_SIZE = 100;
+    public static final int MAX_DAY_RANGE = 366;
+
+    @Autowired
+    private RentalStatistics rentalStatistics;
+
+    @Autowired
+    private BookServiceInterface bookService;
+
+    @Override
+    public List<BookRentalCountDTO> getTopBooks(int limit) {
+        checkLimit(limit);
+        List<BookRentalCountDTO> topBooks = new ArrayList<>(limit);
+        for (RentalStatistics.Count<Long> count : rentalStatistics.topBooks(limit)) {
+            // Titles come through the book cache; deleted books keep their counts but show without details
+            BookDTO book = bookService.getBookById(count.key());
+            topBooks.add(new BookRentalCountDTO(
+                    count.key(),
+                    book != null ? book.getTitle() : null,
+                    book != null ? book.getAuthor() : null,
+                    count.count()
+            ));
+        }
+        return topBooks;
+    }
+
+    @Override
+    public List<RentalCountDTO> getTopGenres(int limit) {
+        checkLimit(limit);
+        return toRentalCounts(rentalStatistics.topGenres(limit));
+    }
+
+    @Override
+    public List<RentalCountDTO> getTopAuthors(int limit) {
+        checkLimit(limit);
+        return toRentalCounts(rentalStatistics.topAuthors(limit));
+    }
+
+    @Override
+    public List<DailyRentalCountDTO> getRentalsPerDay(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("from must be on or before to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAY_RANGE) {
+            throw new IllegalArgumentException("At most " + MAX_DAY_RANGE + " days can be requested at once");
+        }
+        return rentalStatistics.rentalsPerDay(from, to).stream()
+                .map(count -> new DailyRentalCountDTO(count.key(), count.count()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public RentalStatsSummaryDTO getSummary() {
+        RentalStatistics.Summary summary = rentalStatistics.summary();
+        return new RentalStatsSummaryDTO(summary.totalRentals(), summary.openRentals(), summary.booksOut());
+    }
+
+    @Override
+    public long reconcile() {
+        return rentalStatistics.reconcile();
+    }
+
+    // Private helper methods
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_RANKING_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_RANKING_SIZE);
+        }
+    }
+
+    private List<RentalCountDTO> toRentalCounts(List<RentalStatistics.Count<String>> counts) {
+        return counts.stream()
+                .map(count -> new RentalCountDTO(count.key(), count.count()))
+                .collect(Collectors.toList());
+    }
+}
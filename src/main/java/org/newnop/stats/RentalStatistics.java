@@ -0,0 +1,278 @@
+package org.newnop.stats;
+
+import org.newnop.entity.Books;
+import org.newnop.replica.ReadConsistency;
+import org.newnop.repository.RentalItemsRepository;
+import org.newnop.repository.RentalsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Rental counters kept in memory and updated as checkouts and returns commit, so reports never run GROUP BY
+// queries. Rankings are kept sorted, which makes a counter update O(log n) and a top-k read O(k).
+// The counters are built from the tables at startup and reconciled with them on a schedule; a checkout or
+// return committing while the tables are being read can be off by one until the next reconciliation.
+@Component
+public class RentalStatistics {
+
+    public static final String UNKNOWN = "Unknown";
+
+    private static final Logger log = LoggerFactory.getLogger(RentalStatistics.class);
+
+    @Autowired
+    private RentalItemsRepository rentalItemsRepository;
+
+    @Autowired
+    private RentalsRepository rentalsRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Snapshot current = new Snapshot();
+    private volatile boolean ready;
+
+    public record Count<K>(K key, long count) {
+    }
+
+    public record Summary(long totalRentals, long openRentals, long booksOut) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Snapshot rebuilt = ReadConsistency.onPrimary(this::load);
+        lock.writeLock().lock();
+        try {
+            current = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Replaces the counters with fresh ones from the tables and returns how many of them had drifted
+    @Scheduled(cron = "${stats.reconcile-cron:0 30 3 * * *}")
+    public long reconcile() {
+        Snapshot rebuilt = ReadConsistency.onPrimary(this::load);
+        long drifted;
+        lock.writeLock().lock();
+        try {
+            drifted = current.countDifferences(rebuilt);
+            current = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (drifted > 0) {
+            log.warn("Rental statistics reconciled; {} counters had drifted from the tables", drifted);
+        }
+        return drifted;
+    }
+
+    // Counts one rental of the given books, once the surrounding transaction commits
+    public void recordCheckout(LocalDate rentalDate, Collection<Books> books) {
+        List<String[]> bookKeys = new ArrayList<>(books.size());
+        List<Long> bookIds = new ArrayList<>(books.size());
+        for (Books book : books) {
+            bookIds.add(book.getBookId());
+            bookKeys.add(new String[]{keyOf(book.getGenre()), keyOf(book.getAuthor())});
+        }
+        afterCommit(() -> {
+            current.totalRentals++;
+            current.openRentals++;
+            current.booksOut += bookIds.size();
+            if (rentalDate != null) {
+                current.rentalsByDay.merge(rentalDate, 1L, Long::sum);
+            }
+            for (int i = 0; i < bookIds.size(); i++) {
+                current.byBook.add(bookIds.get(i), 1);
+                current.byGenre.add(bookKeys.get(i)[0], 1);
+                current.byAuthor.add(bookKeys.get(i)[1], 1);
+            }
+        });
+    }
+
+    public void recordReturn(int rentals, int books) {
+        afterCommit(() -> {
+            current.openRentals -= rentals;
+            current.booksOut -= books;
+        });
+    }
+
+    public List<Count<Long>> topBooks(int limit) {
+        return read(() -> current.byBook.top(limit));
+    }
+
+    public List<Count<String>> topGenres(int limit) {
+        return read(() -> current.byGenre.top(limit));
+    }
+
+    public List<Count<String>> topAuthors(int limit) {
+        return read(() -> current.byAuthor.top(limit));
+    }
+
+    // Rentals started per day from from to to, both inclusive
+    public List<Count<LocalDate>> rentalsPerDay(LocalDate from, LocalDate to) {
+        return read(() -> {
+            List<Count<LocalDate>> days = new ArrayList<>();
+            current.rentalsByDay.subMap(from, true, to, true)
+                    .forEach((day, count) -> days.add(new Count<>(day, count)));
+            return days;
+        });
+    }
+
+    public Summary summary() {
+        return read(() -> new Summary(current.totalRentals, current.openRentals, current.booksOut));
+    }
+
+    // Private helper methods
+    // Runs on the primary, like every rebuild of in-memory state from the tables
+    private Snapshot load() {
+        Snapshot snapshot = new Snapshot();
+        for (Object[] row : rentalItemsRepository.countRentalsByBook()) {
+            snapshot.byBook.add((Long) row[0], (Long) row[1]);
+        }
+        for (Object[] row : rentalItemsRepository.countRentalsByGenre()) {
+            snapshot.byGenre.add(keyOf((String) row[0]), (Long) row[1]);
+        }
+        for (Object[] row : rentalItemsRepository.countRentalsByAuthor()) {
+            snapshot.byAuthor.add(keyOf((String) row[0]), (Long) row[1]);
+        }
+        for (Object[] row : rentalsRepository.countRentalsByDate()) {
+            if (row[0] != null) {
+                snapshot.rentalsByDay.put((LocalDate) row[0], (Long) row[1]);
+            }
+        }
+        snapshot.totalRentals = rentalsRepository.count();
+        snapshot.openRentals = rentalsRepository.countByReturnDateIsNull();
+        snapshot.booksOut = rentalItemsRepository.countBooksOut();
+        return snapshot;
+    }
+
+    private void afterCommit(Runnable update) {
+        Runnable locked = () -> {
+            lock.writeLock().lock();
+            try {
+                update.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    locked.run();
+                }
+            });
+        } else {
+            locked.run();
+        }
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String keyOf(String value) {
+        return value == null || value.isBlank() ? UNKNOWN : value;
+    }
+
+    private static final class Snapshot {
+        private final RankedCounter<Long> byBook = new RankedCounter<>();
+        private final RankedCounter<String> byGenre = new RankedCounter<>();
+        private final RankedCounter<String> byAuthor = new RankedCounter<>();
+        private final TreeMap<LocalDate, Long> rentalsByDay = new TreeMap<>();
+        private long totalRentals;
+        private long openRentals;
+        private long booksOut;
+
+        private long countDifferences(Snapshot other) {
+            long differences = byBook.countDifferences(other.byBook)
+                    + byGenre.countDifferences(other.byGenre)
+                    + byAuthor.countDifferences(other.byAuthor);
+            Set<LocalDate> days = new HashSet<>(rentalsByDay.keySet());
+            days.addAll(other.rentalsByDay.keySet());
+            for (LocalDate day : days) {
+                if (!rentalsByDay.getOrDefault(day, 0L).equals(other.rentalsByDay.getOrDefault(day, 0L))) {
+                    differences++;
+                }
+            }
+            differences += totalRentals != other.totalRentals ? 1 : 0;
+            differences += openRentals != other.openRentals ? 1 : 0;
+            differences += booksOut != other.booksOut ? 1 : 0;
+            return differences;
+        }
+    }
+
+    // Counts per key plus the same entries ordered by count descending, then key ascending
+    private static final class RankedCounter<K extends Comparable<K>> {
+        private final Map<K, Long> counts = new HashMap<>();
+        private final TreeSet<Count<K>> ranking = new TreeSet<>(
+                Comparator.<Count<K>>comparingLong(Count::count).reversed().thenComparing(Count::key));
+
+        private void add(K key, long delta) {
+            Long old = counts.get(key);
+            long updated = (old != null ? old : 0) + delta;
+            if (old != null) {
+                ranking.remove(new Count<>(key, old));
+            }
+            if (updated > 0) {
+                counts.put(key, updated);
+                ranking.add(new Count<>(key, updated));
+            } else {
+                counts.remove(key);
+            }
+        }
+
+        private List<Count<K>> top(int limit) {
+            List<Count<K>> top = new ArrayList<>(Math.min(limit, ranking.size()));
+            for (Count<K> count : ranking) {
+                if (top.size() == limit) {
+                    break;
+                }
+                top.add(count);
+            }
+            return top;
+        }
+
+        private long countDifferences(RankedCounter<K> other) {
+            Set<K> keys = new HashSet<>(counts.keySet());
+            keys.addAll(other.counts.keySet());
+            long differences = 0;
+            for (K key : keys) {
+                if (!counts.getOrDefault(key, 0L).equals(other.counts.getOrDefault(key, 0L))) {
+                    differences++;
+                }
+            }
+            return differences;
+        }
+    }
+}
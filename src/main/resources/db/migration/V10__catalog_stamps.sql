@@ -0,0 +1,10 @@
+-- Catalog versions shared between instances, see CatalogSync; book_id 0 holds the latest version handed out
+CREATE TABLE catalog_stamps (
+    book_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (book_id)
+);
+
+CREATE INDEX idx_catalog_stamps_version ON catalog_stamps (version, book_id);
+
+INSERT INTO catalog_stamps (book_id, version) VALUES (0, 0);
@@ -0,0 +1,3 @@
+-- RentalCreated, BooksReturned and BookUpdated are no longer published: nothing consumed them.
+-- Rows still pending would fail as an unknown event type until parked, so they go.
+DELETE FROM outbox_events WHERE event_type IN ('RentalCreated', 'BooksReturned', 'BookUpdated');
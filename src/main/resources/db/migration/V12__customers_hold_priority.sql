@@ -0,0 +1,2 @@
+-- Hold priorities come from the customer, set by staff, instead of the hold request
+ALTER TABLE customers ADD COLUMN hold_priority INT NOT NULL DEFAULT 0;
@@ -0,0 +1,6 @@
+-- Holds are dispatched from the table now instead of per-instance queues: HoldQueue, named in the V6 header, is
+-- gone and HoldDispatcher reads the waiting holds of the titles with copies back, and locks them, in dispatch
+-- order, higher priority first, then by hold ID. With the priority descending in the index that read needs no sort.
+CREATE INDEX idx_holds_dispatch ON holds (status, book_id, priority DESC, hold_id);
+
+DROP INDEX idx_holds_waiting ON holds;
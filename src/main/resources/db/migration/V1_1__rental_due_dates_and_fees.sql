@@ -0,0 +1,7 @@
+-- Due dates and late fees. Rentals from before this keep a NULL due date; V7 reopens the ones still out.
+ALTER TABLE rentals ADD COLUMN due_date DATE;
+ALTER TABLE rentals ADD COLUMN late_fee DECIMAL(10, 2);
+ALTER TABLE rentals ADD COLUMN fee_assessed_on DATE;
+
+-- Open rentals by due date, for the overdue sweep and listing
+CREATE INDEX idx_rentals_open_due ON rentals (return_date, due_date);
@@ -0,0 +1,16 @@
+-- Customer records behind the free-text user details; rentals from before this are linked at startup by
+-- CustomerDirectory
+CREATE TABLE customers (
+    customer_id BIGINT       NOT NULL AUTO_INCREMENT,
+    name        VARCHAR(255) NOT NULL,
+    name_key    VARCHAR(255) NOT NULL,
+    PRIMARY KEY (customer_id),
+    CONSTRAINT uk_customers_name_key UNIQUE (name_key)
+);
+
+ALTER TABLE rentals ADD COLUMN customer_id BIGINT;
+ALTER TABLE rentals ADD CONSTRAINT fk_rentals_customer FOREIGN KEY (customer_id) REFERENCES customers (customer_id);
+
+-- Rental history per customer and per book, newest first
+CREATE INDEX idx_rentals_customer ON rentals (customer_id, rental_id);
+CREATE INDEX idx_rental_items_book ON rental_items (book_id, rental_id);
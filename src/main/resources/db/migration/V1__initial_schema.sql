@@ -0,0 +1,26 @@
+-- Schema as ddl-auto: update left it before migrations were introduced; existing databases are baselined here
+CREATE TABLE books (
+    book_id   BIGINT NOT NULL AUTO_INCREMENT,
+    title     VARCHAR(255),
+    author    VARCHAR(255),
+    genre     VARCHAR(255),
+    available BIT,
+    PRIMARY KEY (book_id)
+);
+
+CREATE TABLE rentals (
+    rental_id    BIGINT NOT NULL AUTO_INCREMENT,
+    user_details VARCHAR(255),
+    rental_date  DATE,
+    return_date  DATE,
+    PRIMARY KEY (rental_id)
+);
+
+CREATE TABLE rental_items (
+    rental_item_id BIGINT NOT NULL AUTO_INCREMENT,
+    rental_id      BIGINT,
+    book_id        BIGINT,
+    PRIMARY KEY (rental_item_id),
+    CONSTRAINT fk_rental_items_rental FOREIGN KEY (rental_id) REFERENCES rentals (rental_id),
+    CONSTRAINT fk_rental_items_book FOREIGN KEY (book_id) REFERENCES books (book_id)
+);
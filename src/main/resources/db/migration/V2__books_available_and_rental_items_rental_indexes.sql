@@ -0,0 +1,5 @@
+-- Available books in ID order, for listings served before the availability index is built
+CREATE INDEX idx_books_available ON books (available, book_id);
+
+-- The books of a page of rentals, read from the index alone
+CREATE INDEX idx_rental_items_rental ON rental_items (rental_id, book_id);
@@ -0,0 +1,14 @@
+-- Domain events written in the same transaction as the change they describe, see OutboxDispatcher
+CREATE TABLE outbox_events (
+    event_id        BIGINT      NOT NULL AUTO_INCREMENT,
+    event_type      VARCHAR(64) NOT NULL,
+    payload         LONGTEXT    NOT NULL,
+    created_at      DATETIME(6) NOT NULL,
+    attempts        INT         NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    last_error      VARCHAR(1000),
+    failed_at       DATETIME(6),
+    PRIMARY KEY (event_id)
+);
+
+CREATE INDEX idx_outbox_events_pending ON outbox_events (failed_at, event_id);
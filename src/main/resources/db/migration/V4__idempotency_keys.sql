@@ -0,0 +1,12 @@
+-- Idempotency-Key values of rental requests with the rental they created, see IdempotencyKeyStore
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    CHAR(64)     NOT NULL,
+    rental_id       BIGINT       NOT NULL,
+    response        LONGTEXT     NOT NULL,
+    created_at      DATETIME(6)  NOT NULL,
+    expires_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_expires ON idempotency_keys (expires_at);
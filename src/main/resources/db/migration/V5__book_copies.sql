@@ -0,0 +1,39 @@
+-- A books row becomes a title with copy counts. available stays, kept equal to available_copies > 0,
+-- so idx_books_available and the availability index still list the titles with a copy on the shelf.
+ALTER TABLE books ADD COLUMN total_copies INT NOT NULL DEFAULT 1;
+ALTER TABLE books ADD COLUMN available_copies INT NOT NULL DEFAULT 1;
+UPDATE books SET available_copies = 0 WHERE available IS NULL OR available = FALSE;
+
+-- Copies that were stored as rows of their own merge into the lowest book ID with the same title, author and genre.
+-- Their rental items move along, so rental history and the copies still rented out are kept.
+CREATE TABLE book_titles_merge AS
+SELECT MIN(book_id) AS title_id, title, author, COALESCE(genre, '') AS genre_key,
+       COUNT(*) AS copies, SUM(available_copies) AS available_copies
+FROM books
+WHERE title IS NOT NULL AND author IS NOT NULL
+GROUP BY title, author, COALESCE(genre, '')
+HAVING COUNT(*) > 1;
+
+CREATE TABLE book_copies_merge AS
+SELECT b.book_id, m.title_id
+FROM books b
+JOIN book_titles_merge m ON b.title = m.title AND b.author = m.author AND COALESCE(b.genre, '') = m.genre_key
+WHERE b.book_id <> m.title_id;
+
+UPDATE rental_items
+SET book_id = (SELECT c.title_id FROM book_copies_merge c WHERE c.book_id = rental_items.book_id)
+WHERE book_id IN (SELECT book_id FROM book_copies_merge);
+
+DELETE FROM books WHERE book_id IN (SELECT book_id FROM book_copies_merge);
+
+UPDATE books
+SET total_copies = (SELECT m.copies FROM book_titles_merge m WHERE m.title_id = books.book_id),
+    available_copies = (SELECT m.available_copies FROM book_titles_merge m WHERE m.title_id = books.book_id)
+WHERE book_id IN (SELECT title_id FROM book_titles_merge);
+
+UPDATE books SET available = CASE WHEN available_copies > 0 THEN TRUE ELSE FALSE END;
+
+DROP TABLE book_copies_merge;
+DROP TABLE book_titles_merge;
+
+ALTER TABLE books ADD CONSTRAINT ck_books_copies CHECK (available_copies >= 0 AND available_copies <= total_copies);
@@ -0,0 +1,20 @@
+-- Holds on titles without a copy on the shelf, see HoldQueue and HoldDispatcher
+CREATE TABLE holds (
+    hold_id     BIGINT      NOT NULL AUTO_INCREMENT,
+    book_id     BIGINT      NOT NULL,
+    customer_id BIGINT      NOT NULL,
+    priority    INT         NOT NULL,
+    status      VARCHAR(16) NOT NULL,
+    created_at  DATETIME(6) NOT NULL,
+    ready_until DATETIME(6),
+    rental_id   BIGINT,
+    PRIMARY KEY (hold_id),
+    CONSTRAINT fk_holds_book FOREIGN KEY (book_id) REFERENCES books (book_id),
+    CONSTRAINT fk_holds_customer FOREIGN KEY (customer_id) REFERENCES customers (customer_id)
+);
+
+-- Waiting holds in dispatch order, for rebuilding the queues at startup
+CREATE INDEX idx_holds_waiting ON holds (status, book_id, priority, hold_id);
+
+-- Ready holds by the time their copy goes back on the shelf
+CREATE INDEX idx_holds_ready_until ON holds (status, ready_until);
@@ -0,0 +1,23 @@
+-- Rentals made before due dates existed kept the planned return date in return_date, so the ones still out looked
+-- returned and their books could not be checked in. Per title, the copies that are out and not held by an open
+-- rental belong to the latest of those rentals; their planned date becomes the due date and they are open again.
+-- For titles with a single copy this is exact: a copy that is out cannot have been rented again since.
+CREATE TABLE legacy_open_rentals AS
+SELECT DISTINCT ranked.rental_id
+FROM (SELECT ri.rental_id, ri.book_id,
+             ROW_NUMBER() OVER (PARTITION BY ri.book_id ORDER BY ri.rental_id DESC) AS recency
+      FROM rental_items ri
+      JOIN rentals r ON r.rental_id = ri.rental_id
+      WHERE r.due_date IS NULL AND r.return_date IS NOT NULL) ranked
+JOIN books b ON b.book_id = ranked.book_id
+WHERE ranked.recency <= b.total_copies - b.available_copies
+      - (SELECT COUNT(*)
+         FROM rental_items oi
+         JOIN rentals o ON o.rental_id = oi.rental_id
+         WHERE oi.book_id = b.book_id AND o.return_date IS NULL);
+
+UPDATE rentals
+SET due_date = return_date, return_date = NULL
+WHERE rental_id IN (SELECT rental_id FROM legacy_open_rentals);
+
+DROP TABLE legacy_open_rentals;
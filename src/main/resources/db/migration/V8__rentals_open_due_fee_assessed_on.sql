@@ -0,0 +1,3 @@
+-- The overdue sweep skips rentals assessed today; with fee_assessed_on in the index it does so without reading them
+DROP INDEX idx_rentals_open_due ON rentals;
+CREATE INDEX idx_rentals_open_due ON rentals (return_date, due_date, rental_id, fee_assessed_on);
@@ -0,0 +1,6 @@
+-- Stamped on the primary by ReplicaMonitor and read back from each replica to measure replication lag
+CREATE TABLE replica_heartbeat (
+    id          INT    NOT NULL,
+    beat_millis BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,140 @@
+package org.newnop.availability;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.newnop.dto.AvailabilityConsistencyDTO;
+import org.newnop.dto.BookDTO;
+import org.newnop.repository.BooksRepository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookAvailabilityIndexTests {
+
+    @Mock
+    private BooksRepository booksRepository;
+
+    @InjectMocks
+    private BookAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index.rebuild(Stream.of(book(1L, true), book(2L, false), book(3L, true), book(5L, true)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testRebuild() {
+        assertTrue(index.isReady());
+        assertEquals(3, index.count());
+        assertTrue(index.isAvailable(1L));
+        assertFalse(index.isAvailable(2L));
+        assertFalse(index.isAvailable(42L));
+    }
+
+    @Test
+    void testAvailableIds_PagesInIdOrder() {
+        assertEquals(List.of(1L, 3L), index.availableIds(null, 2));
+        assertEquals(List.of(5L), index.availableIds(3L, 2));
+        assertTrue(index.availableIds(5L, 2).isEmpty());
+    }
+
+    @Test
+    void testUpdate_KeepsCountInStep() {
+        index.update(List.of(1L, 3L), false);
+        index.update(2L, true);
+        index.update(2L, true);
+
+        assertEquals(2, index.count());
+        assertEquals(List.of(2L, 5L), index.availableIds(null, 10));
+    }
+
+    @Test
+    void testRefresh_AppliedOnlyAfterCommit() {
+        when(booksRepository.findAvailableIds(List.of(1L))).thenReturn(List.of());
+        TransactionSynchronizationManager.initSynchronization();
+        index.refresh(1L);
+        assertTrue(index.isAvailable(1L));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertFalse(index.isAvailable(1L));
+        assertEquals(2, index.count());
+    }
+
+    @Test
+    void testRefresh_DiscardedOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        index.refresh(1L);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        assertTrue(index.isAvailable(1L));
+        verifyNoInteractions(booksRepository);
+    }
+
+    @Test
+    void testRefresh_HooksRunningOutOfOrderLeaveTheCommittedState() {
+        // A checkout takes the last copy of book 1 and a return brings it back; both have committed
+        when(booksRepository.findAvailableIds(List.of(1L))).thenReturn(List.of(1L));
+        TransactionSynchronizationManager.initSynchronization();
+        index.refresh(1L);
+        List<TransactionSynchronization> checkout = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        index.refresh(1L);
+        List<TransactionSynchronization> returned = TransactionSynchronizationManager.getSynchronizations();
+
+        // The return's hook runs first
+        returned.forEach(TransactionSynchronization::afterCommit);
+        checkout.forEach(TransactionSynchronization::afterCommit);
+
+        assertTrue(index.isAvailable(1L));
+        assertEquals(3, index.count());
+    }
+
+    @Test
+    void testCheckConsistency_Consistent() {
+        when(booksRepository.streamAllAsDTO()).thenReturn(Stream.of(book(1L, true), book(2L, false), book(3L, true), book(5L, true)));
+
+        AvailabilityConsistencyDTO result = index.checkConsistency();
+
+        assertTrue(result.isConsistent());
+        assertEquals(3, result.getIndexedAvailable());
+        assertEquals(3, result.getTableAvailable());
+    }
+
+    @Test
+    void testCheckConsistency_ReportsChangedAndDeletedBooks() {
+        when(booksRepository.streamAllAsDTO()).thenReturn(Stream.of(book(1L, false), book(2L, false), book(3L, true)));
+
+        AvailabilityConsistencyDTO result = index.checkConsistency();
+
+        assertFalse(result.isConsistent());
+        assertEquals(2, result.getMismatchCount());
+        assertEquals(List.of(1L, 5L), result.getMismatchedBookIds());
+    }
+
+    private BookDTO book(Long id, boolean available) {
+        return new BookDTO(id, "Title " + id, "Author", "Genre", available);
+    }
+}
@@ -0,0 +1,146 @@
+package org.newnop.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.dto.BookDTO;
+import org.newnop.dto.CacheStatsDTO;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookCacheTests {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private BookCache bookCache;
+
+    @BeforeEach
+    void setUp() {
+        bookCache = new BookCache(100, Duration.ofMinutes(10), nanos::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testGet_CountsHitsAndMisses() {
+        bookCache.get(1L, this::load);
+        bookCache.get(1L, this::load);
+        bookCache.get(1L, this::load);
+
+        CacheStatsDTO stats = bookCache.stats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void testGet_DoesNotCacheMissingBook() {
+        assertNull(bookCache.get(1L, id -> null));
+        assertNotNull(bookCache.get(1L, this::load));
+        assertEquals(2, bookCache.stats().getMisses());
+    }
+
+    @Test
+    void testGet_ExpiresAfterTtl() {
+        bookCache.get(1L, this::load);
+        nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        bookCache.get(1L, this::load);
+
+        assertEquals(2, bookCache.stats().getMisses());
+    }
+
+    @Test
+    void testGet_EvictsBeyondMaximumSize() {
+        BookCache smallCache = new BookCache(10, Duration.ofMinutes(10), nanos::get);
+        for (long id = 1; id <= 50; id++) {
+            smallCache.get(id, this::load);
+        }
+        smallCache.cleanUp();
+
+        assertTrue(smallCache.stats().getSize() <= 10);
+        assertTrue(smallCache.stats().getEvictions() >= 40);
+    }
+
+    @Test
+    void testInvalidate_OutsideTransaction() {
+        bookCache.get(1L, this::load);
+
+        bookCache.invalidate(1L);
+
+        assertEquals(0, bookCache.stats().getSize());
+    }
+
+    @Test
+    void testInvalidateAll_DeferredUntilTransactionCompletes() {
+        bookCache.get(1L, this::load);
+        bookCache.get(2L, this::load);
+        TransactionSynchronizationManager.initSynchronization();
+
+        bookCache.invalidateAll(List.of(1L, 2L));
+        assertEquals(2, bookCache.stats().getSize());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        assertEquals(0, bookCache.stats().getSize());
+    }
+
+    @Test
+    void testInvalidate_DropsResultOfInFlightLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean available = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // A reader loads the row as it was before a rental committed
+            Future<BookDTO> staleRead = executor.submit(() -> bookCache.get(1L, id -> {
+                BookDTO book = new BookDTO(id, "Title", "Author", "Genre", available.get());
+                loading.countDown();
+                await(release);
+                return book;
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // The rental commits and invalidates while that load is still running
+            available.set(false);
+            Thread invalidation = new Thread(() -> bookCache.invalidate(1L));
+            invalidation.start();
+            release.countDown();
+            invalidation.join(5000);
+
+            assertTrue(staleRead.get(5, TimeUnit.SECONDS).getAvailable());
+            assertFalse(bookCache.get(1L, id -> new BookDTO(id, "Title", "Author", "Genre", available.get())).getAvailable());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BookDTO load(Long id) {
+        return new BookDTO(id, "Title " + id, "Author", "Genre", true);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.newnop.catalog;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.dto.BookDTO;
+import org.newnop.entity.Books;
+import org.newnop.entity.CatalogStamps;
+import org.newnop.event.RentalCreated;
+import org.newnop.repository.BooksRepository;
+import org.newnop.repository.CatalogStampsRepository;
+import org.newnop.search.BookSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Another instance is played by writing to the books and catalog_stamps tables directly; every step commits
+@DataJpaTest(properties = "catalog-sync.interval-ms=3600000")
+@Import({CatalogSync.class, CatalogVersions.class, BookCache.class, BookAvailabilityIndex.class, BookSearchIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogSyncTests {
+
+    @Autowired
+    private CatalogSync catalogSync;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private BookAvailabilityIndex bookAvailabilityIndex;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private CatalogStampsRepository catalogStampsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        catalogVersions.takeUnshared();
+        catalogSync.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalogStampsRepository.deleteAllInBatch();
+        booksRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testChangesHereAreStampedButNotAppliedAgain() {
+        Books book = seedBook("Dune");
+        catalogVersions.changed(book.getBookId());
+        assertTrue(catalogVersions.isPending(book.getBookId()));
+
+        assertEquals(0, catalogSync.sync());
+
+        long catalogVersion = catalogStampsRepository.findCatalogVersion();
+        assertEquals(catalogVersion, catalogStampsRepository.findById(book.getBookId()).orElseThrow().getVersion());
+        assertEquals(catalogVersion, catalogVersions.bookVersion(book.getBookId()));
+        assertFalse(catalogVersions.isPending(book.getBookId()));
+        assertEquals(0, catalogSync.sync(), "nothing left to share");
+    }
+
+    @Test
+    void testChangesElsewhereRefreshTheCachesBeforeTheValidators() {
+        Books changed = seedBook("Dune");
+        Books deleted = seedBook("Emma");
+        bookSearchIndex.rebuild(booksRepository.findAll().stream().map(CatalogSyncTests::toDTO));
+        bookAvailabilityIndex.update(List.of(changed.getBookId(), deleted.getBookId()), true);
+        bookCache.get(changed.getBookId(), id -> toDTO(changed));
+        long catalog = catalogVersions.catalogVersion();
+
+        changed.setTitle("Children of Dune");
+        booksRepository.save(changed);
+        takeLastCopy(changed.getBookId());
+        booksRepository.deleteById(deleted.getBookId());
+        stampElsewhere(List.of(changed.getBookId(), deleted.getBookId()));
+
+        assertEquals(2, catalogSync.sync());
+
+        assertTrue(catalogVersions.catalogVersion() > catalog);
+        assertEquals(catalogStampsRepository.findCatalogVersion(), catalogVersions.bookVersion(changed.getBookId()));
+        assertFalse(bookAvailabilityIndex.isAvailable(changed.getBookId()));
+        assertFalse(bookAvailabilityIndex.isAvailable(deleted.getBookId()));
+        assertEquals(List.of(changed.getBookId()), bookSearchIndex.search("children", null, null, 10));
+        assertEquals(List.of(), bookSearchIndex.search("emma", null, null, 10));
+        assertEquals("Children of Dune", bookCache.get(changed.getBookId(), id -> toDTO(changed)).getTitle());
+        assertEquals(0, catalogSync.sync(), "each stamp is read once");
+    }
+
+    @Test
+    void testStampOverwrittenBeforeItWasReadIsStillApplied() {
+        Books book = seedBook("Dune");
+        bookAvailabilityIndex.update(book.getBookId(), true);
+
+        takeLastCopy(book.getBookId());
+        stampElsewhere(List.of(book.getBookId()));
+        // Changed here too before the stamp above was read: this instance's stamp replaces it
+        catalogVersions.changed(book.getBookId());
+
+        assertEquals(1, catalogSync.sync());
+        assertFalse(bookAvailabilityIndex.isAvailable(book.getBookId()));
+    }
+
+    @Test
+    void testChangesPublishedAsEventsAreStampedOnDeliveryAndAppliedHereToo() {
+        Books book = seedBook("Dune");
+        bookAvailabilityIndex.update(book.getBookId(), true);
+        takeLastCopy(book.getBookId());
+        catalogVersions.changedWithEvent(book.getBookId());
+
+        assertEquals(0, catalogSync.sync(), "left to the event");
+        assertTrue(catalogStampsRepository.findById(book.getBookId()).isEmpty());
+
+        // The outbox may deliver the event to any instance, and deliver it again
+        RentalCreated event = new RentalCreated(1L, null, List.of(book.getBookId()), LocalDate.now(), LocalDate.now());
+        catalogSync.onRentalCreated(event);
+        catalogSync.onRentalCreated(event);
+
+        long version = catalogStampsRepository.findCatalogVersion();
+        assertEquals(version, catalogStampsRepository.findById(book.getBookId()).orElseThrow().getVersion());
+        assertTrue(catalogVersions.isPending(book.getBookId()));
+        assertEquals(1, catalogSync.sync());
+        assertFalse(bookAvailabilityIndex.isAvailable(book.getBookId()));
+        assertEquals(version, catalogVersions.bookVersion(book.getBookId()));
+        assertFalse(catalogVersions.isPending(book.getBookId()));
+        assertEquals(0, catalogSync.sync(), "each stamp is read once");
+    }
+
+    @Test
+    void testStartReadsTheVersionsOfBooksStampedBefore() {
+        Books book = seedBook("Dune");
+        stampElsewhere(List.of(book.getBookId()));
+
+        catalogSync.start();
+
+        assertEquals(catalogStampsRepository.findCatalogVersion(), catalogVersions.bookVersion(book.getBookId()));
+        assertEquals(0, catalogSync.sync(), "already read");
+    }
+
+    // Private helper methods
+    private void takeLastCopy(Long bookId) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                booksRepository.takeCopies(List.of(bookId)));
+    }
+
+    private void stampElsewhere(List<Long> bookIds) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            long version = catalogStampsRepository.nextVersion();
+            List<Long> stamped = catalogStampsRepository.findByBookIdIn(bookIds).stream()
+                    .map(CatalogStamps::getBookId)
+                    .toList();
+            catalogStampsRepository.stampAll(stamped,
+                    bookIds.stream().filter(bookId -> !stamped.contains(bookId)).toList(), version);
+        });
+    }
+
+    private Books seedBook(String title) {
+        Books book = new Books();
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setGenre("Fiction");
+        book.setAvailable(true);
+        return booksRepository.save(book);
+    }
+
+    private static BookDTO toDTO(Books book) {
+        BookDTO dto = new BookDTO();
+        dto.setBookId(book.getBookId());
+        dto.setTitle(book.getTitle());
+        dto.setAuthor(book.getAuthor());
+        dto.setGenre(book.getGenre());
+        dto.setAvailable(book.getAvailable());
+        return dto;
+    }
+}
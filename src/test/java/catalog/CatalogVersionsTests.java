@@ -0,0 +1,86 @@
+package org.newnop.catalog;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogVersionsTests {
+
+    private final CatalogVersions catalogVersions = new CatalogVersions();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testStampMovesTheBookAndTheCatalog() {
+        assertEquals(0, catalogVersions.catalogVersion());
+        assertEquals(0, catalogVersions.bookVersion(7L), "never stamped");
+
+        catalogVersions.stamped(List.of(7L, 5000L), 100, catalogVersions.mark());
+        catalogVersions.stamped(List.of(7L), 50, catalogVersions.mark());
+
+        assertEquals(100, catalogVersions.catalogVersion());
+        assertEquals(100, catalogVersions.bookVersion(7L), "an older stamp read late does not move it back");
+        assertEquals(100, catalogVersions.bookVersion(5000L));
+        assertEquals(0, catalogVersions.bookVersion(8L));
+    }
+
+    @Test
+    void testChangeHereIsPendingUntilAStampReadAfterItCoversIt() {
+        long before = catalogVersions.mark();
+        catalogVersions.changed(3L);
+
+        assertTrue(catalogVersions.isPending(3L));
+        assertTrue(catalogVersions.isPending());
+        assertFalse(catalogVersions.isPending(4L));
+        assertEquals(0, catalogVersions.catalogVersion(), "validators move only with a stamp");
+
+        catalogVersions.stamped(List.of(3L), 100, before);
+        assertTrue(catalogVersions.isPending(3L), "that stamp was read before the change");
+
+        catalogVersions.stamped(List.of(3L), 101, catalogVersions.mark());
+        assertFalse(catalogVersions.isPending());
+        assertEquals(101, catalogVersions.bookVersion(3L));
+    }
+
+    @Test
+    void testChangeCountsOnlyOnCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        catalogVersions.changed(3L);
+        assertFalse(catalogVersions.isPending(3L), "nothing before the commit");
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertFalse(catalogVersions.isPending(3L));
+        assertEquals(List.of(), catalogVersions.takeUnshared());
+
+        TransactionSynchronizationManager.initSynchronization();
+        catalogVersions.changed(3L);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertTrue(catalogVersions.isPending(3L));
+        assertTrue(catalogVersions.readAfter() > 0);
+        assertEquals(List.of(3L), catalogVersions.takeUnshared());
+    }
+
+    @Test
+    void testChangeWithEventIsPendingButNotShared() {
+        catalogVersions.changedWithEvent(List.of(3L, 4L));
+
+        assertTrue(catalogVersions.isPending(4L));
+        assertEquals(List.of(), catalogVersions.takeUnshared());
+    }
+
+    // Private helper methods
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,129 @@
+package org.newnop.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTests {
+
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 1, Duration.ofMillis(10),
+            List.of("/api/books/stream"), List.of("/api/books/{id:[0-9]+}"));
+
+    @Test
+    void testRejectsRequestsBeyondTheLimit() throws Exception {
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        MockHttpServletResponse outer = new MockHttpServletResponse();
+
+        // The outer request holds the only permit while the nested one arrives
+        filter.doFilter(apiRequest(), outer, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                try {
+                    filter.doFilter(apiRequest(), nested, new MockFilterChain());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }));
+
+        assertEquals(503, nested.getStatus());
+        assertEquals("1", nested.getHeader("Retry-After"));
+        assertEquals(200, outer.getStatus());
+        assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    void testLeavesNonApiRequestsAlone() throws Exception {
+        AtomicInteger served = new AtomicInteger();
+        filter.doFilter(apiRequest(), new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                MockHttpServletResponse scrape = new MockHttpServletResponse();
+                try {
+                    filter.doFilter(new MockHttpServletRequest("GET", "/actuator/prometheus"), scrape, new MockFilterChain());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                if (scrape.getStatus() == 200) {
+                    served.incrementAndGet();
+                }
+            }
+        }));
+
+        assertEquals(1, served.get());
+    }
+
+    @Test
+    void testLeavesGetsServedFromMemoryAlone() throws Exception {
+        MockHttpServletResponse cached = new MockHttpServletResponse();
+        MockHttpServletResponse update = new MockHttpServletResponse();
+
+        filter.doFilter(apiRequest(), new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                try {
+                    filter.doFilter(new MockHttpServletRequest("GET", "/api/books/7"), cached, new MockFilterChain());
+                    filter.doFilter(new MockHttpServletRequest("PUT", "/api/books/7"), update, new MockFilterChain());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }));
+
+        assertEquals(200, cached.getStatus());
+        assertEquals(503, update.getStatus());
+    }
+
+    @Test
+    void testAsyncRequestReleasesPermitWhenItsThreadReturns() throws Exception {
+        MockHttpServletRequest request = apiRequest();
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                request.startAsync();
+            }
+        }));
+
+        assertTrue(request.isAsyncStarted());
+        assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    void testStreamKeepsStreamPermitUntilComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/stream");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse secondStream = new MockHttpServletResponse();
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                request.startAsync();
+            }
+        }));
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/books/stream"), secondStream, new MockFilterChain());
+        assertEquals(0, filter.availableStreamPermits());
+        assertEquals(503, secondStream.getStatus());
+        // Other requests are not held up by the open stream
+        assertEquals(1, filter.availablePermits());
+
+        request.getAsyncContext().complete();
+        assertEquals(1, filter.availableStreamPermits());
+    }
+
+    private MockHttpServletRequest apiRequest() {
+        return new MockHttpServletRequest("GET", "/api/books");
+    }
+}
@@ -0,0 +1,84 @@
+package org.newnop.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.entity.Books;
+import org.newnop.repository.BooksRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Each step commits on its own, as the cache is only filled and updated when transactions complete
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(SecondLevelCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheConfigTests {
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        booksRepository.deleteAll();
+    }
+
+    @Test
+    void testBooksLoadedByIdComeFromTheCache() {
+        Books book = booksRepository.save(new Books(null, "Dune", "Frank Herbert", "Science Fiction", true, null));
+        // Rows inserted with an IDENTITY key are cached on their first load
+        booksRepository.findById(book.getBookId());
+        statistics.clear();
+
+        Books loaded = booksRepository.findById(book.getBookId()).orElseThrow();
+
+        assertEquals("Dune", loaded.getTitle());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        loaded.setTitle("Dune Messiah");
+        booksRepository.save(loaded);
+        statistics.clear();
+
+        assertEquals("Dune Messiah", booksRepository.findById(book.getBookId()).orElseThrow().getTitle());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    void testBulkUpdatesEvictCachedBooks() {
+        Books book = booksRepository.save(new Books(null, "Emma", "Jane Austen", "Classic", true, null));
+        booksRepository.findById(book.getBookId());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                booksRepository.takeCopies(List.of(book.getBookId())));
+        statistics.clear();
+
+        assertFalse(booksRepository.findById(book.getBookId()).orElseThrow().getAvailable());
+        assertEquals(0, statistics.getSecondLevelCacheHitCount());
+        assertEquals(1, statistics.getSecondLevelCacheMissCount());
+    }
+}
@@ -0,0 +1,125 @@
+package org.newnop.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.catalog.CatalogSync;
+import org.newnop.dto.BookDTO;
+import org.newnop.outbox.OutboxDispatcher;
+import org.newnop.repository.CatalogStampsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The outbox dispatcher and catalog sync only run when a test calls them, so their statements do not show up in
+// the counts
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "outbox.poll-interval-ms=3600000",
+                "catalog-sync.interval-ms=3600000"})
+class BookControllerCachingTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private CatalogSync catalogSync;
+
+    @Autowired
+    private CatalogStampsRepository catalogStampsRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testCatalogRevalidationSkipsTheDatabase() {
+        createBook("Dune");
+        ResponseEntity<String> unstamped = get("/api/books", null);
+        assertEquals(HttpStatus.OK, unstamped.getStatusCode());
+        assertNull(unstamped.getHeaders().getETag(), "the new book has not been stamped yet");
+
+        shareChanges();
+        ResponseEntity<String> first = get("/api/books", null);
+        String eTag = first.getHeaders().getETag();
+
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        // The shared version alone, so every instance that has read it hands out the same ETag
+        assertEquals("W/\"c" + Long.toString(catalogStampsRepository.findCatalogVersion(), 36) + "\"", eTag);
+        assertNotNull(first.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+        assertTrue(first.getHeaders().getCacheControl().contains("s-maxage=30"), first.getHeaders().getCacheControl());
+
+        long statements = statistics.getPrepareStatementCount();
+        ResponseEntity<String> revalidated = get("/api/books", eTag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+        assertNull(revalidated.getBody());
+        assertEquals(eTag, revalidated.getHeaders().getETag());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(HttpStatus.NOT_MODIFIED, get("/api/books/search?title=dune", get("/api/books/search?title=dune", null)
+                .getHeaders().getETag()).getStatusCode());
+
+        createBook("Emma");
+
+        assertEquals(HttpStatus.OK, get("/api/books", eTag).getStatusCode(), "not answered from the ETag meanwhile");
+        shareChanges();
+        ResponseEntity<String> changed = get("/api/books", eTag);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(eTag, changed.getHeaders().getETag());
+    }
+
+    @Test
+    void testBookValidatorFollowsOnlyThatBook() {
+        BookDTO book = createBook("Persuasion");
+        BookDTO other = createBook("Mansfield Park");
+        shareChanges();
+        String eTag = get("/api/books/" + book.getBookId(), null).getHeaders().getETag();
+
+        other.setTitle("Mansfield Park, revised");
+        restTemplate.put("/api/books/" + other.getBookId(), other);
+        shareChanges();
+        assertEquals(HttpStatus.NOT_MODIFIED, get("/api/books/" + book.getBookId(), eTag).getStatusCode());
+
+        book.setTitle("Persuasion, revised");
+        restTemplate.put("/api/books/" + book.getBookId(), book);
+        ResponseEntity<String> changed = get("/api/books/" + book.getBookId(), eTag);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertTrue(changed.getBody().contains("Persuasion, revised"));
+    }
+
+    // Private helper methods
+    // Book edits are stamped from their outbox event, other changes by the sync itself
+    private void shareChanges() {
+        outboxDispatcher.dispatch();
+        catalogSync.sync();
+    }
+
+    private BookDTO createBook(String title) {
+        return restTemplate.postForObject("/api/books", new BookDTO(null, title, "Jane Austen", "Classic", true), BookDTO.class);
+    }
+
+    private ResponseEntity<String> get(String url, String ifNoneMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
@@ -0,0 +1,35 @@
+package org.newnop.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureObservability
+class MetricsEndpointTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void testPrometheusEndpoint_ExposesRequestRepositoryPoolAndHibernateMetrics() {
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity("/api/books", String.class).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity("/api/books/page?size=0", String.class).getStatusCode());
+
+        String scrape = restTemplate.getForObject("/actuator/prometheus", String.class);
+
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{"), "request latency histogram");
+        assertTrue(scrape.matches("(?s).*http_server_requests_seconds_count\\{[^}]*exception=\"IllegalArgumentException\"[^}]*uri=\"/api/books/page\".*"),
+                "swallowed exception is tagged on the request");
+        assertTrue(scrape.matches("(?s).*spring_data_repository_invocations_seconds_count\\{[^}]*repository=\"BooksRepository\".*"),
+                "repository method timings");
+        assertTrue(scrape.contains("hikaricp_connections_active"), "connection pool metrics");
+        assertTrue(scrape.contains("hibernate_statements_total"), "hibernate statistics");
+    }
+}
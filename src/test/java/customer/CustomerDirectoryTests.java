@@ -0,0 +1,74 @@
+package org.newnop.customer;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.newnop.entity.Customers;
+import org.newnop.entity.Rentals;
+import org.newnop.repository.RentalsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "customers.link-chunk-size=2")
+@Import(CustomerDirectory.class)
+class CustomerDirectoryTests {
+
+    @Autowired
+    private CustomerDirectory customerDirectory;
+
+    @Autowired
+    private RentalsRepository rentalsRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testResolve_NormalizesNameAndReusesCustomer() {
+        Customers created = customerDirectory.resolve("  Ada   Lovelace ");
+        Customers found = customerDirectory.resolve("ada lovelace");
+
+        assertEquals("Ada   Lovelace", created.getName());
+        assertEquals("ada lovelace", created.getNameKey());
+        assertEquals(created.getCustomerId(), found.getCustomerId());
+        assertEquals(created.getCustomerId(), customerDirectory.find("ADA LOVELACE").getCustomerId());
+        assertNull(customerDirectory.resolve(" "));
+        assertNull(customerDirectory.find("Grace Hopper"));
+    }
+
+    @Test
+    void testLinkUnassignedRentals_LinksEveryChunk() {
+        for (String name : new String[]{"Ada", "ada", "Grace", "Alan", "Grace "}) {
+            seedRental(name);
+        }
+        Rentals anonymous = seedRental(null);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(5, customerDirectory.linkUnassignedRentals());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(3, entityManager.createQuery("SELECT COUNT(c) FROM Customers c", Long.class).getSingleResult());
+        for (Rentals rental : rentalsRepository.findAll()) {
+            if (rental.getRentalId().equals(anonymous.getRentalId())) {
+                assertNull(rental.getCustomer());
+            } else {
+                assertEquals(CustomerDirectory.keyOf(rental.getUserDetails()), rental.getCustomer().getNameKey());
+            }
+        }
+        assertEquals(0, customerDirectory.linkUnassignedRentals());
+    }
+
+    // Private helper methods
+    private Rentals seedRental(String userDetails) {
+        Rentals rental = new Rentals();
+        rental.setUserDetails(userDetails);
+        rental.setRentalDate(LocalDate.of(2024, 1, 1));
+        entityManager.persist(rental);
+        return rental;
+    }
+}
@@ -0,0 +1,193 @@
+package org.newnop.idempotency;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Books;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.mapper.RentalMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.overdue.OverdueFeePolicy;
+import org.newnop.repository.BooksRepository;
+import org.newnop.repository.IdempotencyKeysRepository;
+import org.newnop.repository.OutboxEventsRepository;
+import org.newnop.repository.RentalItemsRepository;
+import org.newnop.repository.RentalsRepository;
+import org.newnop.service.impl.RentalServiceImpl;
+import org.newnop.stats.RentalStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs outside a test transaction so that keys are committed and cached as they would be in production
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({IdempotencyKeyStore.class, RentalServiceImpl.class, BookCache.class, BookAvailabilityIndex.class,
+        OverdueFeePolicy.class, RentalStatistics.class, CustomerDirectory.class, RentalMapperImpl.class,
+        CatalogVersions.class, OutboxPublisher.class,
+        HoldDispatcher.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyKeyStoreTests {
+
+    @Autowired
+    private IdempotencyKeyStore idempotencyKeyStore;
+
+    @Autowired
+    private RentalServiceImpl rentalService;
+
+    @Autowired
+    private IdempotencyKeysRepository idempotencyKeysRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private RentalsRepository rentalsRepository;
+
+    @Autowired
+    private RentalItemsRepository rentalItemsRepository;
+
+    @Autowired
+    private OutboxEventsRepository outboxEventsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        idempotencyKeysRepository.deleteAllInBatch();
+        outboxEventsRepository.deleteAllInBatch();
+        rentalItemsRepository.deleteAllInBatch();
+        rentalsRepository.deleteAllInBatch();
+        booksRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testRetryReplaysTheFirstResponseWithoutStatements() {
+        CreateRentalRequest request = request(seedBooks(2));
+        RentalDTO created = idempotencyKeyStore.createRental("key-1", request, rentalService::createRental);
+
+        // The rental changes afterwards; the retry still gets the response of the first attempt
+        rentalService.returnBooks(created.getRentalId());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        RentalDTO replayed = idempotencyKeyStore.createRental("key-1", request, rentalService::createRental);
+
+        assertEquals(created, replayed);
+        assertNull(replayed.getReturnDate());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, rentalsRepository.count());
+    }
+
+    @Test
+    void testKeysSurviveARestart() {
+        CreateRentalRequest request = request(seedBooks(1));
+        RentalDTO created = idempotencyKeyStore.createRental("key-2", request, rentalService::createRental);
+
+        // A new store starts with an empty cache, like the application after a restart
+        IdempotencyKeyStore restarted = new IdempotencyKeyStore(idempotencyKeysRepository, transactionManager,
+                1000, Duration.ofHours(24));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        RentalDTO replayed = restarted.createRental("key-2", request, rentalService::createRental);
+
+        assertEquals(created, replayed);
+        // One primary key read of the idempotency key, nothing from the rental tables
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, rentalsRepository.count());
+    }
+
+    @Test
+    void testKeyReusedWithAnotherRequestIsRefused() {
+        List<Long> bookIds = seedBooks(2);
+        idempotencyKeyStore.createRental("key-3", request(bookIds.subList(0, 1)), rentalService::createRental);
+
+        assertThrows(IdempotencyKeyReusedException.class, () ->
+                idempotencyKeyStore.createRental("key-3", request(bookIds.subList(1, 2)), rentalService::createRental));
+        assertEquals(1, rentalsRepository.count());
+        assertTrue(booksRepository.findById(bookIds.get(1)).orElseThrow().getAvailable());
+    }
+
+    @Test
+    void testConcurrentRetriesCreateOneRental() throws InterruptedException {
+        CreateRentalRequest request = request(seedBooks(3));
+        int threads = 8;
+        ConcurrentLinkedQueue<RentalDTO> answers = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    answers.add(idempotencyKeyStore.createRental("key-4", request, rentalService::createRental));
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+        assertEquals(threads, answers.size());
+        assertEquals(1, answers.stream().distinct().count());
+        assertEquals(1, rentalsRepository.count());
+    }
+
+    @Test
+    void testExpiredKeysArePurged() {
+        IdempotencyKeyStore shortLived = new IdempotencyKeyStore(idempotencyKeysRepository, transactionManager,
+                1000, Duration.ofMinutes(5));
+        shortLived.createRental("key-5", request(seedBooks(1)), rentalService::createRental);
+
+        assertEquals(0, shortLived.purgeExpired(LocalDateTime.now()));
+        assertEquals(1, shortLived.purgeExpired(LocalDateTime.now().plusMinutes(6)));
+        assertEquals(0, idempotencyKeysRepository.count());
+    }
+
+    private CreateRentalRequest request(List<Long> bookIds) {
+        return new CreateRentalRequest("Customer", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15), bookIds, null);
+    }
+
+    private List<Long> seedBooks(int count) {
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Books book = new Books();
+            book.setTitle("Retried " + i);
+            book.setAuthor("Author");
+            book.setGenre("Fiction");
+            book.setAvailable(true);
+            bookIds.add(booksRepository.save(book).getBookId());
+        }
+        return bookIds;
+    }
+}
@@ -0,0 +1,146 @@
+package org.newnop.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.dto.ImportResultDTO;
+import org.newnop.entity.Books;
+import org.newnop.repository.BooksRepository;
+import org.newnop.search.BookSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every batch commits on its own, so the import runs outside a test transaction
+@DataJpaTest
+@Import({BookImportServiceImpl.class, BookSearchIndex.class, BookAvailabilityIndex.class, CatalogVersions.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookImportServiceImplTests {
+
+    @Autowired
+    private BookImportServiceImpl bookImportService;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @AfterEach
+    void tearDown() {
+        booksRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testImportCsv() throws IOException {
+        String csv = "title,author,genre,available\n"
+                + "Java Programming,John Doe,Programming,true\n"
+                + "\"Code, Complete\",Steve McConnell,Programming,false\n"
+                + "\"The \"\"Hobbit\"\"\",J.R.R. Tolkien,,\n";
+
+        ImportResultDTO result = bookImportService.importCsv(new StringReader(csv));
+
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getFailed());
+        List<Books> books = booksRepository.findAll();
+        assertEquals(3, books.size());
+        assertTrue(books.stream().anyMatch(book -> book.getTitle().equals("Code, Complete") && !book.getAvailable()));
+        assertTrue(books.stream().anyMatch(book -> book.getTitle().equals("The \"Hobbit\"") && book.getAvailable()));
+        assertEquals(1, bookSearchIndex.search("hobbit", null, null, 10).size());
+    }
+
+    @Test
+    void testImportCsv_ReportsInvalidRowsAndKeepsTheRest() throws IOException {
+        String csv = "author,title\n"
+                + "John Doe,Valid Book\n"
+                + "Jane Doe,\n"
+                + "Someone,\"Unterminated\n"
+                + "Another,Also Valid\n";
+
+        ImportResultDTO result = bookImportService.importCsv(new StringReader(csv));
+
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertEquals("Title is required", result.getErrors().get(0).getMessage());
+        assertEquals(4, result.getErrors().get(1).getLine());
+    }
+
+    @Test
+    void testImportCsv_MissingRequiredColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> bookImportService.importCsv(new StringReader("title,genre\nJava,Programming\n")));
+    }
+
+    @Test
+    void testImportNdjson() throws IOException {
+        String ndjson = "{\"title\":\"Effective Java\",\"author\":\"Joshua Bloch\",\"genre\":\"Programming\"}\n"
+                + "\n"
+                + "{\"title\":\"Broken\"\n"
+                + "{\"title\":\"No Author\"}\n"
+                + "{\"title\":\"Dune\",\"author\":\"Frank Herbert\",\"available\":false}\n";
+
+        ImportResultDTO result = bookImportService.importNdjson(new StringReader(ndjson));
+
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertEquals(4, result.getErrors().get(1).getLine());
+        assertEquals("Author is required", result.getErrors().get(1).getMessage());
+    }
+
+    @Test
+    void testImportNdjson_ManyBatches() throws IOException {
+        int rows = 50_000;
+        int indexedBefore = bookSearchIndex.size();
+
+        ImportResultDTO result = bookImportService.importNdjson(generatedNdjson(rows));
+
+        assertEquals(rows, result.getImported());
+        assertEquals(rows, booksRepository.count());
+        assertEquals(indexedBefore + rows, bookSearchIndex.size());
+    }
+
+    // Produces the upload lazily, the way a request body arrives
+    private Reader generatedNdjson(int rows) {
+        return new Reader() {
+            private int row;
+            private String current = "";
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position == current.length()) {
+                    if (row == rows) {
+                        return -1;
+                    }
+                    current = "{\"title\":\"Generated " + row + "\",\"author\":\"Author " + (row % 100)
+                            + "\",\"genre\":\"Fiction\"}\n";
+                    position = 0;
+                    row++;
+                }
+                int count = Math.min(length, current.length() - position);
+                current.getChars(position, position + count, buffer, offset);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
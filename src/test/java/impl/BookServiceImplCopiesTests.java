@@ -0,0 +1,72 @@
+package org.newnop.service.impl;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.dto.BookDTO;
+import org.newnop.mapper.BookMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.repository.BooksRepository;
+import org.newnop.search.BookSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({BookServiceImpl.class, BookSearchIndex.class, BookCache.class, BookAvailabilityIndex.class, BookMapperImpl.class,
+        CatalogVersions.class, OutboxPublisher.class})
+class BookServiceImplCopiesTests {
+
+    @Autowired
+    private BookServiceImpl bookService;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testCreateBook_DefaultsToOneCopyOnTheShelf() {
+        BookDTO created = bookService.createBook(new BookDTO(null, "Emma", "Jane Austen", "Classic", null));
+
+        assertEquals(1, created.getTotalCopies());
+        assertEquals(1, created.getAvailableCopies());
+        assertTrue(created.getAvailable());
+    }
+
+    @Test
+    void testCreateBook_RejectsMoreAvailableThanTotalCopies() {
+        assertThrows(IllegalArgumentException.class, () ->
+                bookService.createBook(new BookDTO(null, "Emma", "Jane Austen", "Classic", null, 2, 3)));
+    }
+
+    @Test
+    void testUpdateBook_ChangesTotalCopiesAndKeepsRentedOnes() {
+        BookDTO created = bookService.createBook(new BookDTO(null, "Dune", "Frank Herbert", "Science Fiction", null, 5, 5));
+        // Three copies go out
+        for (int i = 0; i < 3; i++) {
+            booksRepository.takeCopies(List.of(created.getBookId()));
+        }
+
+        BookDTO fewer = bookService.updateBook(created.getBookId(), new BookDTO(null, null, null, null, null, 3, null));
+        assertEquals(3, fewer.getTotalCopies());
+        assertEquals(0, fewer.getAvailableCopies());
+        assertFalse(fewer.getAvailable());
+
+        assertThrows(IllegalStateException.class, () ->
+                bookService.updateBook(created.getBookId(), new BookDTO(null, null, null, null, null, 2, null)));
+        entityManager.clear();
+
+        BookDTO more = bookService.updateBook(created.getBookId(), new BookDTO(null, "Dune", null, null, null, 4, null));
+        assertEquals(4, more.getTotalCopies());
+        assertEquals(1, more.getAvailableCopies());
+        assertTrue(more.getAvailable());
+    }
+}
@@ -0,0 +1,91 @@
+package org.newnop.service.impl;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.dto.BookDTO;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.entity.Books;
+import org.newnop.mapper.BookMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.search.BookSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({BookServiceImpl.class, BookSearchIndex.class, BookCache.class, BookAvailabilityIndex.class, BookMapperImpl.class,
+        CatalogVersions.class, OutboxPublisher.class})
+class BookServiceImplPagingTests {
+
+    @Autowired
+    private BookServiceImpl bookService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 7; i++) {
+            Books book = new Books();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setGenre("Fiction");
+            book.setAvailable(true);
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testGetBooksPage_WalksAllPagesInIdOrder() {
+        List<Long> seen = new ArrayList<>();
+        Long after = null;
+        int pages = 0;
+        do {
+            CursorPageDTO<BookDTO> page = bookService.getBooksPage(after, 3);
+            page.getContent().forEach(book -> seen.add(book.getBookId()));
+            after = page.getNextCursor();
+            pages++;
+        } while (after != null);
+
+        assertEquals(3, pages);
+        assertEquals(7, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1) < seen.get(i));
+        }
+    }
+
+    @Test
+    void testGetBooksPage_ExactFinalPageHasNoCursor() {
+        CursorPageDTO<BookDTO> page = bookService.getBooksPage(null, 7);
+
+        assertEquals(7, page.getContent().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetBooksPage_InvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> bookService.getBooksPage(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> bookService.getBooksPage(null, BookServiceImpl.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testStreamAllBooks() {
+        List<BookDTO> streamed = new ArrayList<>();
+
+        bookService.streamAllBooks(streamed::add);
+
+        assertEquals(7, streamed.size());
+        assertEquals("Book 0", streamed.get(0).getTitle());
+    }
+}
@@ -2,202 +2,127 @@ package org.newnop.service.impl;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-import org.newnop.dto.book.InputBookDTO;
-import org.newnop.dto.book.OutputBookDTO;
-import org.newnop.entity.Books;
-import org.newnop.mapper.BookMapper;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.dto.BookDTO;
+import org.newnop.mapper.BookMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
 import org.newnop.repository.BooksRepository;
+import org.newnop.search.BookSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
 
-import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.*;
 
-@ExtendWith(MockitoExtension.class)
+@DataJpaTest
+@Import({BookServiceImpl.class, BookSearchIndex.class, BookCache.class, BookAvailabilityIndex.class, BookMapperImpl.class,
+        CatalogVersions.class, OutboxPublisher.class})
 class BookServiceImplTests {
 
-    @Mock
-    private BooksRepository booksRepository;
+    @Autowired
+    private BookServiceImpl bookService;
 
-    @Mock
-    private BookMapper bookMapper;
+    @Autowired
+    private BooksRepository booksRepository;
 
-    @InjectMocks
-    private BookServiceImpl bookService;
+    @Autowired
+    private BookAvailabilityIndex bookAvailabilityIndex;
 
-    private Books testBook;
-    private InputBookDTO testInputDTO;
-    private OutputBookDTO testOutputDTO;
+    private BookDTO testBook;
 
     @BeforeEach
     void setUp() {
-        testBook = new Books();
-        testBook.setBookId(1L);
-        testBook.setTitle("Java Programming");
-        testBook.setAuthor("John Doe");
-        testBook.setGenre("Programming");
-        testBook.setAvailable(true);
-
-        testInputDTO = new InputBookDTO();
-        testInputDTO.setTitle("Java Programming");
-        testInputDTO.setAuthor("John Doe");
-        testInputDTO.setGenre("Programming");
-        testInputDTO.setAvailable(true);
-        
-        testOutputDTO = new OutputBookDTO();
-        testOutputDTO.setBookId(1L);
-        testOutputDTO.setTitle("Java Programming");
-        testOutputDTO.setAuthor("John Doe");
-        testOutputDTO.setGenre("Programming");
-        testOutputDTO.setAvailable(true);
+        testBook = bookService.createBook(new BookDTO(null, "Java Programming", "John Doe", "Programming", true));
     }
 
     @Test
     void testCreateBook() {
-        when(bookMapper.toBookEntity(testInputDTO)).thenReturn(testBook);
-        when(booksRepository.save(testBook)).thenReturn(testBook);
-        when(bookMapper.toBookOutput(testBook)).thenReturn(testOutputDTO);
-
-        OutputBookDTO result = bookService.createBook(testInputDTO);
-
-        assertNotNull(result);
-        assertEquals(testOutputDTO.getBookId(), result.getBookId());
-        assertEquals(testOutputDTO.getTitle(), result.getTitle());
-        verify(booksRepository).save(testBook);
-        verify(bookMapper).toBookEntity(testInputDTO);
-        verify(bookMapper).toBookOutput(testBook);
+        assertNotNull(testBook.getBookId());
+        assertEquals("Java Programming", testBook.getTitle());
+        assertTrue(testBook.getAvailable());
+        assertTrue(booksRepository.existsById(testBook.getBookId()));
     }
 
     @Test
     void testGetAllBooks() {
-        List<Books> books = Arrays.asList(testBook);
+        List<BookDTO> result = bookService.getAllBooks();
 
-        when(booksRepository.findAll()).thenReturn(books);
-        when(bookMapper.toBookOutput(testBook)).thenReturn(testOutputDTO);
-
-        List<OutputBookDTO> result = bookService.getAllBooks();
-
-        assertNotNull(result);
         assertEquals(1, result.size());
-        assertEquals(testOutputDTO.getTitle(), result.get(0).getTitle());
-        verify(booksRepository).findAll();
+        assertEquals("Java Programming", result.get(0).getTitle());
     }
 
     @Test
     void testGetAvailableBooks() {
-        List<Books> availableBooks = Arrays.asList(testBook);
-
-        when(booksRepository.findByAvailableTrue()).thenReturn(availableBooks);
-        when(bookMapper.toBookOutput(testBook)).thenReturn(testOutputDTO);
+        booksRepository.takeCopies(List.of(bookService.createBook(
+                new BookDTO(null, "Python Guide", "Jane Smith", "Programming", true)).getBookId()));
+        // The test transaction never commits, so the index is built from the table instead of updated
+        bookAvailabilityIndex.rebuild();
 
-        List<OutputBookDTO> result = bookService.getAvailableBooks();
+        List<BookDTO> result = bookService.getAvailableBooks();
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
+        assertEquals(List.of(testBook.getBookId()), result.stream().map(BookDTO::getBookId).toList());
         assertTrue(result.get(0).getAvailable());
-        verify(booksRepository).findByAvailableTrue();
     }
 
     @Test
     void testGetBookById_Found() {
-        when(booksRepository.findById(1L)).thenReturn(Optional.of(testBook));
-        when(bookMapper.toBookOutput(testBook)).thenReturn(testOutputDTO);
-
-        OutputBookDTO result = bookService.getBookById(1L);
+        BookDTO result = bookService.getBookById(testBook.getBookId());
 
         assertNotNull(result);
-        assertEquals(1L, result.getBookId());
-        verify(booksRepository).findById(1L);
+        assertEquals(testBook.getBookId(), result.getBookId());
     }
 
     @Test
     void testGetBookById_NotFound() {
-        when(booksRepository.findById(1L)).thenReturn(Optional.empty());
-
-        OutputBookDTO result = bookService.getBookById(1L);
-
-        assertNull(result);
-        verify(booksRepository).findById(1L);
-        verify(bookMapper, never()).toBookOutput(any());
+        assertNull(bookService.getBookById(testBook.getBookId() + 1));
     }
 
     @Test
     void testUpdateBook_Found() {
-        when(booksRepository.findById(1L)).thenReturn(Optional.of(testBook));
-        when(booksRepository.save(testBook)).thenReturn(testBook);
-        when(bookMapper.toBookOutput(testBook)).thenReturn(testOutputDTO);
-
-        OutputBookDTO result = bookService.updateBook(1L, testInputDTO);
+        BookDTO result = bookService.updateBook(testBook.getBookId(),
+                new BookDTO(null, "Effective Java", null, null, null));
 
         assertNotNull(result);
-        verify(booksRepository).findById(1L);
-        verify(bookMapper).updateBookFromInput(testBook, testInputDTO);
-        verify(booksRepository).save(testBook);
+        assertEquals("Effective Java", result.getTitle());
+        assertEquals("John Doe", result.getAuthor());
     }
 
     @Test
     void testUpdateBook_NotFound() {
-        when(booksRepository.findById(1L)).thenReturn(Optional.empty());
-
-        OutputBookDTO result = bookService.updateBook(1L, testInputDTO);
-
-        assertNull(result);
-        verify(booksRepository).findById(1L);
-        verify(booksRepository, never()).save(any());
+        assertNull(bookService.updateBook(testBook.getBookId() + 1,
+                new BookDTO(null, "Effective Java", null, null, null)));
+        assertEquals("Java Programming", bookService.getBookById(testBook.getBookId()).getTitle());
     }
 
     @Test
     void testDeleteBook_Found() {
-        when(booksRepository.existsById(1L)).thenReturn(true);
-
-        boolean result = bookService.deleteBook(1L);
-
-        assertTrue(result);
-        verify(booksRepository).existsById(1L);
-        verify(booksRepository).deleteById(1L);
+        assertTrue(bookService.deleteBook(testBook.getBookId()));
+        assertFalse(booksRepository.existsById(testBook.getBookId()));
     }
 
     @Test
     void testDeleteBook_NotFound() {
-        when(booksRepository.existsById(1L)).thenReturn(false);
-
-        boolean result = bookService.deleteBook(1L);
-
-        assertFalse(result);
-        verify(booksRepository).existsById(1L);
-        verify(booksRepository, never()).deleteById(any());
+        assertFalse(bookService.deleteBook(testBook.getBookId() + 1));
+        assertEquals(1, booksRepository.count());
     }
 
     @Test
     void testSearchBooks_ByTitle() {
-        List<Books> books = Arrays.asList(testBook);
-        when(booksRepository.findByTitleContainingIgnoreCase("Java")).thenReturn(books);
-        when(bookMapper.toBookOutput(testBook)).thenReturn(testOutputDTO);
-
-        List<OutputBookDTO> result = bookService.searchBooks("Java", null, null);
+        List<BookDTO> result = bookService.searchBooks("Java", null, null);
 
-        assertNotNull(result);
         assertEquals(1, result.size());
-        verify(booksRepository).findByTitleContainingIgnoreCase("Java");
+        assertEquals(testBook.getBookId(), result.get(0).getBookId());
     }
 
     @Test
     void testSearchBooks_ByAuthor() {
-        List<Books> books = Arrays.asList(testBook);
-        when(booksRepository.findByAuthorContainingIgnoreCase("John")).thenReturn(books);
-        when(bookMapper.toBookOutput(testBook)).thenReturn(testOutputDTO);
-
-        List<OutputBookDTO> result = bookService.searchBooks(null, "John", null);
+        List<BookDTO> result = bookService.searchBooks(null, "John", null);
 
-        assertNotNull(result);
         assertEquals(1, result.size());
-        verify(booksRepository).findByAuthorContainingIgnoreCase("John");
+        assertTrue(bookService.searchBooks(null, "Jane", null).isEmpty());
     }
 }
@@ -0,0 +1,230 @@
+package org.newnop.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.HoldDTO;
+import org.newnop.dto.PlaceHoldRequest;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Books;
+import org.newnop.entity.Customers;
+import org.newnop.entity.HoldStatus;
+import org.newnop.entity.Holds;
+import org.newnop.entity.OutboxEvents;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.hold.HoldNotifier;
+import org.newnop.mapper.HoldMapperImpl;
+import org.newnop.mapper.RentalMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.overdue.OverdueFeePolicy;
+import org.newnop.repository.BooksRepository;
+import org.newnop.repository.CustomersRepository;
+import org.newnop.repository.HoldsRepository;
+import org.newnop.repository.OutboxEventsRepository;
+import org.newnop.repository.RentalItemsRepository;
+import org.newnop.repository.RentalsRepository;
+import org.newnop.stats.RentalStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs outside a test transaction: every step commits, as it would between requests
+@DataJpaTest
+@Import({HoldServiceImpl.class, HoldMapperImpl.class, HoldDispatcher.class, HoldNotifier.class, RentalServiceImpl.class,
+        BookCache.class, BookAvailabilityIndex.class, OverdueFeePolicy.class, RentalStatistics.class,
+        CustomerDirectory.class, RentalMapperImpl.class, CatalogVersions.class, OutboxPublisher.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HoldServiceImplTests {
+
+    @Autowired
+    private HoldServiceImpl holdService;
+
+    @Autowired
+    private RentalServiceImpl rentalService;
+
+    @Autowired
+    private HoldDispatcher holdDispatcher;
+
+    @Autowired
+    private HoldNotifier holdNotifier;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private HoldsRepository holdsRepository;
+
+    @Autowired
+    private RentalsRepository rentalsRepository;
+
+    @Autowired
+    private RentalItemsRepository rentalItemsRepository;
+
+    @Autowired
+    private CustomersRepository customersRepository;
+
+    @Autowired
+    private OutboxEventsRepository outboxEventsRepository;
+
+    @AfterEach
+    void tearDown() {
+        holdsRepository.deleteAllInBatch();
+        rentalItemsRepository.deleteAllInBatch();
+        rentalsRepository.deleteAllInBatch();
+        outboxEventsRepository.deleteAllInBatch();
+        booksRepository.deleteAllInBatch();
+        customersRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testReturn_ReadiesHighestPriorityThenEarliestHold() {
+        Long bookId = seedBook(1);
+        RentalDTO rental = rentalService.createRental(rentalRequest(bookId, "Renter"));
+
+        HoldDTO first = holdService.placeHold(holdRequest(bookId, "First"));
+        HoldDTO second = holdService.placeHold(holdRequest(bookId, "Second"));
+        HoldDTO urgent = holdService.placeHold(holdRequest(bookId, seedCustomer("Urgent", 5)));
+        assertEquals(HoldStatus.WAITING, first.getStatus());
+
+        rentalService.returnBooks(rental.getRentalId());
+
+        // The returned copy is set aside for the hold, not put back on the shelf
+        assertEquals(HoldStatus.READY, holdService.getHold(urgent.getHoldId()).getStatus());
+        assertNotNull(holdService.getHold(urgent.getHoldId()).getReadyUntil());
+        assertEquals(HoldStatus.WAITING, holdService.getHold(first.getHoldId()).getStatus());
+        assertEquals(0, booksRepository.findById(bookId).orElseThrow().getAvailableCopies());
+        assertEquals(List.of(urgent.getHoldId()), readiedHoldIds());
+
+        // Cancelling the ready hold passes the copy on to the earlier of the two others
+        holdService.cancelHold(urgent.getHoldId());
+
+        assertEquals(HoldStatus.READY, holdService.getHold(first.getHoldId()).getStatus());
+        assertEquals(HoldStatus.WAITING, holdService.getHold(second.getHoldId()).getStatus());
+        assertEquals(0, booksRepository.findById(bookId).orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void testReturn_ServesHoldsPlacedOnAnotherInstance() {
+        Long bookId = seedBook(1);
+        RentalDTO rental = rentalService.createRental(rentalRequest(bookId, "Renter"));
+        // Written straight to the table, as another instance would; nothing here was told about it
+        Holds elsewhere = holdsRepository.save(new Holds(null, bookId, seedCustomer("Elsewhere", 0).getCustomerId(),
+                0, HoldStatus.WAITING, LocalDateTime.now(), null, null));
+
+        rentalService.returnBooks(rental.getRentalId());
+
+        assertEquals(HoldStatus.READY, holdService.getHold(elsewhere.getHoldId()).getStatus());
+        assertEquals(0, booksRepository.findById(bookId).orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void testNotifyChanged_TellsClientsOfHoldsReadiedAnywhere() {
+        Long bookId = seedBook(1);
+        RentalDTO rental = rentalService.createRental(rentalRequest(bookId, "Renter"));
+        HoldDTO hold = holdService.placeHold(holdRequest(bookId, "Holder"));
+        assertNotNull(holdNotifier.subscribe(hold.getHoldId()));
+        assertEquals(0, holdNotifier.notifyChanged());
+
+        // The HoldReady event may go to another instance; the poll finds the hold anyway
+        rentalService.returnBooks(rental.getRentalId());
+
+        assertEquals(1, holdNotifier.notifyChanged());
+        assertEquals(0, holdNotifier.notifyChanged(), "the stream ended with the event");
+    }
+
+    @Test
+    void testCheckoutHold_RentsTheCopySetAside() {
+        Long bookId = seedBook(1);
+        RentalDTO rental = rentalService.createRental(rentalRequest(bookId, "Renter"));
+        HoldDTO hold = holdService.placeHold(holdRequest(bookId, "Holder"));
+        rentalService.returnBooks(rental.getRentalId());
+
+        RentalDTO pickedUp = holdService.checkoutHold(hold.getHoldId());
+
+        HoldDTO fulfilled = holdService.getHold(hold.getHoldId());
+        assertEquals(HoldStatus.FULFILLED, fulfilled.getStatus());
+        assertEquals(pickedUp.getRentalId(), fulfilled.getRentalId());
+        assertEquals(hold.getCustomerId(), pickedUp.getCustomerId());
+        assertEquals(0, booksRepository.findById(bookId).orElseThrow().getAvailableCopies());
+        assertThrows(IllegalStateException.class, () -> holdService.checkoutHold(hold.getHoldId()));
+    }
+
+    @Test
+    void testExpireReadyHolds_PutsTheCopyBackOnTheShelf() {
+        Long bookId = seedBook(1);
+        RentalDTO rental = rentalService.createRental(rentalRequest(bookId, "Renter"));
+        HoldDTO hold = holdService.placeHold(holdRequest(bookId, "Holder"));
+        rentalService.returnBooks(rental.getRentalId());
+
+        assertEquals(0, holdDispatcher.expireReadyHolds(LocalDateTime.now()));
+        assertEquals(1, holdDispatcher.expireReadyHolds(LocalDateTime.now().plusDays(30)));
+
+        assertEquals(HoldStatus.EXPIRED, holdService.getHold(hold.getHoldId()).getStatus());
+        assertEquals(1, booksRepository.findById(bookId).orElseThrow().getAvailableCopies());
+        assertThrows(IllegalStateException.class, () -> holdService.cancelHold(hold.getHoldId()));
+    }
+
+    @Test
+    void testPlaceHold_RejectsAvailableBooksAndDuplicates() {
+        Long bookId = seedBook(2);
+        assertThrows(IllegalStateException.class, () -> holdService.placeHold(holdRequest(bookId, "Holder")));
+
+        rentalService.createRental(rentalRequest(bookId, "Renter A"));
+        rentalService.createRental(rentalRequest(bookId, "Renter B"));
+        holdService.placeHold(holdRequest(bookId, "Holder"));
+
+        assertThrows(IllegalStateException.class, () -> holdService.placeHold(holdRequest(bookId, "Holder")));
+        assertThrows(IllegalArgumentException.class, () -> holdService.placeHold(holdRequest(null, "Other")));
+    }
+
+    private List<Long> readiedHoldIds() {
+        return outboxEventsRepository.findAll().stream()
+                .filter(event -> event.getEventType().equals("HoldReady"))
+                .map(OutboxEvents::getPayload)
+                .map(payload -> Long.valueOf(payload.replaceAll(".*\"holdId\":(\\d+).*", "$1")))
+                .toList();
+    }
+
+    private CreateRentalRequest rentalRequest(Long bookId, String customer) {
+        return new CreateRentalRequest(customer, null, null, List.of(bookId), null);
+    }
+
+    private PlaceHoldRequest holdRequest(Long bookId, String customer) {
+        PlaceHoldRequest request = new PlaceHoldRequest();
+        request.setBookId(bookId);
+        request.setUserDetails(customer);
+        return request;
+    }
+
+    private PlaceHoldRequest holdRequest(Long bookId, Customers customer) {
+        PlaceHoldRequest request = new PlaceHoldRequest();
+        request.setBookId(bookId);
+        request.setCustomerId(customer.getCustomerId());
+        return request;
+    }
+
+    private Customers seedCustomer(String name, int holdPriority) {
+        return customersRepository.save(new Customers(null, name, CustomerDirectory.keyOf(name), holdPriority));
+    }
+
+    private Long seedBook(int copies) {
+        Books book = new Books();
+        book.setTitle("Held");
+        book.setAuthor("Author");
+        book.setGenre("Fiction");
+        book.setAvailable(true);
+        book.setTotalCopies(copies);
+        return booksRepository.save(book).getBookId();
+    }
+}
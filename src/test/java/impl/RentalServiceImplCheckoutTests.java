@@ -0,0 +1,167 @@
+package org.newnop.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Books;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.mapper.RentalMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.overdue.OverdueFeePolicy;
+import org.newnop.repository.BooksRepository;
+import org.newnop.stats.RentalStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({RentalServiceImpl.class, BookCache.class, BookAvailabilityIndex.class, OverdueFeePolicy.class, RentalStatistics.class,
+        CustomerDirectory.class, RentalMapperImpl.class, CatalogVersions.class, OutboxPublisher.class,
+        HoldDispatcher.class})
+class RentalServiceImplCheckoutTests {
+
+    @Autowired
+    private RentalServiceImpl rentalService;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testCreateRental_StatementCountIndependentOfBookCount() {
+        // The first checkout of a customer also creates the customer record
+        rentalService.createRental(request(seedBooks(1, true)));
+        long twoBooks = countStatementsOfCheckout(seedBooks(2, true));
+        long twentyBooks = countStatementsOfCheckout(seedBooks(20, true));
+
+        assertEquals(twoBooks, twentyBooks);
+    }
+
+    @Test
+    void testCreateRental_MarksBooksUnavailable() {
+        List<Long> bookIds = seedBooks(3, true);
+
+        RentalDTO result = rentalService.createRental(request(bookIds));
+
+        assertEquals(3, result.getBooks().size());
+        result.getBooks().forEach(book -> assertFalse(book.getAvailable()));
+        booksRepository.findAllById(bookIds).forEach(book -> assertFalse(book.getAvailable()));
+    }
+
+    @Test
+    void testCreateRental_BookNotAvailable() {
+        List<Long> bookIds = seedBooks(1, true);
+        bookIds.addAll(seedBooks(1, false));
+
+        IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> rentalService.createRental(request(bookIds))
+        );
+
+        assertEquals("Book with ID " + bookIds.get(1) + " is not available for rental", exception.getMessage());
+    }
+
+    @Test
+    void testCreateRental_BookNotFound() {
+        List<Long> bookIds = seedBooks(1, true);
+        bookIds.add(-1L);
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> rentalService.createRental(request(bookIds))
+        );
+
+        assertEquals("Book with ID -1 not found", exception.getMessage());
+    }
+
+    @Test
+    void testCreateRental_DuplicateBookIds() {
+        Long bookId = seedBooks(1, true).get(0);
+
+        assertThrows(IllegalArgumentException.class, () -> rentalService.createRental(request(List.of(bookId, bookId))));
+    }
+
+    @Test
+    void testTakeCopies_CountsOnlyTitlesWithACopyLeft() {
+        List<Long> bookIds = seedBooks(3, true);
+
+        assertEquals(3, booksRepository.takeCopies(bookIds));
+        assertEquals(0, booksRepository.takeCopies(bookIds));
+    }
+
+    @Test
+    void testCreateRental_TakesOneCopyOfATitleUntilNoneAreLeft() {
+        Books book = new Books(null, "Dune", "Frank Herbert", "Science Fiction", true, 2, 2, null);
+        entityManager.persist(book);
+        List<Long> bookIds = List.of(book.getBookId());
+
+        rentalService.createRental(request(bookIds));
+        Books left = booksRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals(1, left.getAvailableCopies());
+        assertTrue(left.getAvailable());
+
+        rentalService.createRental(request(bookIds));
+        Books none = booksRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals(0, none.getAvailableCopies());
+        assertFalse(none.getAvailable());
+
+        assertThrows(IllegalStateException.class, () -> rentalService.createRental(request(bookIds)));
+    }
+
+    private long countStatementsOfCheckout(List<Long> bookIds) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        RentalDTO result = rentalService.createRental(request(bookIds));
+
+        assertEquals(bookIds.size(), result.getBooks().size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private CreateRentalRequest request(List<Long> bookIds) {
+        return new CreateRentalRequest("John Smith - john@email.com", LocalDate.of(2024, 1, 1),
+                LocalDate.of(2024, 1, 15), bookIds, null);
+    }
+
+    private List<Long> seedBooks(int count, boolean available) {
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Books book = new Books();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setGenre("Fiction");
+            book.setAvailable(available);
+            entityManager.persist(book);
+            bookIds.add(book.getBookId());
+        }
+        return bookIds;
+    }
+}
@@ -0,0 +1,181 @@
+package org.newnop.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Books;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.mapper.RentalMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.overdue.OverdueFeePolicy;
+import org.newnop.repository.BooksRepository;
+import org.newnop.repository.RentalBookRow;
+import org.newnop.repository.RentalItemsRepository;
+import org.newnop.repository.RentalsRepository;
+import org.newnop.stats.RentalStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs outside a test transaction so that every checkout commits on its own, as it would in production
+@DataJpaTest
+@Import({RentalServiceImpl.class, BookCache.class, BookAvailabilityIndex.class, OverdueFeePolicy.class, RentalStatistics.class,
+        CustomerDirectory.class, RentalMapperImpl.class, CatalogVersions.class, OutboxPublisher.class,
+        HoldDispatcher.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RentalServiceImplConcurrencyTests {
+
+    private static final int BOOK_COUNT = 10;
+    private static final int CHECKOUT_ATTEMPTS = 2000;
+
+    @Autowired
+    private RentalServiceImpl rentalService;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private RentalsRepository rentalsRepository;
+
+    @Autowired
+    private RentalItemsRepository rentalItemsRepository;
+
+    @Autowired
+    private BookAvailabilityIndex bookAvailabilityIndex;
+
+    @AfterEach
+    void tearDown() {
+        rentalItemsRepository.deleteAllInBatch();
+        rentalsRepository.deleteAllInBatch();
+        booksRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testCreateRental_ConcurrentCheckoutsRentEachBookAtMostOnce() throws InterruptedException {
+        List<Long> bookIds = seedBooks();
+        bookAvailabilityIndex.rebuild();
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        ConcurrentLinkedQueue<RentalDTO> succeeded = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < CHECKOUT_ATTEMPTS; i++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    succeeded.add(rentalService.createRental(request(randomBooks(bookIds))));
+                } catch (IllegalStateException e) {
+                    rejected.incrementAndGet();
+                } catch (Throwable e) {
+                    unexpected.add(e);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+
+        assertTrue(unexpected.isEmpty(), () -> "Unexpected failures: " + unexpected);
+        assertEquals(CHECKOUT_ATTEMPTS, succeeded.size() + rejected.get());
+        assertFalse(succeeded.isEmpty());
+
+        // Every book is held by at most one rental, and exactly the rented books are unavailable
+        Map<Long, Long> rentalByBook = new HashMap<>();
+        for (RentalBookRow row : rentalItemsRepository.findBooksByRentalIds(
+                succeeded.stream().map(RentalDTO::getRentalId).toList())) {
+            Long previous = rentalByBook.put(row.bookId(), row.rentalId());
+            assertNull(previous, "Book " + row.bookId() + " was rented twice");
+        }
+        assertEquals(rentalItemsRepository.count(), rentalByBook.size());
+        for (Books book : booksRepository.findAllById(bookIds)) {
+            assertEquals(!rentalByBook.containsKey(book.getBookId()), book.getAvailable());
+        }
+        assertTrue(bookAvailabilityIndex.checkConsistency().isConsistent());
+        assertEquals(BOOK_COUNT - rentalByBook.size(), bookAvailabilityIndex.count());
+    }
+
+    @Test
+    void testReturnBooks_OverlappingReturnsOfOneRentalPutItsCopyBackOnce() throws Exception {
+        Books book = new Books();
+        book.setTitle("Contended");
+        book.setAuthor("Author");
+        book.setGenre("Fiction");
+        book.setTotalCopies(3);
+        Long bookId = booksRepository.save(book).getBookId();
+        // Another rental keeps one copy out throughout
+        rentalService.createRental(request(List.of(bookId)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 20; round++) {
+                Long rentalId = rentalService.createRental(request(List.of(bookId))).getRentalId();
+                CyclicBarrier bothReady = new CyclicBarrier(2);
+                Callable<RentalDTO> returnRental = () -> {
+                    bothReady.await();
+                    return rentalService.returnBooks(rentalId);
+                };
+
+                for (Future<RentalDTO> returned : executor.invokeAll(List.of(returnRental, returnRental))) {
+                    assertEquals(LocalDate.now(), returned.get().getReturnDate());
+                }
+                assertEquals(2, booksRepository.findById(bookId).orElseThrow().getAvailableCopies(), "round " + round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Long> randomBooks(List<Long> bookIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int count = 1 + random.nextInt(3);
+        List<Long> picked = new ArrayList<>(bookIds);
+        Collections.shuffle(picked, random);
+        return new ArrayList<>(Set.copyOf(picked.subList(0, count)));
+    }
+
+    private CreateRentalRequest request(List<Long> bookIds) {
+        return new CreateRentalRequest("Customer", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15), bookIds, null);
+    }
+
+    private List<Long> seedBooks() {
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            Books book = new Books();
+            book.setTitle("Contended " + i);
+            book.setAuthor("Author");
+            book.setGenre("Fiction");
+            book.setAvailable(true);
+            bookIds.add(booksRepository.save(book).getBookId());
+        }
+        return bookIds;
+    }
+}
@@ -0,0 +1,184 @@
+package org.newnop.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.BookRentalHistoryDTO;
+import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.dto.CustomerRentalDTO;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Books;
+import org.newnop.entity.Customers;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.mapper.RentalMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.overdue.OverdueFeePolicy;
+import org.newnop.stats.RentalStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({RentalServiceImpl.class, BookCache.class, BookAvailabilityIndex.class, OverdueFeePolicy.class, RentalStatistics.class,
+        CustomerDirectory.class, RentalMapperImpl.class, CatalogVersions.class, OutboxPublisher.class,
+        HoldDispatcher.class})
+class RentalServiceImplHistoryTests {
+
+    @Autowired
+    private RentalServiceImpl rentalService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testCreateRental_SameCustomerForDifferentSpellingsOfName() {
+        List<Books> books = seedBooks(3);
+
+        RentalDTO first = rentalService.createRental(request("Jane  Doe", books.get(0)));
+        RentalDTO second = rentalService.createRental(request(" jane doe ", books.get(1)));
+        RentalDTO other = rentalService.createRental(request("John Doe", books.get(2)));
+
+        assertNotNull(first.getCustomerId());
+        assertEquals(first.getCustomerId(), second.getCustomerId());
+        assertNotEquals(first.getCustomerId(), other.getCustomerId());
+        assertEquals(" jane doe ", second.getUserDetails());
+        assertEquals("Jane  Doe", entityManager.find(Customers.class, first.getCustomerId()).getName());
+    }
+
+    @Test
+    void testCreateRental_ByCustomerId() {
+        List<Books> books = seedBooks(3);
+        RentalDTO first = rentalService.createRental(request("Jane Doe", books.get(0)));
+
+        CreateRentalRequest byId = new CreateRentalRequest(null, LocalDate.of(2024, 1, 2), null,
+                List.of(books.get(1).getBookId()), first.getCustomerId());
+        RentalDTO second = rentalService.createRental(byId);
+
+        assertEquals(first.getCustomerId(), second.getCustomerId());
+        assertEquals("Jane Doe", second.getUserDetails());
+        assertThrows(IllegalArgumentException.class, () -> rentalService.createRental(
+                new CreateRentalRequest(null, null, null, List.of(books.get(2).getBookId()), -1L)));
+    }
+
+    @Test
+    void testGetCustomerRentalHistory_NewestFirstAcrossPages() {
+        List<Books> books = seedBooks(5);
+        List<Long> rentalIds = new ArrayList<>();
+        for (Books book : books) {
+            rentalIds.add(rentalService.createRental(request("Jane Doe", book)).getRentalId());
+        }
+        rentalService.createRental(request("John Doe", seedBooks(1).get(0)));
+        Long customerId = rentalService.getRentalById(rentalIds.get(0)).getCustomerId();
+        flushAndClear();
+
+        CursorPageDTO<CustomerRentalDTO> first = rentalService.getCustomerRentalHistory(customerId, null, 3);
+        CursorPageDTO<CustomerRentalDTO> second = rentalService.getCustomerRentalHistory(customerId, first.getNextCursor(), 3);
+
+        assertEquals(List.of(rentalIds.get(4), rentalIds.get(3), rentalIds.get(2)),
+                first.getContent().stream().map(CustomerRentalDTO::getRentalId).toList());
+        assertEquals(List.of(rentalIds.get(1), rentalIds.get(0)),
+                second.getContent().stream().map(CustomerRentalDTO::getRentalId).toList());
+        assertNull(second.getNextCursor());
+        assertEquals(books.get(4).getBookId(), first.getContent().get(0).getBooks().get(0).getBookId());
+        assertEquals(books.get(4).getTitle(), first.getContent().get(0).getBooks().get(0).getTitle());
+        assertNull(rentalService.getCustomerRentalHistory(-1L, null, 3));
+    }
+
+    @Test
+    void testGetBookRentalHistory_NewestFirstAcrossPages() {
+        Books book = seedBooks(1).get(0);
+        List<Long> rentalIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RentalDTO rental = rentalService.createRental(request("Customer " + i, book));
+            rentalService.returnBooks(rental.getRentalId());
+            rentalIds.add(rental.getRentalId());
+        }
+        flushAndClear();
+
+        CursorPageDTO<BookRentalHistoryDTO> first = rentalService.getBookRentalHistory(book.getBookId(), null, 2);
+        CursorPageDTO<BookRentalHistoryDTO> second = rentalService.getBookRentalHistory(book.getBookId(), first.getNextCursor(), 2);
+
+        assertEquals(List.of(rentalIds.get(2), rentalIds.get(1)),
+                first.getContent().stream().map(BookRentalHistoryDTO::getRentalId).toList());
+        assertEquals(List.of(rentalIds.get(0)),
+                second.getContent().stream().map(BookRentalHistoryDTO::getRentalId).toList());
+        assertEquals("Customer 2", first.getContent().get(0).getUserDetails());
+        assertNotNull(first.getContent().get(0).getCustomerId());
+        assertNotNull(first.getContent().get(0).getReturnDate());
+        assertNull(rentalService.getBookRentalHistory(-1L, null, 2));
+    }
+
+    @Test
+    void testHistory_StatementCountIndependentOfPageSize() {
+        List<Books> books = seedBooks(20);
+        for (Books book : books) {
+            rentalService.createRental(request("Jane Doe", book));
+        }
+        Long customerId = entityManager.createQuery("SELECT c.customerId FROM Customers c", Long.class).getSingleResult();
+        flushAndClear();
+
+        statistics.clear();
+        assertEquals(20, rentalService.getCustomerRentalHistory(customerId, null, 50).getContent().size());
+        // Existence check, rentals page, books of the page
+        assertEquals(3, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        assertEquals(1, rentalService.getBookRentalHistory(books.get(0).getBookId(), null, 50).getContent().size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        assertNotNull(rentalService.getRentalById(rentalService.getBookRentalHistory(books.get(0).getBookId(), null, 1)
+                .getContent().get(0).getRentalId()).getCustomerId());
+        // History, existence check, rental, its items; the customer itself is never loaded
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    // Private helper methods
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private CreateRentalRequest request(String customer, Books book) {
+        return new CreateRentalRequest(customer, LocalDate.of(2024, 1, 1), null, List.of(book.getBookId()), null);
+    }
+
+    private List<Books> seedBooks(int count) {
+        List<Books> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Books book = new Books();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setGenre("Fiction");
+            book.setAvailable(true);
+            entityManager.persist(book);
+            books.add(book);
+        }
+        entityManager.flush();
+        return books;
+    }
+}
@@ -0,0 +1,115 @@
+package org.newnop.service.impl;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.CreateRentalRequest;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Books;
+import org.newnop.entity.Rentals;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.mapper.RentalMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.overdue.OverdueFeePolicy;
+import org.newnop.stats.RentalStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {"overdue.daily-fee=0.50", "overdue.max-fee=20.00", "overdue.loan-days=14"})
+@Import({RentalServiceImpl.class, BookCache.class, BookAvailabilityIndex.class, OverdueFeePolicy.class, RentalStatistics.class,
+        CustomerDirectory.class, RentalMapperImpl.class, CatalogVersions.class, OutboxPublisher.class,
+        HoldDispatcher.class})
+class RentalServiceImplOverdueTests {
+
+    @Autowired
+    private RentalServiceImpl rentalService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testCreateRental_PlannedReturnDateBecomesDueDate() {
+        Books book = seedBook();
+        LocalDate planned = LocalDate.now().plusDays(7);
+
+        RentalDTO result = rentalService.createRental(
+                new CreateRentalRequest("Customer", LocalDate.now(), planned, List.of(book.getBookId()), null));
+
+        assertEquals(planned, result.getDueDate());
+        assertNull(result.getReturnDate());
+    }
+
+    @Test
+    void testCreateRental_DefaultDueDateFromLoanPeriod() {
+        Books book = seedBook();
+
+        RentalDTO result = rentalService.createRental(
+                new CreateRentalRequest("Customer", LocalDate.of(2024, 1, 1), null, List.of(book.getBookId()), null));
+
+        assertEquals(LocalDate.of(2024, 1, 15), result.getDueDate());
+    }
+
+    @Test
+    void testGetOverdueRentalsPage_LongestOverdueFirstAcrossPages() {
+        LocalDate today = LocalDate.now();
+        Rentals lateByOne = seedRental(today.minusDays(1));
+        Rentals lateByFive = seedRental(today.minusDays(5));
+        Rentals lateByThree = seedRental(today.minusDays(3));
+        seedRental(today.plusDays(2));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Long> seen = new ArrayList<>();
+        Long after = null;
+        do {
+            CursorPageDTO<RentalDTO> page = rentalService.getOverdueRentalsPage(after, 2);
+            page.getContent().forEach(rental -> seen.add(rental.getRentalId()));
+            after = page.getNextCursor();
+        } while (after != null);
+
+        assertEquals(List.of(lateByFive.getRentalId(), lateByThree.getRentalId(), lateByOne.getRentalId()), seen);
+    }
+
+    @Test
+    void testReturnBooks_SettlesLateFee() {
+        Rentals rental = seedRental(LocalDate.now().minusDays(4));
+        entityManager.flush();
+        entityManager.clear();
+
+        RentalDTO result = rentalService.returnBooks(rental.getRentalId());
+
+        assertEquals(0, new BigDecimal("2.00").compareTo(result.getLateFee()));
+        assertTrue(rentalService.getOverdueRentalsPage(null, 10).getContent().isEmpty());
+    }
+
+    private Books seedBook() {
+        Books book = new Books();
+        book.setTitle("Book");
+        book.setAuthor("Author");
+        book.setGenre("Fiction");
+        book.setAvailable(true);
+        entityManager.persist(book);
+        return book;
+    }
+
+    private Rentals seedRental(LocalDate dueDate) {
+        Rentals rental = new Rentals();
+        rental.setUserDetails("Customer");
+        rental.setRentalDate(dueDate.minusDays(14));
+        rental.setDueDate(dueDate);
+        entityManager.persist(rental);
+        return rental;
+    }
+}
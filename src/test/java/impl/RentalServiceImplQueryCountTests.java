@@ -0,0 +1,137 @@
+package org.newnop.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Books;
+import org.newnop.entity.RentalItems;
+import org.newnop.entity.Rentals;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.mapper.RentalMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.overdue.OverdueFeePolicy;
+import org.newnop.stats.RentalStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({RentalServiceImpl.class, BookCache.class, BookAvailabilityIndex.class, OverdueFeePolicy.class, RentalStatistics.class,
+        CustomerDirectory.class, RentalMapperImpl.class, CatalogVersions.class, OutboxPublisher.class,
+        HoldDispatcher.class})
+class RentalServiceImplQueryCountTests {
+
+    @Autowired
+    private RentalServiceImpl rentalService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testGetAllRentals_StatementCountIndependentOfRentalCount() {
+        seedRentals(5, 3);
+        long fewRentalsStatements = countStatementsOfGetAllRentals(5);
+
+        seedRentals(50, 3);
+        long manyRentalsStatements = countStatementsOfGetAllRentals(55);
+
+        assertEquals(2, fewRentalsStatements);
+        assertEquals(fewRentalsStatements, manyRentalsStatements);
+    }
+
+    @Test
+    void testGetAllRentals_BooksGroupedByRental() {
+        seedRentals(4, 2);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<RentalDTO> result = rentalService.getAllRentals();
+
+        assertEquals(4, result.size());
+        result.forEach(rental -> assertEquals(2, rental.getBooks().size()));
+    }
+
+    @Test
+    void testGetAllRentals_LeavesNoManagedEntities() {
+        seedRentals(5, 2);
+        entityManager.flush();
+        entityManager.clear();
+
+        rentalService.getAllRentals();
+
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void testGetRentalById_WithoutItems() {
+        Rentals rental = new Rentals();
+        rental.setUserDetails("Walk-in customer");
+        rental.setRentalDate(LocalDate.of(2024, 1, 1));
+        entityManager.persist(rental);
+        entityManager.flush();
+        entityManager.clear();
+
+        RentalDTO result = rentalService.getRentalById(rental.getRentalId());
+
+        assertNotNull(result);
+        assertTrue(result.getBooks().isEmpty());
+    }
+
+    private long countStatementsOfGetAllRentals(int expectedRentals) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<RentalDTO> result = rentalService.getAllRentals();
+
+        assertEquals(expectedRentals, result.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void seedRentals(int rentalCount, int booksPerRental) {
+        for (int i = 0; i < rentalCount; i++) {
+            Rentals rental = new Rentals();
+            rental.setUserDetails("Customer " + i);
+            rental.setRentalDate(LocalDate.of(2024, 1, 1));
+            entityManager.persist(rental);
+
+            for (int j = 0; j < booksPerRental; j++) {
+                Books book = new Books();
+                book.setTitle("Book " + i + "-" + j);
+                book.setAuthor("Author " + j);
+                book.setGenre("Fiction");
+                book.setAvailable(false);
+                entityManager.persist(book);
+
+                RentalItems item = new RentalItems();
+                item.setRental(rental);
+                item.setBook(book);
+                entityManager.persist(item);
+            }
+        }
+    }
+}
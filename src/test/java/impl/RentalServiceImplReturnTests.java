@@ -0,0 +1,169 @@
+package org.newnop.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.cache.BookCache;
+import org.newnop.catalog.CatalogVersions;
+import org.newnop.customer.CustomerDirectory;
+import org.newnop.dto.RentalDTO;
+import org.newnop.entity.Books;
+import org.newnop.entity.RentalItems;
+import org.newnop.entity.Rentals;
+import org.newnop.hold.HoldDispatcher;
+import org.newnop.mapper.RentalMapperImpl;
+import org.newnop.outbox.OutboxPublisher;
+import org.newnop.overdue.OverdueFeePolicy;
+import org.newnop.repository.BooksRepository;
+import org.newnop.stats.RentalStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({RentalServiceImpl.class, BookCache.class, BookAvailabilityIndex.class, OverdueFeePolicy.class, RentalStatistics.class,
+        CustomerDirectory.class, RentalMapperImpl.class, CatalogVersions.class, OutboxPublisher.class,
+        HoldDispatcher.class})
+class RentalServiceImplReturnTests {
+
+    @Autowired
+    private RentalServiceImpl rentalService;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testReturnBooks_StatementCountIndependentOfBookCount() {
+        Rentals small = seedRental("Customer A", seedBooks(1));
+        Rentals large = seedRental("Customer B", seedBooks(20));
+
+        long smallStatements = countStatements(() -> rentalService.returnBooks(small.getRentalId()));
+        long largeStatements = countStatements(() -> rentalService.returnBooks(large.getRentalId()));
+
+        assertEquals(smallStatements, largeStatements);
+        // One of them reads the waiting holds of all returned titles and one writes the BooksReturned event
+        assertTrue(largeStatements <= 7, "statements: " + largeStatements);
+    }
+
+    @Test
+    void testReturnBooks_FreesBooksAndSetsReturnDate() {
+        List<Books> books = seedBooks(3);
+        Rentals rental = seedRental("Customer A", books);
+        flushAndClear();
+
+        RentalDTO result = rentalService.returnBooks(rental.getRentalId());
+
+        assertEquals(LocalDate.now(), result.getReturnDate());
+        assertEquals(3, result.getBooks().size());
+        result.getBooks().forEach(book -> assertTrue(book.getAvailable()));
+        booksRepository.findAllById(ids(books)).forEach(book -> assertTrue(book.getAvailable()));
+    }
+
+    @Test
+    void testReturnBooks_RentalNotFound() {
+        assertNull(rentalService.returnBooks(999L));
+    }
+
+    @Test
+    void testReturnRentals_ReturnsAllInRequestOrderAndSkipsUnknown() {
+        Rentals first = seedRental("Customer A", seedBooks(2));
+        Rentals second = seedRental("Customer B", seedBooks(3));
+        flushAndClear();
+
+        List<RentalDTO> result = rentalService.returnRentals(List.of(second.getRentalId(), 999L, first.getRentalId()));
+
+        assertEquals(List.of(second.getRentalId(), first.getRentalId()),
+                result.stream().map(RentalDTO::getRentalId).toList());
+        result.forEach(rental -> rental.getBooks().forEach(book -> assertTrue(book.getAvailable())));
+    }
+
+    @Test
+    void testReturnRentals_PutsBackOneCopyPerRentalItem() {
+        Books book = new Books(null, "Dune", "Frank Herbert", "Science Fiction", false, 3, 0, null);
+        entityManager.persist(book);
+        Rentals first = seedRental("Customer A", List.of(book));
+        Rentals second = seedRental("Customer B", List.of(book));
+        seedRental("Customer C", List.of(book));
+        flushAndClear();
+
+        rentalService.returnRentals(List.of(first.getRentalId(), second.getRentalId()));
+
+        Books returned = booksRepository.findById(book.getBookId()).orElseThrow();
+        assertEquals(2, returned.getAvailableCopies());
+        assertEquals(3, returned.getTotalCopies());
+        assertTrue(returned.getAvailable());
+    }
+
+    @Test
+    void testReturnRentals_EmptyRequest() {
+        assertThrows(IllegalArgumentException.class, () -> rentalService.returnRentals(Collections.emptyList()));
+    }
+
+    private long countStatements(Runnable action) {
+        flushAndClear();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private List<Long> ids(List<Books> books) {
+        return books.stream().map(Books::getBookId).toList();
+    }
+
+    private List<Books> seedBooks(int count) {
+        List<Books> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Books book = new Books();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setGenre("Fiction");
+            book.setAvailable(false);
+            entityManager.persist(book);
+            books.add(book);
+        }
+        return books;
+    }
+
+    private Rentals seedRental(String customer, List<Books> books) {
+        Rentals rental = new Rentals();
+        rental.setUserDetails(customer);
+        rental.setRentalDate(LocalDate.of(2024, 1, 1));
+        entityManager.persist(rental);
+        for (Books book : books) {
+            RentalItems item = new RentalItems();
+            item.setRental(rental);
+            item.setBook(book);
+            entityManager.persist(item);
+        }
+        return rental;
+    }
+}
@@ -0,0 +1,45 @@
+package org.newnop.mapper;
+
+import org.junit.jupiter.api.Test;
+import org.newnop.dto.BookDTO;
+import org.newnop.entity.Books;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookMapperTests {
+
+    private final BookMapper bookMapper = new BookMapperImpl();
+
+    @Test
+    void testToEntity_DefaultsToAvailableAndIgnoresId() {
+        Books book = bookMapper.toEntity(new BookDTO(7L, "Dune", "Herbert", "Science Fiction", null));
+
+        assertNull(book.getBookId());
+        assertEquals("Dune", book.getTitle());
+        assertEquals("Herbert", book.getAuthor());
+        assertEquals("Science Fiction", book.getGenre());
+        assertTrue(book.getAvailable());
+    }
+
+    @Test
+    void testUpdateEntity_KeepsFieldsLeftNullAndCopyCounts() {
+        Books book = new Books(3L, "Dune", "Herbert", "Science Fiction", true, 4, 2, null);
+
+        bookMapper.updateEntity(new BookDTO(99L, "Dune Messiah", null, null, false, 9, 0), book);
+
+        assertEquals(3L, book.getBookId());
+        assertEquals("Dune Messiah", book.getTitle());
+        assertEquals("Herbert", book.getAuthor());
+        assertEquals("Science Fiction", book.getGenre());
+        assertTrue(book.getAvailable());
+        assertEquals(4, book.getTotalCopies());
+        assertEquals(2, book.getAvailableCopies());
+    }
+
+    @Test
+    void testToDTO() {
+        Books book = new Books(3L, "Dune", "Herbert", "Science Fiction", false, null);
+
+        assertEquals(new BookDTO(3L, "Dune", "Herbert", "Science Fiction", false), bookMapper.toDTO(book));
+    }
+}
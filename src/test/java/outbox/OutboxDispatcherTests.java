@@ -0,0 +1,161 @@
+package org.newnop.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.entity.OutboxEvents;
+import org.newnop.event.BookUpdated;
+import org.newnop.event.BooksReturned;
+import org.newnop.event.DomainEvent;
+import org.newnop.event.HoldReady;
+import org.newnop.event.RentalCreated;
+import org.newnop.repository.OutboxEventsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The dispatcher commits its own transactions, so the tests run outside a test transaction
+@DataJpaTest(properties = {"outbox.batch-size=2", "outbox.max-attempts=2", "outbox.retry-delay=5m"})
+@Import({OutboxPublisher.class, OutboxDispatcher.class, OutboxDispatcherTests.RecordingListener.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxDispatcherTests {
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OutboxEventsRepository outboxEventsRepository;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        listener.received.clear();
+        listener.failuresLeft = 0;
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxEventsRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testDispatch_DeliversCommittedEventsInOrderAcrossBatches() {
+        List<DomainEvent> events = List.of(
+                new RentalCreated(1L, 7L, List.of(10L, 11L), LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 15)),
+                new BookUpdated(12L, "Dune", "Frank Herbert", "Science Fiction", true),
+                new BooksReturned(List.of(1L), List.of(10L, 11L), LocalDate.of(2024, 6, 3)));
+        transactionTemplate.executeWithoutResult(status -> events.forEach(outboxPublisher::publish));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        outboxDispatcher.bindTo(registry);
+
+        assertEquals(3.0, registry.get("outbox.backlog").gauge().value());
+        assertEquals(3, outboxDispatcher.dispatch());
+
+        assertEquals(events, listener.received);
+        assertEquals(0, outboxEventsRepository.count());
+        assertEquals(3.0, registry.get("outbox.events.delivered").functionCounter().count());
+        assertEquals(2, registry.get("outbox.dispatch.batches").functionTimer().count());
+        assertEquals(0.0, registry.get("outbox.lag").gauge().value());
+    }
+
+    @Test
+    void testPublish_EventsOfRolledBackTransactionsAreNeverDelivered() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxPublisher.publish(holdReady(1L));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, outboxDispatcher.dispatch());
+        assertTrue(listener.received.isEmpty());
+    }
+
+    @Test
+    void testPublish_RequiresTransaction() {
+        assertThrows(IllegalTransactionStateException.class,
+                () -> outboxPublisher.publish(holdReady(1L)));
+    }
+
+    @Test
+    void testDispatch_RetriesFailedEventLaterAndParksItAfterMaxAttempts() {
+        HoldReady failing = holdReady(1L);
+        HoldReady healthy = holdReady(2L);
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxPublisher.publish(failing);
+            outboxPublisher.publish(healthy);
+        });
+        listener.failuresLeft = 1;
+
+        // The failure does not hold back the next event
+        assertEquals(1, outboxDispatcher.dispatch());
+        assertEquals(List.of(healthy), listener.received);
+        OutboxEvents retry = outboxEventsRepository.findAll().get(0);
+        assertEquals(1, retry.getAttempts());
+        assertTrue(retry.getNextAttemptAt().isAfter(LocalDateTime.now().plusMinutes(4)));
+        assertTrue(retry.getLastError().contains("listener down"));
+        assertNull(retry.getFailedAt());
+
+        // Not due before the backoff has passed
+        assertEquals(0, outboxDispatcher.dispatch());
+
+        makeDue(retry);
+        listener.failuresLeft = 1;
+        assertEquals(0, outboxDispatcher.dispatch());
+        OutboxEvents parked = outboxEventsRepository.findAll().get(0);
+        assertEquals(2, parked.getAttempts());
+        assertNotNull(parked.getFailedAt());
+
+        makeDue(parked);
+        assertEquals(0, outboxDispatcher.dispatch());
+        assertEquals(1, outboxEventsRepository.countByFailedAtIsNotNull());
+        assertEquals(0, outboxEventsRepository.countByFailedAtIsNull());
+    }
+
+    // Private helper methods
+    private static HoldReady holdReady(Long holdId) {
+        return new HoldReady(holdId, 10L, 7L, LocalDateTime.of(2024, 6, 4, 12, 0));
+    }
+
+    private void makeDue(OutboxEvents event) {
+        transactionTemplate.executeWithoutResult(status -> outboxEventsRepository.recordFailure(event.getEventId(),
+                event.getAttempts(), LocalDateTime.now().minusSeconds(1), event.getLastError(), event.getFailedAt()));
+    }
+
+    static class RecordingListener {
+        private final List<DomainEvent> received = new CopyOnWriteArrayList<>();
+        private volatile int failuresLeft;
+
+        @EventListener
+        public void on(DomainEvent event) {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IllegalStateException("listener down");
+            }
+            received.add(event);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.newnop.overdue;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.newnop.entity.Rentals;
+import org.newnop.repository.RentalsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {"overdue.sweep-chunk-size=3", "overdue.daily-fee=0.50", "overdue.max-fee=5.00"})
+@Import({OverdueSweeper.class, OverdueFeePolicy.class})
+class OverdueSweeperTests {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    @Autowired
+    private OverdueSweeper overdueSweeper;
+
+    @Autowired
+    private RentalsRepository rentalsRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testSweep_AssessesEveryOverdueRentalAcrossChunks() {
+        for (int i = 1; i <= 7; i++) {
+            seedRental(TODAY.minusDays(i), null);
+        }
+        Rentals notYetDue = seedRental(TODAY, null);
+        Rentals returned = seedRental(TODAY.minusDays(3), TODAY.minusDays(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        long assessed = overdueSweeper.sweep(TODAY);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(7, assessed);
+        for (Rentals rental : rentalsRepository.findAll()) {
+            if (rental.getRentalId().equals(notYetDue.getRentalId()) || rental.getRentalId().equals(returned.getRentalId())) {
+                assertNull(rental.getLateFee());
+            } else {
+                long daysLate = TODAY.toEpochDay() - rental.getDueDate().toEpochDay();
+                assertEquals(0, BigDecimal.valueOf(daysLate).multiply(new BigDecimal("0.50")).compareTo(rental.getLateFee()));
+                assertEquals(TODAY, rental.getFeeAssessedOn());
+            }
+        }
+    }
+
+    @Test
+    void testSweep_SkipsRentalsAlreadyAssessedToday() {
+        seedRental(TODAY.minusDays(2), null);
+        seedRental(TODAY.minusDays(4), null);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(2, overdueSweeper.sweep(TODAY));
+        entityManager.flush();
+        entityManager.clear();
+        // Assessed rentals are not even read again the same day
+        assertTrue(rentalsRepository.findUnassessedOverdueAfter(TODAY, RentalsRepository.OVERDUE_SCAN_START, 0L,
+                Limit.of(10)).isEmpty());
+        assertEquals(0, overdueSweeper.sweep(TODAY));
+        assertEquals(2, overdueSweeper.sweep(TODAY.plusDays(1)));
+    }
+
+    @Test
+    void testFeeFor_CappedAtMaxFee() {
+        OverdueFeePolicy policy = new OverdueFeePolicy(new BigDecimal("0.50"), new BigDecimal("5.00"), 14);
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(policy.feeFor(TODAY, TODAY)));
+        assertEquals(0, new BigDecimal("1.50").compareTo(policy.feeFor(TODAY.minusDays(3), TODAY)));
+        assertEquals(0, new BigDecimal("5.00").compareTo(policy.feeFor(TODAY.minusDays(365), TODAY)));
+        assertEquals(TODAY.plusDays(14), policy.defaultDueDate(TODAY));
+    }
+
+    private Rentals seedRental(LocalDate dueDate, LocalDate returnDate) {
+        Rentals rental = new Rentals();
+        rental.setUserDetails("Customer");
+        rental.setRentalDate(dueDate.minusDays(14));
+        rental.setDueDate(dueDate);
+        rental.setReturnDate(returnDate);
+        entityManager.persist(rental);
+        return rental;
+    }
+}
@@ -0,0 +1,66 @@
+package org.newnop.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientRateLimiterTests {
+
+    private final AtomicLong clock = new AtomicLong(-5_000_000_000L);
+    // 10 tokens per second, bursts of 20
+    private final ClientRateLimiter limiter = new ClientRateLimiter(10, 20, 1000, clock::get);
+
+    @Test
+    void testBurstThenRefill() {
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, limiter.tryAcquire("a", 1));
+        }
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.tryAcquire("a", 1));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, limiter.tryAcquire("a", 1));
+        assertTrue(limiter.tryAcquire("a", 1) > 0);
+    }
+
+    @Test
+    void testCostsAreWeightedAndRefusedRequestsTakeNothing() {
+        assertEquals(0, limiter.tryAcquire("a", 15));
+
+        // 5 tokens left: a request for 10 waits for the missing 5, a request for 5 still fits
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.tryAcquire("a", 10));
+        assertEquals(0, limiter.tryAcquire("a", 5));
+        assertEquals(0, limiter.tryAcquire("b", 20));
+    }
+
+    @Test
+    void testConcurrentRequestsNeverExceedTheBurst() throws InterruptedException {
+        int threads = 8;
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 10_000; j++) {
+                    if (limiter.tryAcquire("shared", 1) == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // The clock stands still, so only the burst is available
+        assertEquals(20, admitted.get());
+    }
+}
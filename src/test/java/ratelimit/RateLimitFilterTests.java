@@ -0,0 +1,103 @@
+package org.newnop.ratelimit;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.newnop.config.RateLimitProperties;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PoolWaitMonitor poolWaitMonitor = new PoolWaitMonitor(Duration.ofMillis(100));
+    // 1 token per second, bursts of 100; a full listing costs 50
+    private final RateLimitFilter filter = new RateLimitFilter(new ClientRateLimiter(1, 100, 1000), poolWaitMonitor,
+            new EndpointCosts(properties()), 10);
+
+    RateLimitFilterTests() {
+        poolWaitMonitor.bindTo(registry);
+    }
+
+    @Test
+    void testExpensiveEndpointsUseUpTheBucketSooner() throws Exception {
+        assertEquals(200, call("GET", "/api/books", "10.0.0.1", null).getStatus());
+        assertEquals(200, call("GET", "/api/books", "10.0.0.1", null).getStatus());
+
+        MockHttpServletResponse refused = call("GET", "/api/books", "10.0.0.1", null);
+        assertEquals(429, refused.getStatus());
+        assertEquals("50", refused.getHeader("Retry-After"));
+        assertEquals(429, call("GET", "/api/books/1", "10.0.0.1", null).getStatus());
+
+        // Other addresses have buckets of their own, unauthenticated API keys do not; non-API paths are not limited
+        assertEquals(200, call("GET", "/api/books/1", "10.0.0.2", null).getStatus());
+        assertEquals(429, call("GET", "/api/books", "10.0.0.1", "key-1").getStatus());
+        assertEquals(200, call("GET", "/actuator/prometheus", "10.0.0.1", null).getStatus());
+    }
+
+    @Test
+    void testCostFollowsThePathTheHandlersMatch() throws Exception {
+        // Each of these is served by the listing, so each costs 50
+        assertEquals(200, call("GET", "/api/books;x=1", "10.0.0.4", null).getStatus());
+        assertEquals(200, call("GET", "/api/b%6Foks", "10.0.0.4", null).getStatus());
+        assertEquals(429, call("GET", "/api//books", "10.0.0.4", null).getStatus());
+    }
+
+    @Test
+    void testShedsExpensiveRequestsWhileConnectionsAreSlowToGet() throws Exception {
+        Timer acquire = registry.timer(PoolWaitMonitor.ACQUIRE_TIMER, "pool", "HikariPool-1");
+        acquire.record(Duration.ofMillis(400));
+        acquire.record(Duration.ofMillis(200));
+        poolWaitMonitor.check();
+
+        MockHttpServletResponse shed = call("GET", "/api/books", "10.0.0.3", null);
+        assertEquals(503, shed.getStatus());
+        assertEquals("1", shed.getHeader("Retry-After"));
+        assertEquals(200, call("GET", "/api/books/1", "10.0.0.3", null).getStatus());
+
+        acquire.record(Duration.ofMillis(1));
+        poolWaitMonitor.check();
+        assertEquals(200, call("GET", "/api/books", "10.0.0.3", null).getStatus());
+    }
+
+    @Test
+    void testWaitersWithoutAcquisitionsCountAsSaturated() {
+        AtomicInteger pending = new AtomicInteger();
+        registry.gauge(PoolWaitMonitor.PENDING_GAUGE, pending);
+        poolWaitMonitor.check();
+        assertFalse(poolWaitMonitor.isSaturated());
+
+        // Waiting threads are not in the acquire timer until they get their connection
+        pending.set(5);
+        poolWaitMonitor.check();
+        assertTrue(poolWaitMonitor.isSaturated());
+    }
+
+    private MockHttpServletResponse call(String method, String path, String address, String apiKey) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(address);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    static RateLimitProperties properties() {
+        RateLimitProperties.EndpointCost listing = new RateLimitProperties.EndpointCost();
+        listing.setMethod("GET");
+        listing.setPath("/api/books");
+        listing.setCost(50);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setCosts(List.of(listing));
+        return properties;
+    }
+}
@@ -0,0 +1,38 @@
+package org.newnop.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveRateLimitFilterTests {
+
+    // 1 token per second, bursts of 100; a full listing costs 50
+    private final ReactiveRateLimitFilter filter = new ReactiveRateLimitFilter(new ClientRateLimiter(1, 100, 1000),
+            new EndpointCosts(RateLimitFilterTests.properties()));
+
+    @Test
+    void testChargesTheListingWhateverItsSpelling() {
+        assertNull(call("/api/books;x=1", "10.0.0.1"));
+        assertNull(call("/api/b%6Foks", "10.0.0.1"));
+
+        assertEquals(HttpStatusCode.valueOf(429), call("/api/books", "10.0.0.1"));
+        assertEquals(HttpStatusCode.valueOf(429), call("/api/books/1", "10.0.0.1"));
+        assertNull(call("/api/books/1", "10.0.0.2"));
+    }
+
+    // Returns the status set by the filter, null when the request was passed on
+    private HttpStatusCode call(String path, String address) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(HttpMethod.GET, URI.create(path))
+                .remoteAddress(new InetSocketAddress(address, 40000)));
+        filter.filter(exchange, passedOn -> Mono.empty()).block();
+        return exchange.getResponse().getStatusCode();
+    }
+}
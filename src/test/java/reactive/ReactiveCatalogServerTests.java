@@ -0,0 +1,114 @@
+package org.newnop.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.availability.BookAvailabilityIndex;
+import org.newnop.dto.BookDTO;
+import org.newnop.dto.CursorPageDTO;
+import org.newnop.entity.Books;
+import org.newnop.repository.BooksRepository;
+import org.newnop.search.BookSearchIndex;
+import org.newnop.service.BookServiceInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the reactive catalog on a random port and checks its answers against the MVC service on the same database
+@SpringBootTest(properties = {"reactive-catalog.enabled=true", "reactive-catalog.port=0"})
+class ReactiveCatalogServerTests {
+
+    private static final int BOOK_COUNT = 1_201;
+
+    @Autowired
+    private ReactiveCatalogServer reactiveCatalogServer;
+
+    @Autowired
+    private BookServiceInterface bookService;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookAvailabilityIndex bookAvailabilityIndex;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        if (booksRepository.count() < BOOK_COUNT) {
+            List<Books> books = new ArrayList<>();
+            for (int i = 0; i < BOOK_COUNT; i++) {
+                books.add(new Books(null, i % 100 == 0 ? "Reactive Streams " + i : "Book " + i, "Author " + (i % 7),
+                        "Genre " + (i % 3), i % 2 == 0, null));
+            }
+            booksRepository.insertAll(books);
+            bookSearchIndex.rebuild();
+            bookAvailabilityIndex.rebuild();
+        }
+        client = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + reactiveCatalogServer.port())
+                .build();
+    }
+
+    @Test
+    void testListingsStreamEveryBookAcrossChunks() {
+        List<BookDTO> expected = bookService.getAllBooks();
+
+        List<BookDTO> json = client.get().uri("/api/books").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBodyList(BookDTO.class).returnResult().getResponseBody();
+        List<BookDTO> ndjson = client.get().uri("/api/books").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(BookDTO.class).getResponseBody().collectList().block();
+        List<BookDTO> available = client.get().uri("/api/books/available").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BookDTO.class).returnResult().getResponseBody();
+
+        assertTrue(expected.size() >= BOOK_COUNT);
+        assertEquals(expected, json);
+        assertEquals(expected, ndjson);
+        assertEquals(bookService.getAvailableBooks(), available);
+    }
+
+    @Test
+    void testPageAndByIdMatchTheMvcService() {
+        CursorPageDTO<BookDTO> expected = bookService.getBooksPage(null, 20);
+
+        CursorPageDTO<BookDTO> page = client.get().uri("/api/books/page?size=20").exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<CursorPageDTO<BookDTO>>() {
+                }).returnResult().getResponseBody();
+        BookDTO book = client.get().uri("/api/books/{id}", expected.getContent().get(3).getBookId()).exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDTO.class).returnResult().getResponseBody();
+
+        assertEquals(expected, page);
+        assertEquals(expected.getContent().get(3), book);
+        client.get().uri("/api/books/page?size=0").exchange().expectStatus().isBadRequest();
+        client.get().uri("/api/books/{id}", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void testSearchReturnsTheIndexRanking() {
+        List<BookDTO> expected = bookService.searchBooks("reactive", null, "genre");
+
+        List<BookDTO> found = client.get().uri("/api/books/search?title=reactive&genre=genre").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BookDTO.class).returnResult().getResponseBody();
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, found);
+    }
+}
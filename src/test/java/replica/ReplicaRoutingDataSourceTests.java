@@ -0,0 +1,185 @@
+package org.newnop.replica;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two embedded H2 databases stand in for the primary and a replica; replicate() plays the part of replication
+class ReplicaRoutingDataSourceTests {
+
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private SwitchableDataSource replicaDataSource;
+    private ReplicaMonitor replicaMonitor;
+    private JdbcTemplate routed;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primaryDataSource = database("primary");
+        replicaDataSource = new SwitchableDataSource(database("replica"));
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+
+        replicaMonitor = new ReplicaMonitor(primaryDataSource, Map.of("replica", replicaDataSource),
+                Duration.ofSeconds(5), clock::get);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primaryDataSource, replicaMonitor));
+        routed = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadConsistency.endSession();
+    }
+
+    @Test
+    void testReadOnlyTransactionsGoToTheReplica() {
+        assertEquals("primary", readNode(readOnly), "replicas are out of rotation until the first check");
+
+        replicaMonitor.check();
+        replicate();
+        replicaMonitor.check();
+
+        assertTrue(replicaMonitor.replicas().get(0).isHealthy());
+        assertEquals("replica", readNode(readOnly));
+        assertEquals("primary", readNode(readWrite));
+        assertEquals("primary", routed.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() {
+        replicaMonitor.check();
+        replicate();
+        replicaMonitor.check();
+        assertEquals("replica", readNode(readOnly));
+
+        // Replication stalls while the primary keeps beating
+        clock.addAndGet(6000);
+        replicaMonitor.check();
+
+        assertFalse(replicaMonitor.replicas().get(0).isHealthy());
+        assertEquals(6000, replicaMonitor.replicas().get(0).lagMillis());
+        assertEquals("primary", readNode(readOnly));
+
+        replicate();
+        replicaMonitor.check();
+        assertEquals("replica", readNode(readOnly));
+    }
+
+    @Test
+    void testUnreachableReplicaFallsBackToPrimary() {
+        replicaMonitor.check();
+        replicate();
+        replicaMonitor.check();
+
+        replicaDataSource.down = true;
+
+        assertEquals("primary", readNode(readOnly));
+        assertFalse(replicaMonitor.replicas().get(0).isHealthy());
+        replicaMonitor.check();
+        assertFalse(replicaMonitor.replicas().get(0).isHealthy());
+    }
+
+    @Test
+    void testReadsAfterAWriteWaitForTheReplicaToCatchUp() {
+        replicaMonitor.check();
+        replicate();
+        replicaMonitor.check();
+
+        List<Long> writes = new ArrayList<>();
+        ReadConsistency.beginSession(0, writes::add);
+        assertEquals("replica", readNode(readOnly));
+
+        readWrite.executeWithoutResult(status -> routed.update("UPDATE node SET name = 'primary'"));
+        assertEquals(1, writes.size());
+        assertEquals("primary", readNode(readOnly), "the replica has not applied the write yet");
+
+        // A heartbeat stamped after the write reaches the replica
+        clock.set(writes.get(0) + 1);
+        replicaMonitor.check();
+        replicate();
+        replicaMonitor.check();
+        assertEquals("replica", readNode(readOnly));
+
+        // A later request of the same client carries the write time
+        ReadConsistency.endSession();
+        ReadConsistency.beginSession(writes.get(0), write -> { });
+        assertEquals("replica", readNode(readOnly));
+        ReadConsistency.beginSession(clock.get() + 1, write -> { });
+        assertEquals("primary", readNode(readOnly));
+    }
+
+    @Test
+    void testOnPrimaryPinsReadOnlyTransactions() {
+        replicaMonitor.check();
+        replicate();
+        replicaMonitor.check();
+
+        assertEquals("primary", ReadConsistency.onPrimary(() -> readNode(readOnly)));
+        assertEquals("replica", readNode(readOnly));
+    }
+
+    // Private helper methods
+    private String readNode(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> routed.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private void replicate() {
+        Long beat = primary.queryForObject("SELECT beat_millis FROM replica_heartbeat WHERE id = 1", Long.class);
+        replica.update("MERGE INTO replica_heartbeat (id, beat_millis) KEY (id) VALUES (1, ?)", beat);
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing_" + name + databases.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        // As created by the V9 migration
+        jdbcTemplate.execute("CREATE TABLE replica_heartbeat (id INT PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+        return dataSource;
+    }
+
+    private static final class SwitchableDataSource extends DelegatingDataSource {
+        private volatile boolean down;
+
+        private SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
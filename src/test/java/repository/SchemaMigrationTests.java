@@ -0,0 +1,126 @@
+package org.newnop.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the migrations on an empty database and lets Hibernate validate the entities against the result
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schema_migration;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchemaMigrationTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testMigrationsMatchTheEntities() {
+        List<String> versions = jdbcTemplate.queryForList("SELECT \"version\" FROM \"flyway_schema_history\" "
+                + "WHERE \"version\" IS NOT NULL AND \"success\" ORDER BY \"installed_rank\"", String.class);
+
+        assertEquals(List.of("1", "1.1", "1.2", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13"), versions);
+    }
+
+    @Test
+    void testDeclaredIndexesExist() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME LIKE 'IDX_%'", String.class);
+
+        assertTrue(indexes.containsAll(List.of("idx_books_available", "idx_rentals_open_due", "idx_rentals_customer",
+                "idx_rental_items_book", "idx_rental_items_rental", "idx_outbox_events_pending",
+                "idx_idempotency_keys_expires", "idx_holds_dispatch", "idx_holds_ready_until",
+                "idx_catalog_stamps_version")), indexes.toString());
+    }
+
+    @Test
+    void testDatabaseFromBeforeMigrationsIsBaselinedAndMigratedToTheSameSchema() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:baselined_migration;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        // The tables as ddl-auto: update built them, with its generated constraint names
+        jdbc.execute("CREATE TABLE books (book_id BIGINT NOT NULL AUTO_INCREMENT, title VARCHAR(255), "
+                + "author VARCHAR(255), genre VARCHAR(255), available BIT, PRIMARY KEY (book_id))");
+        jdbc.execute("CREATE TABLE rentals (rental_id BIGINT NOT NULL AUTO_INCREMENT, user_details VARCHAR(255), "
+                + "rental_date DATE, return_date DATE, PRIMARY KEY (rental_id))");
+        jdbc.execute("CREATE TABLE rental_items (rental_item_id BIGINT NOT NULL AUTO_INCREMENT, rental_id BIGINT, "
+                + "book_id BIGINT, PRIMARY KEY (rental_item_id), "
+                + "CONSTRAINT FKa1b2c3d4 FOREIGN KEY (rental_id) REFERENCES rentals (rental_id), "
+                + "CONSTRAINT FKe5f6a7b8 FOREIGN KEY (book_id) REFERENCES books (book_id))");
+        jdbc.update("INSERT INTO books (book_id, title, author, available) VALUES (1, 'Dune', 'Frank Herbert', FALSE)");
+        jdbc.update("INSERT INTO rentals (rental_id, user_details, rental_date, return_date) VALUES "
+                + "(1, 'Customer A', '2024-02-01', '2024-02-15')");
+        jdbc.update("INSERT INTO rental_items (rental_id, book_id) VALUES (1, 1)");
+
+        // As spring.flyway configures it
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+        assertEquals(columns(jdbcTemplate), columns(jdbc));
+        assertEquals(LocalDate.of(2024, 2, 15),
+                jdbc.queryForObject("SELECT due_date FROM rentals WHERE return_date IS NULL", LocalDate.class));
+    }
+
+    @Test
+    void testCopiesStoredAsRowsMergeIntoOneTitle() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:book_copies_migration;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).target("4").load().migrate();
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        // Three copies of Dune, the second one rented, and a single Emma
+        jdbc.update("INSERT INTO books (book_id, title, author, genre, available) VALUES "
+                + "(1, 'Dune', 'Frank Herbert', 'Science Fiction', TRUE), (2, 'Dune', 'Frank Herbert', 'Science Fiction', FALSE), "
+                + "(3, 'Emma', 'Jane Austen', NULL, TRUE), (4, 'Dune', 'Frank Herbert', 'Science Fiction', TRUE)");
+        jdbc.update("INSERT INTO rentals (rental_id, user_details) VALUES (1, 'Customer A')");
+        jdbc.update("INSERT INTO rental_items (rental_id, book_id) VALUES (1, 2)");
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        List<Map<String, Object>> books = jdbc.queryForList(
+                "SELECT book_id, available, total_copies, available_copies FROM books ORDER BY book_id");
+        assertEquals(List.of(
+                Map.of("BOOK_ID", 1L, "AVAILABLE", true, "TOTAL_COPIES", 3, "AVAILABLE_COPIES", 2),
+                Map.of("BOOK_ID", 3L, "AVAILABLE", true, "TOTAL_COPIES", 1, "AVAILABLE_COPIES", 1)), books);
+        assertEquals(1L, jdbc.queryForObject("SELECT book_id FROM rental_items WHERE rental_id = 1", Long.class));
+    }
+
+    @Test
+    void testLegacyRentalsStillOutAreReopened() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy_rentals_migration;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).target("6").load().migrate();
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        // Dune went out and came back (rental 1), then went out again (rental 2); Emma came back (rental 3).
+        // All three kept a return_date, the planned one for rental 2.
+        jdbc.update("INSERT INTO books (book_id, title, author, available, total_copies, available_copies) VALUES "
+                + "(1, 'Dune', 'Frank Herbert', FALSE, 1, 0), (2, 'Emma', 'Jane Austen', TRUE, 1, 1)");
+        jdbc.update("INSERT INTO rentals (rental_id, user_details, rental_date, return_date) VALUES "
+                + "(1, 'Customer A', '2024-01-01', '2024-01-05'), (2, 'Customer B', '2024-02-01', '2024-02-15'), "
+                + "(3, 'Customer A', '2024-01-01', '2024-01-20')");
+        jdbc.update("INSERT INTO rental_items (rental_id, book_id) VALUES (1, 1), (2, 1), (3, 2)");
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        assertEquals(List.of(2L), jdbc.queryForList("SELECT rental_id FROM rentals WHERE return_date IS NULL", Long.class));
+        assertEquals(LocalDate.of(2024, 2, 15),
+                jdbc.queryForObject("SELECT due_date FROM rentals WHERE rental_id = 2", LocalDate.class));
+        assertEquals(List.of(2L), jdbc.queryForList("SELECT rental_id FROM rentals WHERE due_date IS NOT NULL", Long.class));
+    }
+
+    // Private helper methods
+    private static List<Map<String, Object>> columns(JdbcTemplate jdbc) {
+        return jdbc.queryForList("SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE, IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME <> 'flyway_schema_history' ORDER BY TABLE_NAME, COLUMN_NAME");
+    }
+}
@@ -0,0 +1,127 @@
+package org.newnop.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.newnop.dto.BookDTO;
+import org.newnop.entity.Books;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTests {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.rebuild(Stream.of(
+                new BookDTO(1L, "Java Programming", "John Doe", "Programming", true),
+                new BookDTO(2L, "Effective Java", "Joshua Bloch", "Programming", true),
+                new BookDTO(3L, "JavaScript: The Good Parts", "Douglas Crockford", "Programming", false),
+                new BookDTO(4L, "The Hobbit", "J.R.R. Tolkien", "Fantasy", true)
+        ));
+    }
+
+    @Test
+    void testRebuild_MarksIndexReady() {
+        assertTrue(index.isReady());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void testRebuild_ServesSearchesMeanwhileAndKeepsChangesMadeMeanwhile() throws Exception {
+        Books added = new Books();
+        added.setBookId(6L);
+        added.setTitle("Java Concurrency in Practice");
+        added.setAuthor("Brian Goetz");
+        added.setGenre("Programming");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            index.rebuild(Stream.of(
+                    new BookDTO(1L, "Java Programming", "John Doe", "Programming", true),
+                    new BookDTO(2L, "Effective Java", "Joshua Bloch", "Programming", true),
+                    new BookDTO(4L, "The Hobbit", "J.R.R. Tolkien", "Fantasy", true)
+            ).peek(book -> {
+                if (book.getBookId() == 2L) {
+                    // From another thread, which a lock held for the whole build would block
+                    List<Long> found = assertDoesNotThrow(() -> executor.submit(() -> {
+                        index.index(added);
+                        index.remove(4L);
+                        return index.search("java", null, null, 10);
+                    }).get(5, TimeUnit.SECONDS));
+                    assertEquals(List.of(1L, 2L, 6L, 3L), found, "the old contents, with the change");
+                }
+            }));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(1L, 2L, 6L), index.search("java", null, null, 10));
+        assertTrue(index.search("hobbit", null, null, 10).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testSearch_ExactMatchRanksAbovePrefixMatch() {
+        List<Long> result = index.search("java", null, null, 10);
+
+        assertEquals(List.of(1L, 2L, 3L), result);
+    }
+
+    @Test
+    void testSearch_PrefixAndCaseInsensitive() {
+        assertEquals(List.of(4L), index.search("HOB", null, null, 10));
+        assertEquals(List.of(4L), index.search(null, "tolk", null, 10));
+    }
+
+    @Test
+    void testSearch_CombinesAllCriteria() {
+        assertEquals(List.of(2L), index.search("java", "bloch", "programming", 10));
+        assertTrue(index.search("java", null, "fantasy", 10).isEmpty());
+    }
+
+    @Test
+    void testSearch_AllTokensMustMatch() {
+        assertEquals(List.of(2L), index.search("effective java", null, null, 10));
+        assertTrue(index.search("effective hobbit", null, null, 10).isEmpty());
+    }
+
+    @Test
+    void testSearch_RespectsLimit() {
+        assertEquals(2, index.search(null, null, "programming", 2).size());
+    }
+
+    @Test
+    void testIndex_ReplacesExistingDocument() {
+        Books book = new Books();
+        book.setBookId(4L);
+        book.setTitle("The Silmarillion");
+        book.setAuthor("J.R.R. Tolkien");
+        book.setGenre("Fantasy");
+
+        index.index(book);
+
+        assertTrue(index.search("hobbit", null, null, 10).isEmpty());
+        assertEquals(List.of(4L), index.search("silmarillion", null, null, 10));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void testRemove() {
+        index.remove(2L);
+
+        assertEquals(List.of(1L, 3L), index.search("java", null, null, 10));
+        assertTrue(index.search(null, "bloch", null, 10).isEmpty());
+    }
+
+    @Test
+    void testSearch_NoCriteria() {
+        assertTrue(index.search(null, " ", "", 10).isEmpty());
+    }
+}
@@ -0,0 +1,147 @@
+package org.newnop.stats;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.newnop.entity.Books;
+import org.newnop.entity.RentalItems;
+import org.newnop.entity.Rentals;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(RentalStatistics.class)
+class RentalStatisticsTests {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Autowired
+    private RentalStatistics rentalStatistics;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testRebuild_CountsRentalsFromTables() {
+        Books dune = seedBook("Dune", "Herbert", "Science Fiction");
+        Books emma = seedBook("Emma", "Austen", "Classics");
+        Books persuasion = seedBook("Persuasion", "Austen", null);
+        seedRental(DAY, null, dune, emma);
+        seedRental(DAY, DAY.plusDays(3), dune, persuasion);
+        seedRental(DAY.plusDays(1), null, dune);
+        entityManager.flush();
+
+        rentalStatistics.rebuild();
+
+        assertEquals(List.of(new RentalStatistics.Count<>(dune.getBookId(), 3L)), rentalStatistics.topBooks(1));
+        assertEquals(List.of(new RentalStatistics.Count<>("Herbert", 3L), new RentalStatistics.Count<>("Austen", 2L)),
+                rentalStatistics.topAuthors(10));
+        assertEquals(List.of(
+                new RentalStatistics.Count<>("Science Fiction", 3L),
+                new RentalStatistics.Count<>("Classics", 1L),
+                new RentalStatistics.Count<>(RentalStatistics.UNKNOWN, 1L)
+        ), rentalStatistics.topGenres(10));
+        assertEquals(List.of(new RentalStatistics.Count<>(DAY, 2L), new RentalStatistics.Count<>(DAY.plusDays(1), 1L)),
+                rentalStatistics.rentalsPerDay(DAY.minusDays(1), DAY.plusDays(1)));
+        assertEquals(new RentalStatistics.Summary(3, 2, 3), rentalStatistics.summary());
+    }
+
+    @Test
+    void testRecordCheckoutAndReturn_AppliedOnlyAfterCommit() {
+        rentalStatistics.rebuild();
+        Books dune = seedBook("Dune", "Herbert", "Science Fiction");
+        Books emma = seedBook("Emma", "Austen", "Classics");
+
+        rentalStatistics.recordCheckout(DAY, List.of(dune, emma));
+        assertEquals(new RentalStatistics.Summary(0, 0, 0), rentalStatistics.summary());
+
+        commitSynchronizations();
+        assertEquals(new RentalStatistics.Summary(1, 1, 2), rentalStatistics.summary());
+        assertEquals(2, rentalStatistics.topBooks(10).size());
+
+        rentalStatistics.recordReturn(1, 2);
+        commitSynchronizations();
+        assertEquals(new RentalStatistics.Summary(1, 0, 0), rentalStatistics.summary());
+        // Rankings count every rental ever made, so returns leave them unchanged
+        assertEquals(List.of(new RentalStatistics.Count<>(DAY, 1L)), rentalStatistics.rentalsPerDay(DAY, DAY));
+    }
+
+    @Test
+    void testTopBooks_OrderedByCountThenId() {
+        List<Books> books = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            books.add(seedBook("Book " + i, "Author", "Genre"));
+        }
+        seedRental(DAY, null, books.get(3), books.get(1));
+        seedRental(DAY, null, books.get(3), books.get(4));
+        seedRental(DAY, null, books.get(3));
+        entityManager.flush();
+
+        rentalStatistics.rebuild();
+
+        assertEquals(List.of(
+                new RentalStatistics.Count<>(books.get(3).getBookId(), 3L),
+                new RentalStatistics.Count<>(books.get(1).getBookId(), 1L),
+                new RentalStatistics.Count<>(books.get(4).getBookId(), 1L)
+        ), rentalStatistics.topBooks(3));
+    }
+
+    @Test
+    void testReconcile_ReportsDriftedCounters() {
+        Books dune = seedBook("Dune", "Herbert", "Science Fiction");
+        seedRental(DAY, null, dune);
+        entityManager.flush();
+        rentalStatistics.rebuild();
+        assertEquals(0, rentalStatistics.reconcile());
+
+        // A rental written behind the counters' back drifts book, genre, author, day and all three totals
+        seedRental(DAY, null, dune);
+        entityManager.flush();
+
+        assertEquals(7, rentalStatistics.reconcile());
+        assertEquals(new RentalStatistics.Summary(2, 2, 2), rentalStatistics.summary());
+        assertEquals(0, rentalStatistics.reconcile());
+    }
+
+    // Private helper methods
+    // Runs the afterCommit callbacks registered so far, as if the test transaction had committed
+    private void commitSynchronizations() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private Books seedBook(String title, String author, String genre) {
+        Books book = new Books();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        book.setAvailable(true);
+        entityManager.persist(book);
+        return book;
+    }
+
+    private void seedRental(LocalDate rentalDate, LocalDate returnDate, Books... books) {
+        Rentals rental = new Rentals();
+        rental.setUserDetails("Reader");
+        rental.setRentalDate(rentalDate);
+        rental.setDueDate(rentalDate.plusDays(14));
+        rental.setReturnDate(returnDate);
+        entityManager.persist(rental);
+        for (Books book : books) {
+            RentalItems item = new RentalItems();
+            item.setRental(rental);
+            item.setBook(book);
+            entityManager.persist(item);
+        }
+    }
+}